@@ -1,13 +1,17 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 CREATE TABLE inventories (
     id INT GENERATED ALWAYS AS IDENTITY,
     name VARCHAR(255) NOT NULL,
-    PRIMARY KEY (id)
+    PRIMARY KEY (id),
+    CONSTRAINT uq_inventories_name UNIQUE (name)
 );
 
 CREATE TABLE categories (
     id INT GENERATED ALWAYS AS IDENTITY,
     name VARCHAR(255) NOT NULL,
-    PRIMARY KEY (id)
+    PRIMARY KEY (id),
+    CONSTRAINT uq_categories_name UNIQUE (name)
 );
 
 CREATE TABLE products (
@@ -15,6 +19,7 @@ CREATE TABLE products (
     category_id INT NOT NULL,
     name VARCHAR(255) NOT NULL,
     PRIMARY KEY (id),
+    CONSTRAINT uq_products_name UNIQUE (name),
     CONSTRAINT fk_category FOREIGN KEY(category_id) REFERENCES categories(id) ON DELETE CASCADE
 );
 
@@ -26,3 +31,56 @@ CREATE TABLE stocks (
     CONSTRAINT fk_product FOREIGN KEY(product_id) REFERENCES products(id) ON DELETE CASCADE,
     CONSTRAINT fk_inventory FOREIGN KEY(inventory_id) REFERENCES inventories(id) ON DELETE CASCADE
 );
+
+-- low stock thresholds per product (no inventory ID) or per stock entry, and the alerts raised when a quantity crosses one
+CREATE TABLE stock_thresholds (
+    id INT GENERATED ALWAYS AS IDENTITY,
+    product_id INT NOT NULL,
+    inventory_id INT,
+    threshold INT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_stock_thresholds_entry UNIQUE (product_id, inventory_id),
+    CONSTRAINT fk_threshold_product FOREIGN KEY(product_id) REFERENCES products(id) ON DELETE CASCADE,
+    CONSTRAINT fk_threshold_inventory FOREIGN KEY(inventory_id) REFERENCES inventories(id) ON DELETE CASCADE
+);
+
+CREATE TABLE stock_alerts (
+    id BIGINT GENERATED ALWAYS AS IDENTITY,
+    product_id INT NOT NULL,
+    inventory_id INT NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    threshold INT NOT NULL,
+    previous_quantity INT,
+    quantity INT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_alert_product FOREIGN KEY(product_id) REFERENCES products(id) ON DELETE CASCADE,
+    CONSTRAINT fk_alert_inventory FOREIGN KEY(inventory_id) REFERENCES inventories(id) ON DELETE CASCADE
+);
+
+-- version per table, the sum of its shards: every transaction writing the table moves one shard, so concurrent
+-- writers rarely wait for each other; read for the ETags of the read endpoints. TableVersions uses 16 shards
+CREATE TABLE table_versions (
+    name VARCHAR(32) NOT NULL,
+    shard INT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (name, shard)
+);
+
+INSERT INTO table_versions (name, shard, version)
+SELECT t.name, s.shard, 0 FROM (VALUES ('categories'), ('inventories'), ('products'), ('stocks')) AS t(name)
+CROSS JOIN generate_series(0, 15) AS s(shard);
+
+-- name search: prefix matches use the pattern-ops b-tree, substring matches the trigram GIN index
+CREATE INDEX idx_inventories_name_prefix ON inventories (lower(name) text_pattern_ops);
+CREATE INDEX idx_inventories_name_trgm ON inventories USING GIN (lower(name) gin_trgm_ops);
+CREATE INDEX idx_categories_name_prefix ON categories (lower(name) text_pattern_ops);
+CREATE INDEX idx_categories_name_trgm ON categories USING GIN (lower(name) gin_trgm_ops);
+CREATE INDEX idx_products_name_prefix ON products (lower(name) text_pattern_ops);
+CREATE INDEX idx_products_name_trgm ON products USING GIN (lower(name) gin_trgm_ops);
+-- the unique constraint does not cover the product-wide threshold, as NULL inventory IDs never compare equal
+CREATE UNIQUE INDEX uq_stock_thresholds_product ON stock_thresholds (product_id) WHERE inventory_id IS NULL;
+CREATE INDEX idx_stock_alerts_product ON stock_alerts (product_id, id);
+-- the stock entries of an inventory or category, read and locked when it is deleted; the primary key leads with the product
+CREATE INDEX idx_stocks_inventory ON stocks (inventory_id);
+CREATE INDEX idx_products_category ON products (category_id);
@@ -0,0 +1,104 @@
+package com.elvison.inventoryapp.benchmark;
+
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// encode and decode cost of a page of stock entries per negotiated encoding; the payload size of each is printed
+// at setup. "json-unwrapped" is JSON with the former @JsonUnwrapped mapping of the stock entry ID, for comparison.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+
+    private static final TypeReference<List<StockEntryRequest>> REQUESTS = new TypeReference<List<StockEntryRequest>>() {
+    };
+
+    @Param({"json", "json-unwrapped", "smile", "cbor"})
+    private String encoding;
+
+    @Param({"1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<StockEntry> entries;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (encoding) {
+            case "json":
+                objectMapper = new ObjectMapper();
+                break;
+            case "json-unwrapped":
+                objectMapper = new ObjectMapper().addMixIn(StockEntry.class, UnwrappedStockEntry.class);
+                break;
+            case "smile":
+                objectMapper = new ObjectMapper(new SmileFactory());
+                break;
+            case "cbor":
+                objectMapper = new ObjectMapper(new CBORFactory());
+                break;
+            default:
+                throw new IllegalArgumentException(encoding);
+        }
+
+        entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(StockEntry.of(i / 8 + 1, i % 8 + 1, i * 7 % 1000));
+        }
+        payload = objectMapper.writeValueAsBytes(entries);
+        System.out.printf("%n%s payload of %d stock entries: %d bytes%n", encoding, size, payload.length);
+    }
+
+    @Benchmark
+    public byte[] encodeStockEntries() throws IOException {
+        return objectMapper.writeValueAsBytes(entries);
+    }
+
+    @Benchmark
+    public List<StockEntryRequest> decodeStockEntryRequests() throws IOException {
+        return objectMapper.readValue(payload, REQUESTS);
+    }
+
+    private abstract static class UnwrappedStockEntry {
+        @JsonIgnore(false)
+        @JsonUnwrapped
+        private StockEntryId id;
+
+        @JsonIgnore(false)
+        @JsonUnwrapped
+        abstract StockEntryId getId();
+
+        @JsonIgnore
+        abstract Integer getProductId();
+
+        @JsonIgnore
+        abstract Integer getInventoryId();
+    }
+}
@@ -0,0 +1,75 @@
+package com.elvison.inventoryapp.benchmark;
+
+import com.elvison.inventoryapp.helper.DefaultNameValidationHelper;
+import com.elvison.inventoryapp.helper.ProductRequestValidationHelper;
+import com.elvison.inventoryapp.model.Category;
+import com.elvison.inventoryapp.model.rest.NameRequest;
+import com.elvison.inventoryapp.model.rest.ProductRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameValidationBenchmark {
+
+    @Param({"Cake", "Chocolate Cake - Large_Box 2020"})
+    private String name;
+
+    private DefaultNameValidationHelper nameValidationHelper;
+    private ProductRequestValidationHelper productValidationHelper;
+    private NameRequest nameRequest;
+    private ProductRequest productRequest;
+    private Category whitelistedCategory;
+    private Category otherCategory;
+
+    @Setup
+    public void setup() {
+        nameValidationHelper = new DefaultNameValidationHelper();
+        productValidationHelper = new ProductRequestValidationHelper();
+
+        nameRequest = new NameRequest();
+        nameRequest.setName(name);
+        productRequest = new ProductRequest();
+        productRequest.setName(name);
+        productRequest.setCategoryId(1);
+
+        // the white map only has exact names, so only "Cake" passes the food category
+        whitelistedCategory = Category.of(1, "Food");
+        otherCategory = Category.of(2, "Toys");
+    }
+
+    @Benchmark
+    public void validateName() {
+        nameValidationHelper.validate(nameRequest);
+    }
+
+    @Benchmark
+    public void validateProductInOtherCategory() {
+        productValidationHelper.validate(productRequest, otherCategory);
+    }
+
+    @Benchmark
+    public boolean validateProductInWhitelistedCategory() {
+        try {
+            productValidationHelper.validate(productRequest, whitelistedCategory);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
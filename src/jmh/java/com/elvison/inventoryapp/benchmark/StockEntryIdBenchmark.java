@@ -0,0 +1,84 @@
+package com.elvison.inventoryapp.benchmark;
+
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.util.LongIntHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockEntryIdBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private StockEntryId[] ids;
+    private StockEntryId[] copies;
+    private long[] keys;
+    private Map<StockEntryId, Integer> idMap;
+    private LongIntHashMap keyMap;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ids = new StockEntryId[size];
+        copies = new StockEntryId[size];
+        keys = new long[size];
+        idMap = new HashMap<>(size * 2);
+        keyMap = new LongIntHashMap(size);
+        for (int i = 0; i < size; i++) {
+            // a few inventories holding many products, like the real stock table
+            int productId = i / 8 + 1;
+            int inventoryId = i % 8 + 1;
+            ids[i] = StockEntryId.of(productId, inventoryId);
+            copies[i] = StockEntryId.of(productId, inventoryId);
+            keys[i] = StockEntryId.key(productId, inventoryId);
+            idMap.put(ids[i], i);
+            keyMap.putIfAbsent(keys[i], i);
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = i + 1 == size ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public int hashCodeOfId() {
+        return ids[nextIndex()].hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsOfDistinctInstances() {
+        int i = nextIndex();
+        return ids[i].equals(copies[i]);
+    }
+
+    @Benchmark
+    public Integer hashMapGetById() {
+        return idMap.get(copies[nextIndex()]);
+    }
+
+    @Benchmark
+    public int longIntHashMapGetByKey() {
+        return keyMap.get(keys[nextIndex()]);
+    }
+}
@@ -0,0 +1,107 @@
+package com.elvison.inventoryapp.benchmark;
+
+import com.elvison.inventoryapp.InventoryApp;
+import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.service.StockService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// runs the service through its transactional proxy against the in-memory database from application-benchmark.properties
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockServiceBenchmark {
+
+    private static final int PRODUCTS = 2000;
+    private static final int STOCKED_INVENTORIES = 10;
+    // createStockEntry only writes into these, which are emptied before every iteration
+    private static final int EMPTY_INVENTORIES = 200;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private StockService stockService;
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(InventoryApp.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        stockService = context.getBean(StockService.class);
+
+        jdbcTemplate.update("INSERT INTO categories (name) VALUES ('Benchmark')");
+        int categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories", Integer.class);
+        for (int i = 1; i <= PRODUCTS; i++) {
+            jdbcTemplate.update("INSERT INTO products (id, category_id, name) VALUES (?, ?, ?)", i, categoryId, "Product " + i);
+        }
+        for (int i = 1; i <= STOCKED_INVENTORIES + EMPTY_INVENTORIES; i++) {
+            jdbcTemplate.update("INSERT INTO inventories (id, name) VALUES (?, ?)", i, "Inventory " + i);
+        }
+        for (int i = 1; i <= STOCKED_INVENTORIES; i++) {
+            jdbcTemplate.update("INSERT INTO stocks (product_id, inventory_id, quantity) SELECT id, ?, 100 FROM products", i);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCreatedEntries() {
+        jdbcTemplate.update("DELETE FROM stocks WHERE inventory_id > ?", STOCKED_INVENTORIES);
+        created.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object getStockEntry() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return stockService.getStockEntries(random.nextInt(PRODUCTS) + 1, random.nextInt(STOCKED_INVENTORIES) + 1, null, null);
+    }
+
+    @Benchmark
+    public void updateStockEntry() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        stockService.updateStockEntry(request(random.nextInt(PRODUCTS) + 1, random.nextInt(STOCKED_INVENTORIES) + 1, random.nextInt(1000)));
+    }
+
+    @Benchmark
+    public void createStockEntry() {
+        int n = created.getAndIncrement();
+        if (n >= PRODUCTS * EMPTY_INVENTORIES) {
+            throw new IllegalStateException("Iteration created more entries than there are empty slots, raise EMPTY_INVENTORIES");
+        }
+        stockService.createStockEntry(request(n % PRODUCTS + 1, STOCKED_INVENTORIES + 1 + n / PRODUCTS, 1));
+    }
+
+    private static StockEntryRequest request(int productId, int inventoryId, int quantity) {
+        StockEntryRequest request = new StockEntryRequest();
+        request.setProductId(productId);
+        request.setInventoryId(inventoryId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
@@ -0,0 +1,277 @@
+package com.elvison.inventoryapp.load;
+
+import org.HdrHistogram.Histogram;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// drives a mixed read/write workload through Tomcat, the controllers and JPA into the in-process database, then
+// compares the p99 latency and throughput against the stored baseline
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("load")
+public class InventoryApiLoadIT {
+
+    private static final int PRODUCTS = 500;
+    private static final int INVENTORIES = 20;
+    private static final long HIGHEST_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+    private static final String P99_KEY = "p99-ms";
+    private static final String THROUGHPUT_KEY = "throughput";
+
+    private enum Operation {
+        GET_STOCK_ENTRY(35),
+        UPDATE_STOCK_ENTRY(15),
+        GET_PRODUCT(20),
+        GET_PRODUCT_PAGE(10),
+        GET_CATEGORIES(5),
+        GET_INVENTORY(10),
+        CREATE_INVENTORY(5);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // platform and virtual thread runs report into their own directories so that they can be compared
+    @Value("${app.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    private final int threads = Integer.getInteger("load.threads", 16);
+    private RestTemplate restTemplate;
+    private HttpHeaders jsonHeaders;
+    private final AtomicInteger createdInventories = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        if (jdbcTemplate.queryForObject("SELECT count(*) FROM products", Integer.class) == 0) {
+            jdbcTemplate.update("INSERT INTO categories (id, name) VALUES (1, 'Load')");
+            for (int i = 1; i <= PRODUCTS; i++) {
+                jdbcTemplate.update("INSERT INTO products (id, category_id, name) VALUES (?, 1, ?)", i, "Product " + i);
+            }
+            for (int i = 1; i <= INVENTORIES; i++) {
+                jdbcTemplate.update("INSERT INTO inventories (id, name) VALUES (?, ?)", i, "Inventory " + i);
+                jdbcTemplate.update("INSERT INTO stocks (product_id, inventory_id, quantity) SELECT id, ?, 100 FROM products", i);
+            }
+        }
+
+        // PATCH needs a client other than HttpURLConnection, and the pool must not cap the concurrency
+        HttpClient httpClient = HttpClientBuilder.create()
+                .setMaxConnTotal(threads)
+                .setMaxConnPerRoute(threads)
+                .build();
+        restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    public void mixedWorkload() throws Exception {
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("load.warmup-seconds", 10));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("load.duration-seconds", 30));
+
+        long measureFrom = System.nanoTime() + warmupNanos;
+        long measureUntil = measureFrom + durationNanos;
+        AtomicLong errors = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Histogram[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> drive(measureFrom, measureUntil, errors)));
+        }
+
+        Histogram[] histograms = newHistograms();
+        Histogram total = new Histogram(HIGHEST_LATENCY_US, 3);
+        for (Future<Histogram[]> future : futures) {
+            Histogram[] workerHistograms = future.get();
+            for (Operation operation : Operation.values()) {
+                histograms[operation.ordinal()].add(workerHistograms[operation.ordinal()]);
+                total.add(workerHistograms[operation.ordinal()]);
+            }
+        }
+        executor.shutdown();
+
+        double throughput = total.getTotalCount() / (durationNanos / 1e9);
+        double p99Millis = total.getValueAtPercentile(99) / 1000.0;
+        report(threads, throughput, p99Millis, histograms, total);
+
+        Assert.assertEquals("Requests failed during the load test", 0, errors.get());
+        checkBaseline(throughput, p99Millis);
+    }
+
+    private Histogram[] drive(long measureFrom, long measureUntil, AtomicLong errors) {
+        Histogram[] histograms = newHistograms();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < measureUntil) {
+            Operation operation = pick(random);
+            boolean ok = true;
+            long start = System.nanoTime();
+            try {
+                execute(operation, random);
+            } catch (RestClientException e) {
+                ok = false;
+            }
+            long elapsedMicros = (System.nanoTime() - start) / 1000;
+            if (now >= measureFrom) {
+                if (ok) {
+                    histograms[operation.ordinal()].recordValue(Math.min(elapsedMicros, HIGHEST_LATENCY_US));
+                } else {
+                    errors.incrementAndGet();
+                }
+            }
+        }
+        return histograms;
+    }
+
+    private void execute(Operation operation, ThreadLocalRandom random) {
+        int productId = random.nextInt(PRODUCTS) + 1;
+        int inventoryId = random.nextInt(INVENTORIES) + 1;
+        switch (operation) {
+            case GET_STOCK_ENTRY:
+                restTemplate.getForEntity(url("/v1/stock?productId={p}&inventoryId={i}"), String.class, productId, inventoryId);
+                break;
+            case UPDATE_STOCK_ENTRY:
+                String entry = String.format("{\"productId\":%d,\"inventoryId\":%d,\"quantity\":%d}", productId, inventoryId, random.nextInt(1000));
+                restTemplate.exchange(url("/v1/stock"), HttpMethod.PATCH, new HttpEntity<>(entry, jsonHeaders), String.class);
+                break;
+            case GET_PRODUCT:
+                restTemplate.getForEntity(url("/v1/product/{id}"), String.class, productId);
+                break;
+            case GET_PRODUCT_PAGE:
+                restTemplate.getForEntity(url("/v1/product?after={after}&limit=50"), String.class, productId);
+                break;
+            case GET_CATEGORIES:
+                restTemplate.getForEntity(url("/v1/category"), String.class);
+                break;
+            case GET_INVENTORY:
+                restTemplate.getForEntity(url("/v1/inventory/{id}"), String.class, inventoryId);
+                break;
+            case CREATE_INVENTORY:
+                String inventory = String.format("{\"name\":\"Load %d\"}", createdInventories.incrementAndGet());
+                restTemplate.postForEntity(url("/v1/inventory"), new HttpEntity<>(inventory, jsonHeaders), String.class);
+                break;
+            default:
+                throw new IllegalStateException(operation.name());
+        }
+    }
+
+    private static Operation pick(ThreadLocalRandom random) {
+        int roll = random.nextInt(100);
+        for (Operation operation : Operation.values()) {
+            roll -= operation.weight;
+            if (roll < 0) {
+                return operation;
+            }
+        }
+        return Operation.GET_STOCK_ENTRY;
+    }
+
+    private static Histogram[] newHistograms() {
+        Histogram[] histograms = new Histogram[Operation.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram(HIGHEST_LATENCY_US, 3);
+        }
+        return histograms;
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private void report(int threads, double throughput, double p99Millis, Histogram[] histograms, Histogram total) throws IOException {
+        String mode = virtualThreads ? "virtual" : "platform";
+        File directory = new File(System.getProperty("load.report-directory", "target/load"), mode);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        StringBuilder summary = new StringBuilder(String.format("%n%-20s %10s %10s %10s %10s %10s%n", "operation", "count", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Operation operation : Operation.values()) {
+            summary.append(summaryLine(operation.name(), histograms[operation.ordinal()]));
+            try (PrintStream out = new PrintStream(new File(directory, operation.name().toLowerCase() + ".hgrm"))) {
+                histograms[operation.ordinal()].outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        summary.append(summaryLine("TOTAL", total));
+        summary.append(String.format("%d threads, %s request threads, %.1f requests/s%n", threads, mode, throughput));
+        System.out.print(summary);
+
+        try (PrintStream out = new PrintStream(new File(directory, "total.hgrm"))) {
+            total.outputPercentileDistribution(out, 1000.0);
+        }
+        Properties result = new Properties();
+        result.setProperty(P99_KEY, String.format("%.2f", p99Millis));
+        result.setProperty(THROUGHPUT_KEY, String.format("%.1f", throughput));
+        try (OutputStream out = new FileOutputStream(new File(directory, "load-result.properties"))) {
+            result.store(out, threads + " threads, " + mode + " request threads");
+        }
+    }
+
+    private static String summaryLine(String name, Histogram histogram) {
+        return String.format("%-20s %10d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getMaxValue() / 1000.0);
+    }
+
+    private static void checkBaseline(double throughput, double p99Millis) throws IOException {
+        String path = System.getProperty("load.baseline");
+        if (path == null || !new File(path).isFile()) {
+            System.out.println("No load baseline found, skipping the regression check");
+            return;
+        }
+        Properties baseline = new Properties();
+        try (InputStream in = new FileInputStream(path)) {
+            baseline.load(in);
+        }
+        double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "0.25"));
+        double maxP99Millis = Double.parseDouble(baseline.getProperty(P99_KEY)) * (1 + tolerance);
+        double minThroughput = Double.parseDouble(baseline.getProperty(THROUGHPUT_KEY)) * (1 - tolerance);
+
+        Assert.assertTrue(String.format("p99 latency %.2f ms regressed past %.2f ms", p99Millis, maxP99Millis), p99Millis <= maxP99Millis);
+        Assert.assertTrue(String.format("Throughput %.1f requests/s regressed below %.1f requests/s", throughput, minThroughput), throughput >= minThroughput);
+    }
+}
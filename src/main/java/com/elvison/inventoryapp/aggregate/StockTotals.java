@@ -0,0 +1,410 @@
+package com.elvison.inventoryapp.aggregate;
+
+import com.elvison.inventoryapp.ledger.StockLedger;
+import com.elvison.inventoryapp.model.rest.StockTotal;
+import com.elvison.inventoryapp.repository.ProductRepository;
+import com.elvison.inventoryapp.repository.StockRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Stock quantity totals per product, inventory, category and (inventory, category), kept in memory and moved by the
+// quantity deltas StockService records, so that reading a total never scans the stocks table. Deltas recorded inside
+// a transaction are applied once it commits. Cascading deletes and products moving to another category turn the
+// affected stock entries, read by product, inventory or category ID and locked until the transaction ends, into
+// deltas too. The periodic reconcile rebuilds the totals from the database and corrects any drift.
+@Component
+public class StockTotals {
+
+    private static final Logger LOGGER = LogManager.getLogger(StockTotals.class);
+
+    @Value("${app.stock.totals.reconcile-interval-ms:3600000}")
+    private long reconcileIntervalMs;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object reconcileLock = new Object();
+    private final Map<Integer, Integer> productCategories = new ConcurrentHashMap<>();
+    private volatile Totals totals = new Totals();
+    private Totals rebuilding;
+    private ScheduledExecutorService reconciler;
+
+    @PostConstruct
+    public void start() {
+        reconcile();
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-totals-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (reconcileIntervalMs > 0) {
+            reconciler.scheduleWithFixedDelay(this::reconcileQuietly, reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+            reconciler = null;
+        }
+    }
+
+    // the category is resolved here, inside the caller's transaction, so that applying the delta needs no database access
+    public void add(int productId, int inventoryId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        record(productId, inventoryId, categoryOf(productId), delta);
+    }
+
+    // for callers that resolved the category of the product in their transaction already
+    public void add(int productId, int inventoryId, int categoryId, long delta) {
+        record(productId, inventoryId, categoryId, delta);
+    }
+
+    // the stock of the product moves to the other category when the current transaction commits
+    public void moveProduct(int productId, int fromCategoryId, int toCategoryId) {
+        for (StockTotal entry : stockRepository.lockByProductId(productId)) {
+            long quantity = quantity(entry);
+            record(productId, entry.getInventoryId(), fromCategoryId, -quantity);
+            record(productId, entry.getInventoryId(), toCategoryId, quantity);
+        }
+        // resolved again from the database, where the move is committed by the time the locked entries change again
+        productCategories.remove(productId);
+        afterCompletion(() -> productCategories.remove(productId));
+    }
+
+    // the stock entries of the product, inventory or category are removed by their cascading foreign keys, so their
+    // quantities are taken off when the deleting transaction commits
+    public void removeProduct(int productId) {
+        remove(stockRepository.lockByProductId(productId), () -> {
+            productCategories.remove(productId);
+            forEachTotals(totals -> totals.products.remove(productId));
+        });
+    }
+
+    public void removeInventory(int inventoryId) {
+        remove(stockRepository.lockByInventoryId(inventoryId), () -> forEachTotals(totals -> {
+            totals.inventories.remove(inventoryId);
+            totals.inventoryCategories.keySet().removeIf(key -> inventoryId(key) == inventoryId);
+        }));
+    }
+
+    public void removeCategory(int categoryId) {
+        remove(stockRepository.lockByCategoryId(categoryId), () -> {
+            productCategories.values().removeIf(id -> id == categoryId);
+            forEachTotals(totals -> {
+                totals.categories.remove(categoryId);
+                totals.inventoryCategories.keySet().removeIf(key -> categoryId(key) == categoryId);
+            });
+        });
+    }
+
+    private void remove(List<StockTotal> entries, Runnable removeTotals) {
+        for (StockTotal entry : entries) {
+            record(entry.getProductId(), entry.getInventoryId(), entry.getCategoryId(), -quantity(entry));
+        }
+        // the emptied totals are dropped after the deltas, which are applied first
+        afterCommit(removeTotals);
+    }
+
+    private int categoryOf(int productId) {
+        Integer categoryId = productCategories.get(productId);
+        if (categoryId == null) {
+            categoryId = productRepository.findCategoryIdById(productId)
+                    .orElseThrow(() -> new IllegalArgumentException(String.format("Product of ID %d does not exist", productId)));
+            productCategories.put(productId, categoryId);
+        }
+        return categoryId;
+    }
+
+    // the totals follow the ledger, which may be ahead of the database
+    private long quantity(StockTotal entry) {
+        if (!stockLedger.isEnabled()) {
+            return entry.getQuantity();
+        }
+        return stockLedger.peekQuantity(entry.getProductId(), entry.getInventoryId()).orElse((int) entry.getQuantity());
+    }
+
+    private void record(int productId, int inventoryId, int categoryId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(productId, inventoryId, categoryId, delta);
+            return;
+        }
+        Deltas deltas = (Deltas) TransactionSynchronizationManager.getResource(this);
+        if (deltas == null) {
+            Deltas pending = new Deltas();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    pending.applyTo(StockTotals.this);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockTotals.this);
+                }
+            });
+            deltas = pending;
+        }
+        deltas.add(productId, inventoryId, categoryId, delta);
+    }
+
+    public long getTotal() {
+        return totals.inventories.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getProductTotal(int productId) {
+        return sum(totals.products.get(productId));
+    }
+
+    public long getInventoryTotal(int inventoryId) {
+        return sum(totals.inventories.get(inventoryId));
+    }
+
+    public long getCategoryTotal(int categoryId) {
+        return sum(totals.categories.get(categoryId));
+    }
+
+    public long getInventoryCategoryTotal(int inventoryId, int categoryId) {
+        return sum(totals.inventoryCategories.get(key(inventoryId, categoryId)));
+    }
+
+    // per category across all inventories, or within the given one, ordered by category ID
+    public List<StockTotal> getCategoryTotals(Integer inventoryId) {
+        Totals current = totals;
+        List<StockTotal> result = new ArrayList<>();
+        if (inventoryId == null) {
+            current.categories.forEach((categoryId, quantity) -> result.add(StockTotal.of(null, null, categoryId, quantity.sum())));
+        } else {
+            current.inventoryCategories.forEach((key, quantity) -> {
+                if (inventoryId(key) == inventoryId) {
+                    result.add(StockTotal.of(null, inventoryId, categoryId(key), quantity.sum()));
+                }
+            });
+        }
+        result.sort(Comparator.comparing(StockTotal::getCategoryId));
+        return result;
+    }
+
+    // rebuilds every total from the database and swaps it in; deltas applied while the queries run are applied to
+    // the new totals too, so only a change committed between the start of the rebuild and the query snapshot is
+    // counted twice, and the next reconcile corrects it. Runs at startup, periodically and on request only
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            long start = System.nanoTime();
+            Totals fresh = new Totals();
+            swapLock.writeLock().lock();
+            try {
+                rebuilding = fresh;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            boolean rebuilt = false;
+            try {
+                flushLedger();
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+                transactionTemplate.setReadOnly(true);
+                // both queries read the same snapshot
+                transactionTemplate.execute(status -> {
+                    productCategories.clear();
+                    for (StockTotal total : stockRepository.sumByProduct()) {
+                        productCategories.put(total.getProductId(), total.getCategoryId());
+                        counter(fresh.products, total.getProductId()).add(total.getQuantity());
+                    }
+                    for (StockTotal total : stockRepository.sumByInventoryAndCategory()) {
+                        counter(fresh.inventories, total.getInventoryId()).add(total.getQuantity());
+                        counter(fresh.categories, total.getCategoryId()).add(total.getQuantity());
+                        counter(fresh.inventoryCategories, key(total.getInventoryId(), total.getCategoryId())).add(total.getQuantity());
+                    }
+                    return null;
+                });
+                rebuilt = true;
+            } finally {
+                swapLock.writeLock().lock();
+                try {
+                    if (rebuilt) {
+                        totals = fresh;
+                    }
+                    rebuilding = null;
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+            }
+            LOGGER.info("Reconciled stock totals of {} products in {} ms", fresh.products.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private static void afterCommit(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
+    }
+
+    private static void afterCompletion(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                runnable.run();
+            }
+        });
+    }
+
+    // the ledger persists changes behind the requests, the database has to catch up before it is read
+    private void flushLedger() {
+        if (!stockLedger.isEnabled()) {
+            return;
+        }
+        try {
+            stockLedger.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot flush the stock ledger before reconciling stock totals", e);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to reconcile stock totals", e);
+        }
+    }
+
+    private void apply(int productId, int inventoryId, int categoryId, long delta) {
+        swapLock.readLock().lock();
+        try {
+            totals.add(productId, inventoryId, categoryId, delta);
+            if (rebuilding != null) {
+                rebuilding.add(productId, inventoryId, categoryId, delta);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void forEachTotals(Consumer<Totals> action) {
+        swapLock.readLock().lock();
+        try {
+            action.accept(totals);
+            if (rebuilding != null) {
+                action.accept(rebuilding);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static long sum(LongAdder quantity) {
+        return quantity == null ? 0 : quantity.sum();
+    }
+
+    private static <K> LongAdder counter(Map<K, LongAdder> counters, K key) {
+        // get first, computeIfAbsent locks the bin even when the key is present
+        LongAdder counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private static long key(int inventoryId, int categoryId) {
+        return ((long) inventoryId << 32) | (categoryId & 0xFFFFFFFFL);
+    }
+
+    private static int inventoryId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int categoryId(long key) {
+        return (int) key;
+    }
+
+    private static final class Totals {
+        private final Map<Integer, LongAdder> products = new ConcurrentHashMap<>();
+        private final Map<Integer, LongAdder> inventories = new ConcurrentHashMap<>();
+        private final Map<Integer, LongAdder> categories = new ConcurrentHashMap<>();
+        private final Map<Long, LongAdder> inventoryCategories = new ConcurrentHashMap<>();
+
+        private void add(int productId, int inventoryId, int categoryId, long delta) {
+            counter(products, productId).add(delta);
+            counter(inventories, inventoryId).add(delta);
+            counter(categories, categoryId).add(delta);
+            counter(inventoryCategories, key(inventoryId, categoryId)).add(delta);
+        }
+    }
+
+    // deltas of one transaction, as (product ID, inventory ID, category ID) and quantity columns
+    private static final class Deltas {
+        private int[] ids = new int[48];
+        private long[] quantities = new long[16];
+        private int size;
+
+        private void add(int productId, int inventoryId, int categoryId, long delta) {
+            if (size == quantities.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                quantities = Arrays.copyOf(quantities, quantities.length * 2);
+            }
+            ids[size * 3] = productId;
+            ids[size * 3 + 1] = inventoryId;
+            ids[size * 3 + 2] = categoryId;
+            quantities[size++] = delta;
+        }
+
+        private void applyTo(StockTotals stockTotals) {
+            for (int i = 0; i < size; i++) {
+                stockTotals.apply(ids[i * 3], ids[i * 3 + 1], ids[i * 3 + 2], quantities[i]);
+            }
+        }
+    }
+}
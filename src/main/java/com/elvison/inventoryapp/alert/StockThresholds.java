@@ -0,0 +1,108 @@
+package com.elvison.inventoryapp.alert;
+
+import com.elvison.inventoryapp.model.StockAlert;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.StockThreshold;
+import com.elvison.inventoryapp.repository.StockAlertRepository;
+import com.elvison.inventoryapp.repository.StockThresholdRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Low-stock thresholds, held in memory so that checking a quantity change takes a map lookup or two and no query.
+// Only the quantities before and after a change are compared; a change that crosses its threshold, in either
+// direction, is stored as an alert in the caller's transaction and published as an application event, so the cost
+// of alerting follows the number of changes rather than the number of stock entries.
+@Component
+public class StockThresholds {
+
+    private static final Logger LOGGER = LogManager.getLogger(StockThresholds.class);
+
+    // inventory ID of a threshold that applies to every inventory of the product, identity columns start at 1
+    private static final int EVERY_INVENTORY = 0;
+
+    @Autowired
+    private StockThresholdRepository thresholdRepository;
+
+    @Autowired
+    private StockAlertRepository alertRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // keyed by packed (product ID, inventory ID), see StockEntryId.key
+    private final Map<Long, Integer> thresholds = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        for (StockThreshold threshold : thresholdRepository.findAll()) {
+            thresholds.put(key(threshold.getProductId(), threshold.getInventoryId()), threshold.getThreshold());
+        }
+        LOGGER.info("Loaded {} stock thresholds", thresholds.size());
+    }
+
+    // takes effect once the current transaction commits
+    public void set(int productId, Integer inventoryId, int threshold) {
+        afterCommit(() -> thresholds.put(key(productId, inventoryId), threshold));
+    }
+
+    public void remove(int productId, Integer inventoryId) {
+        afterCommit(() -> thresholds.remove(key(productId, inventoryId)));
+    }
+
+    // previous is null for a stock entry being created; the threshold of the entry wins over the one of the product
+    public void check(int productId, int inventoryId, Integer previous, int quantity) {
+        if (thresholds.isEmpty()) {
+            return;
+        }
+        Integer threshold = thresholds.get(StockEntryId.key(productId, inventoryId));
+        if (threshold == null) {
+            threshold = thresholds.get(StockEntryId.key(productId, EVERY_INVENTORY));
+            if (threshold == null) {
+                return;
+            }
+        }
+
+        boolean wasLow = previous != null && previous <= threshold;
+        boolean isLow = quantity <= threshold;
+        if (wasLow == isLow) {
+            return;
+        }
+        StockAlert alert = StockAlert.of(productId, inventoryId, isLow ? StockAlert.Type.LOW : StockAlert.Type.RESTOCKED, threshold, previous, quantity);
+        alertRepository.save(alert);
+        eventPublisher.publishEvent(alert);
+    }
+
+    // stands in for a notification channel; other listeners subscribe to StockAlert events the same way
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlert(StockAlert alert) {
+        LOGGER.info("Stock of product {} in inventory {} is {}: quantity {}, threshold {}",
+                alert.getProductId(), alert.getInventoryId(), alert.getType(), alert.getQuantity(), alert.getThreshold());
+    }
+
+    private static long key(int productId, Integer inventoryId) {
+        return StockEntryId.key(productId, inventoryId == null ? EVERY_INVENTORY : inventoryId);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
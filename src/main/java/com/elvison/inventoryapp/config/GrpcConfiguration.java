@@ -0,0 +1,58 @@
+package com.elvison.inventoryapp.config;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// gRPC services on their own Netty server next to the REST API; the scanners hold their streams open for long, so
+// idle connections are kept alive by pings from either side
+@Configuration
+@ConditionalOnProperty(name = "app.grpc.enabled", havingValue = "true")
+public class GrpcConfiguration {
+    private static final String GRPC_POOL_NAME = "grpc";
+
+    // the service calls block on JDBC, so they run on a fixed number of threads instead of the unbounded default pool
+    // of gRPC; the queue is bounded in practice by the streams and the updates each reads ahead of its results
+    @Bean
+    public ThreadPoolTaskExecutor grpcThreadPool(@Value("${app.grpc.threads:16}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(GRPC_POOL_NAME + "-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean
+    public MeterBinder grpcThreadPoolMetrics(ThreadPoolTaskExecutor grpcThreadPool) {
+        return registry -> new ExecutorServiceMetrics(grpcThreadPool.getThreadPoolExecutor(), GRPC_POOL_NAME, Collections.emptyList()).bindTo(registry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public Server grpcServer(
+            List<BindableService> services,
+            ThreadPoolTaskExecutor grpcThreadPool,
+            @Value("${app.grpc.port:9090}") int port,
+            @Value("${app.grpc.keep-alive-seconds:60}") long keepAliveSeconds
+    ) {
+        NettyServerBuilder builder = NettyServerBuilder.forPort(port)
+                .executor(grpcThreadPool)
+                .keepAliveTime(keepAliveSeconds, TimeUnit.SECONDS)
+                .permitKeepAliveTime(keepAliveSeconds / 2, TimeUnit.SECONDS)
+                .permitKeepAliveWithoutCalls(true);
+        services.forEach(builder::addService);
+        return builder.build();
+    }
+}
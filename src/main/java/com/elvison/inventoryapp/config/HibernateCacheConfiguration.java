@@ -0,0 +1,110 @@
+package com.elvison.inventoryapp.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+// Regions of the Hibernate second-level cache (catalog entities by ID) and query cache (catalog name filters), kept
+// in process by Caffeine behind JCache. Every region is created here with its own bound and, apart from the update
+// timestamps, a time to live; Hibernate is configured to fail on a region that is not, rather than to create an
+// unbounded one. Hits, misses and puts of every region are published as cache_* metrics tagged with the region.
+@Configuration
+public class HibernateCacheConfiguration {
+    public static final String CATEGORIES = "entity.categories";
+    public static final String INVENTORIES = "entity.inventories";
+    public static final String PRODUCTS = "entity.products";
+    public static final String CATEGORY_QUERIES = "query.categories";
+    public static final String INVENTORY_QUERIES = "query.inventories";
+    public static final String PRODUCT_QUERIES = "query.products";
+
+    // hint of the repository queries whose results go to the given query region
+    public static final String CACHEABLE_HINT = "org.hibernate.cacheable";
+    public static final String CACHE_REGION_HINT = "org.hibernate.cacheRegion";
+
+    // the last write per table, checked by every cached query result; there are few tables and none may be evicted or
+    // expire, a missing timestamp lets every cached result of the table pass as current
+    private static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+    private static final long UPDATE_TIMESTAMPS_SIZE = 1000;
+    // only results of queries not naming their region
+    private static final String QUERY_RESULTS = "default-query-results-region";
+    private static final long QUERY_RESULTS_SIZE = 100;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${app.cache.hibernate.entity.categories.max-size:10000}") long categoriesSize,
+            @Value("${app.cache.hibernate.entity.inventories.max-size:10000}") long inventoriesSize,
+            @Value("${app.cache.hibernate.entity.products.max-size:100000}") long productsSize,
+            @Value("${app.cache.hibernate.query.categories.max-size:1000}") long categoryQueriesSize,
+            @Value("${app.cache.hibernate.query.inventories.max-size:1000}") long inventoryQueriesSize,
+            @Value("${app.cache.hibernate.query.products.max-size:1000}") long productQueriesSize,
+            @Value("${app.cache.hibernate.entity.ttl-ms:600000}") long entityTtlMs,
+            @Value("${app.cache.hibernate.query.ttl-ms:600000}") long queryTtlMs
+    ) {
+        Map<String, Long> regions = new LinkedHashMap<>();
+        regions.put(CATEGORIES, categoriesSize);
+        regions.put(INVENTORIES, inventoriesSize);
+        regions.put(PRODUCTS, productsSize);
+        regions.put(CATEGORY_QUERIES, categoryQueriesSize);
+        regions.put(INVENTORY_QUERIES, inventoryQueriesSize);
+        regions.put(PRODUCT_QUERIES, productQueriesSize);
+        regions.put(UPDATE_TIMESTAMPS, UPDATE_TIMESTAMPS_SIZE);
+        regions.put(QUERY_RESULTS, QUERY_RESULTS_SIZE);
+
+        // a provider and URI of its own: the cache managers of the provider registered with Caching are shared JVM-wide,
+        // and the statistics MBeans read by the metrics are named after the URI and the region
+        CachingProvider provider = new CaffeineCachingProvider();
+        URI uri = URI.create("hibernate-" + Integer.toHexString(System.identityHashCode(provider)));
+        CacheManager cacheManager = provider.getCacheManager(uri, provider.getDefaultClassLoader());
+        Map<String, Long> ttlsMs = new LinkedHashMap<>();
+        ttlsMs.put(CATEGORIES, entityTtlMs);
+        ttlsMs.put(INVENTORIES, entityTtlMs);
+        ttlsMs.put(PRODUCTS, entityTtlMs);
+        ttlsMs.put(CATEGORY_QUERIES, queryTtlMs);
+        ttlsMs.put(INVENTORY_QUERIES, queryTtlMs);
+        ttlsMs.put(PRODUCT_QUERIES, queryTtlMs);
+        ttlsMs.put(QUERY_RESULTS, queryTtlMs);
+
+        regions.forEach((region, maximumSize) -> {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+            Long ttlMs = ttlsMs.get(region);
+            if (ttlMs != null) {
+                configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+            }
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        });
+        return cacheManager;
+    }
+
+    // tagged with the cache manager and region like the Micrometer cache binders tag their meters
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> {
+            for (String region : hibernateCacheManager.getCacheNames()) {
+                Tags tags = Tags.of("cacheManager", "hibernateCacheManager", "name", region);
+                new JCacheMetrics(hibernateCacheManager.getCache(region), tags).bindTo(registry);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
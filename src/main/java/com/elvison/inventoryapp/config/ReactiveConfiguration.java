@@ -0,0 +1,63 @@
+package com.elvison.inventoryapp.config;
+
+import com.elvison.inventoryapp.rest.ReactiveReadHandler;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+import java.net.URI;
+
+// the servlet stack keeps the write side and the existing endpoints, the reactive read tier runs next to it on its
+// own Reactor Netty server and R2DBC connection pool, so a slow reader holds neither a Tomcat thread nor a JDBC connection
+@Configuration
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveConfiguration {
+
+    private static final String JDBC_POSTGRESQL_PREFIX = "jdbc:postgresql:";
+    private static final int DEFAULT_POSTGRESQL_PORT = 5432;
+
+    // the same database as the JDBC datasource, so that the two cannot drift apart per profile
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveConnectionFactory(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${app.reactive.r2dbc.pool-size:10}") int poolSize
+    ) {
+        if (!url.startsWith(JDBC_POSTGRESQL_PREFIX)) {
+            throw new IllegalStateException("The reactive read tier needs a PostgreSQL datasource, not " + url);
+        }
+        URI uri = URI.create(url.substring("jdbc:".length()));
+        ConnectionFactory connectionFactory = new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host(uri.getHost())
+                .port(uri.getPort() < 0 ? DEFAULT_POSTGRESQL_PORT : uri.getPort())
+                .database(uri.getPath().substring(1))
+                .username(username)
+                .password(password)
+                .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("reactive-read")
+                .initialSize(1)
+                .maxSize(poolSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(ConnectionFactory reactiveConnectionFactory) {
+        return DatabaseClient.create(reactiveConnectionFactory);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WebServer reactiveReadServer(ReactiveReadHandler handler, @Value("${app.reactive.port:8082}") int port) {
+        return new NettyReactiveWebServerFactory(port).getWebServer(handler.httpHandler());
+    }
+}
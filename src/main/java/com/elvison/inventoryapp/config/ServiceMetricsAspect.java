@@ -0,0 +1,72 @@
+package com.elvison.inventoryapp.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// times every public method of the *Service beans; being the outermost advice, the timer includes the transaction
+// commit and is also recorded for cache hits. The heap allocated by the calling thread during the call is recorded
+// next to it where the JVM can count it per thread.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+    public static final String TIMER_NAME = "app.service.method";
+    public static final String ALLOCATED_NAME = "app.service.method.allocated";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Around("execution(public * com.elvison.inventoryapp.service.*Service.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long allocatedBefore = allocatedBytes();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable t) {
+            exception = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            long allocatedAfter = allocatedBytes();
+            String service = joinPoint.getSignature().getDeclaringType().getSimpleName();
+            String method = joinPoint.getSignature().getName();
+            sample.stop(Timer.builder(TIMER_NAME)
+                    .tag("service", service)
+                    .tag("method", method)
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+            if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+                DistributionSummary.builder(ALLOCATED_NAME)
+                        .baseUnit("bytes")
+                        .tag("service", service)
+                        .tag("method", method)
+                        .tag("exception", exception)
+                        .register(meterRegistry)
+                        .record(allocatedAfter - allocatedBefore);
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
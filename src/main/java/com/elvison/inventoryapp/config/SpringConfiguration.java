@@ -1,17 +1,128 @@
 package com.elvison.inventoryapp.config;
 
+import com.elvison.inventoryapp.ledger.StockLedger;
+import com.elvison.inventoryapp.util.VirtualThreads;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Collections;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
 
 @Configuration
 @EnableAsync
 public class SpringConfiguration {
+    private static final String WORKER_POOL_NAME = "worker";
+    private static final String STREAMING_POOL_NAME = "streaming";
+    private static final String STOCK_STREAM_POOL_NAME = "stock-stream";
+
+    private final LongAdder rejectedWorkerTasks = new LongAdder();
+    private final LongAdder rejectedStreamingTasks = new LongAdder();
+    private final LongAdder rejectedStockStreamTasks = new LongAdder();
+
+    // short tasks of the asynchronous endpoints. Tasks beyond the queue capacity are rejected with a
+    // TaskRejectedException, which the API answers with 503
+    @Bean
+    public ThreadPoolTaskExecutor workerThreadPool(
+            @Value("${app.worker.core-size:16}") int coreSize,
+            @Value("${app.worker.max-size:32}") int maxSize,
+            @Value("${app.worker.queue-capacity:256}") int queueCapacity,
+            @Value("${app.virtual-threads.enabled:false}") boolean virtualThreads
+    ) {
+        return threadPool(WORKER_POOL_NAME, coreSize, maxSize, queueCapacity, virtualThreads, rejectedWorkerTasks);
+    }
+
+    // registered as the application task executor, so MVC streamed responses such as the stock export run here and
+    // not on the worker pool: each holds its thread and a connection for as long as the client reads, and a few large
+    // exports would otherwise leave the asynchronous endpoints answering 503
+    @Bean(name = {"streamingThreadPool", TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor streamingThreadPool(
+            @Value("${app.streaming.core-size:4}") int coreSize,
+            @Value("${app.streaming.max-size:4}") int maxSize,
+            @Value("${app.streaming.queue-capacity:64}") int queueCapacity,
+            @Value("${app.virtual-threads.enabled:false}") boolean virtualThreads
+    ) {
+        return threadPool(STREAMING_POOL_NAME, coreSize, maxSize, queueCapacity, virtualThreads, rejectedStreamingTasks);
+    }
+
+    // sends to stock stream subscribers, which block while a slow client reads; one thread per subscriber at most, so
+    // a drain never waits behind another subscriber's and never takes a thread from the asynchronous endpoints. Idle
+    // threads exit
+    @Bean
+    public ThreadPoolTaskExecutor stockStreamThreadPool(
+            @Value("${app.stock.stream.max-subscribers:256}") int maxSubscribers,
+            @Value("${app.virtual-threads.enabled:false}") boolean virtualThreads
+    ) {
+        ThreadPoolTaskExecutor executor = threadPool(STOCK_STREAM_POOL_NAME, maxSubscribers, maxSubscribers, 0, virtualThreads, rejectedStockStreamTasks);
+        executor.setAllowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Bean
-    public ExecutorService workerThreadPool() {
-        return Executors.newCachedThreadPool();
+    public MeterBinder threadPoolMetrics(ThreadPoolTaskExecutor workerThreadPool, ThreadPoolTaskExecutor streamingThreadPool,
+                                         ThreadPoolTaskExecutor stockStreamThreadPool) {
+        return registry -> {
+            bindMetrics(registry, workerThreadPool, WORKER_POOL_NAME, rejectedWorkerTasks);
+            bindMetrics(registry, streamingThreadPool, STREAMING_POOL_NAME, rejectedStreamingTasks);
+            bindMetrics(registry, stockStreamThreadPool, STOCK_STREAM_POOL_NAME, rejectedStockStreamTasks);
+        };
+    }
+
+    @Bean
+    public MeterBinder stockLedgerMetrics(StockLedger stockLedger) {
+        return registry -> {
+            FunctionCounter.builder("stock.ledger.log.failures", stockLedger, StockLedger::getFailedLogWrites)
+                    .description("The number of failed stock ledger log writes, each failing the changes of its batch")
+                    .register(registry);
+            Gauge.builder("stock.ledger.log.writable", stockLedger, l -> l.isLogWritable() ? 1 : 0)
+                    .description("Whether the latest stock ledger log write succeeded")
+                    .register(registry);
+        };
+    }
+
+    // down while the latest stock ledger log write failed, the changes of that write having been rejected
+    @Bean
+    public HealthIndicator stockLedgerHealthIndicator(StockLedger stockLedger) {
+        return () -> (stockLedger.isLogWritable() ? Health.up() : Health.down())
+                .withDetail("failedLogWrites", stockLedger.getFailedLogWrites())
+                .build();
+    }
+
+    private static ThreadPoolTaskExecutor threadPool(String name, int coreSize, int maxSize, int queueCapacity, boolean virtualThreads, LongAdder rejectedTasks) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        if (virtualThreads) {
+            // the pool sizes still bound the queued work, but a task blocked on JDBC no longer holds a platform thread
+            executor.setThreadFactory(VirtualThreads.newThreadFactory(name + "-"));
+        }
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejectedTasks.increment();
+            new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, pool);
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    private static void bindMetrics(MeterRegistry registry, ThreadPoolTaskExecutor executor, String name, LongAdder rejectedTasks) {
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Collections.emptyList()).bindTo(registry);
+        FunctionCounter.builder("executor.rejected", rejectedTasks, LongAdder::sum)
+                .tag("name", name)
+                .description("The number of tasks rejected because the queue was full")
+                .register(registry);
     }
 }
@@ -0,0 +1,23 @@
+package com.elvison.inventoryapp.config;
+
+import com.elvison.inventoryapp.util.VirtualThreads;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    // every request runs on its own virtual thread instead of the bounded Tomcat pool, server.tomcat.max-threads
+    // no longer applies and the Hikari pool becomes the limit on concurrent JDBC work. The executor holds no
+    // threads of its own, so it is left to Tomcat and not shut down
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+}
@@ -0,0 +1,40 @@
+package com.elvison.inventoryapp.config;
+
+import com.elvison.inventoryapp.etag.TableETagInterceptor;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private TableETagInterceptor tableETagInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(tableETagInterceptor).addPathPatterns("/v1/**");
+    }
+
+    // binary encodings of the same Jackson mapping, negotiated by Accept and Content-Type after JSON; they replace
+    // the default converters so that the spring.jackson settings apply to them too
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,70 @@
+package com.elvison.inventoryapp.etag;
+
+import com.elvison.inventoryapp.config.WebConfiguration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
+
+// The JSON, Smile and CBOR encodings of a response are different bytes, so each gets its own strong ETag: the tag of
+// the table versions with the encoding appended. The encoding a request negotiates is resolved from Accept the way
+// the message converters are ordered, JSON first.
+public final class RepresentationETags {
+
+    public static final String JSON = "json";
+    public static final String SMILE = "smile";
+    public static final String CBOR = "cbor";
+
+    private RepresentationETags() {
+    }
+
+    public static String of(String versionsETag, String encoding) {
+        return versionsETag.substring(0, versionsETag.length() - 1) + '-' + encoding + '"';
+    }
+
+    // null if the media type is none of the encodings
+    public static String encoding(MediaType mediaType) {
+        if (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType)) {
+            return JSON;
+        }
+        if (WebConfiguration.APPLICATION_SMILE.equalsTypeAndSubtype(mediaType)) {
+            return SMILE;
+        }
+        if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+            return CBOR;
+        }
+        return null;
+    }
+
+    // null if the request accepts none of the encodings
+    public static String negotiatedEncoding(HttpServletRequest request) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(Collections.list(request.getHeaders(HttpHeaders.ACCEPT)));
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        if (accepted.isEmpty()) {
+            return JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return JSON;
+            }
+            if (mediaType.includes(WebConfiguration.APPLICATION_SMILE)) {
+                return SMILE;
+            }
+            if (mediaType.includes(MediaType.APPLICATION_CBOR)) {
+                return CBOR;
+            }
+        }
+        return null;
+    }
+}
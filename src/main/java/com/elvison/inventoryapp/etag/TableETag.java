@@ -0,0 +1,14 @@
+package com.elvison.inventoryapp.etag;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// marks a GET handler whose response depends on the given tables only, it gets their ETag and is answered 304 as
+// long as they have not changed since the ETag the client sends in If-None-Match
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TableETag {
+    TableVersions.Table[] value();
+}
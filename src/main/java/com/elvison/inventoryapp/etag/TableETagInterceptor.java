@@ -0,0 +1,70 @@
+package com.elvison.inventoryapp.etag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Enumeration;
+
+// takes the ETag before the handler reads anything, so that it can only be older than the body, never newer,
+// and answers a matching If-None-Match with 304 without calling the handler. The tag is that of the encoding the
+// request negotiates, and the response varies by Accept
+@Component
+public class TableETagInterceptor implements HandlerInterceptor {
+
+    // the tag of the table versions, without the encoding
+    static final String ETAG_ATTRIBUTE = TableETagInterceptor.class.getName() + ".etag";
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the asynchronous endpoints are dispatched again with their result, the ETag of the first dispatch stands
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod)
+                || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        TableETag tableETag = ((HandlerMethod) handler).getMethodAnnotation(TableETag.class);
+        if (tableETag == null) {
+            return true;
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String encoding = RepresentationETags.negotiatedEncoding(request);
+        String versionsETag = tableVersions.getETag(tableETag.value());
+        if (encoding == null || versionsETag == null) {
+            return true;
+        }
+
+        String etag = RepresentationETags.of(versionsETag, encoding);
+        if (matches(request.getHeaders(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return false;
+        }
+        request.setAttribute(ETAG_ATTRIBUTE, versionsETag);
+        return true;
+    }
+
+    // If-None-Match uses the weak comparison, a W/ prefix is ignored
+    private static boolean matches(Enumeration<String> ifNoneMatch, String etag) {
+        while (ifNoneMatch.hasMoreElements()) {
+            for (String candidate : ifNoneMatch.nextElement().split(",")) {
+                candidate = candidate.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package com.elvison.inventoryapp.etag;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// adds the ETag taken by TableETagInterceptor to successful responses only, errors are not cacheable, tagged with
+// the encoding the converters selected
+@ControllerAdvice
+public class TableETagResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(TableETag.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest) || !(response instanceof ServletServerHttpResponse)) {
+            return body;
+        }
+        Object etag = ((ServletServerHttpRequest) request).getServletRequest().getAttribute(TableETagInterceptor.ETAG_ATTRIBUTE);
+        int status = ((ServletServerHttpResponse) response).getServletResponse().getStatus();
+        String encoding = RepresentationETags.encoding(selectedContentType);
+        if (etag != null && encoding != null && HttpStatus.valueOf(status).is2xxSuccessful()) {
+            response.getHeaders().setETag(RepresentationETags.of((String) etag, encoding));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,107 @@
+package com.elvison.inventoryapp.etag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Version counters of the catalog and stock tables, kept in the table_versions table and moved by the services
+// whenever they write, so that the ETag of a read endpoint costs one small query and agrees across instances. A
+// transaction moves the version of each table it writes right before it commits, in the same transaction, so the new
+// version becomes visible together with the change and a rolled back change leaves the version as it was. The version
+// of a table is the sum of its shards and a transaction moves one of them at random, so that writers of one table do
+// not all queue for the same row lock until they commit.
+@Component
+public class TableVersions {
+
+    public enum Table {
+        CATEGORIES,
+        INVENTORIES,
+        PRODUCTS,
+        STOCKS;
+
+        private final String rowName = name().toLowerCase(Locale.ROOT);
+    }
+
+    // rows exist for shards 0 to 15 of every table, see setup/sql/tables.sql
+    private static final int SHARDS = 16;
+
+    private static final String SELECT_SQL = "SELECT name, sum(version) FROM table_versions GROUP BY name";
+    private static final String INCREMENT_SQL = "UPDATE table_versions SET version = version + 1 WHERE name = ? AND shard = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // strong ETag over the current versions of the given tables
+    public String getETag(Table... tables) {
+        long[] versions = new long[Table.values().length];
+        jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+            for (Table table : tables) {
+                if (table.rowName.equals(rs.getString(1))) {
+                    versions[table.ordinal()] = rs.getLong(2);
+                }
+            }
+        });
+        StringBuilder etag = new StringBuilder("\"v");
+        for (Table table : tables) {
+            etag.append('-').append(versions[table.ordinal()]);
+        }
+        return etag.append('"').toString();
+    }
+
+    public void changed(Table... tables) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(EnumSet.copyOf(Arrays.asList(tables)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Table> changedTables = (Set<Table>) TransactionSynchronizationManager.getResource(this);
+        if (changedTables == null) {
+            Set<Table> pending = EnumSet.noneOf(Table.class);
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // the pending entity changes take their row locks first, so every writer locks the version rows
+                    // last and in table order, and two writers cannot deadlock on them
+                    entityManager.flush();
+                    increment(pending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TableVersions.this);
+                }
+            });
+            changedTables = pending;
+        }
+        Collections.addAll(changedTables, tables);
+    }
+
+    // the set iterates in table order
+    private void increment(Collection<Table> tables) {
+        int shard = ThreadLocalRandom.current().nextInt(SHARDS);
+        List<Object[]> rows = new ArrayList<>(tables.size());
+        for (Table table : tables) {
+            rows.add(new Object[]{table.rowName, shard});
+        }
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, rows);
+    }
+}
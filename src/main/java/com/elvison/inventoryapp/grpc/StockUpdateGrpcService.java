@@ -0,0 +1,151 @@
+package com.elvison.inventoryapp.grpc;
+
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.service.StockService;
+import com.elvison.inventoryapp.service.StockUpdatePipeline;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// stock updates of the scanners over one bidirectional stream per scanner, applied like PATCH /v1/stock and answered
+// one result per update. Reading is flow-controlled: at most app.grpc.stock.window updates of a stream are read and
+// not yet answered, and no more are read while the client is not taking its results.
+@Component
+@ConditionalOnProperty(name = "app.grpc.enabled", havingValue = "true")
+public class StockUpdateGrpcService extends StockUpdateServiceGrpc.StockUpdateServiceImplBase {
+
+    private static final Logger LOGGER = LogManager.getLogger(StockUpdateGrpcService.class);
+
+    @Value("${app.grpc.stock.window:64}")
+    private int window;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockUpdatePipeline stockUpdatePipeline;
+
+    @Autowired
+    private StockRequestValidationHelper validationHelper;
+
+    @Override
+    public StreamObserver<StockUpdate> updateStock(StreamObserver<StockUpdateResult> responseObserver) {
+        ServerCallStreamObserver<StockUpdateResult> call = (ServerCallStreamObserver<StockUpdateResult>) responseObserver;
+        call.disableAutoInboundFlowControl();
+        UpdateStream stream = new UpdateStream(call);
+        call.setOnReadyHandler(stream::onReady);
+        call.request(window);
+        return stream;
+    }
+
+    // the pipeline answers once its group commit is done, without holding the gRPC thread
+    private CompletableFuture<Void> apply(StockUpdate update) {
+        StockEntryRequest request = new StockEntryRequest();
+        // an unset int32 reads as 0 and IDs start at 1, so an ID that is not positive is missing and left null for the
+        // validation to reject rather than looked up and not found
+        request.setProductId(update.getProductId() > 0 ? update.getProductId() : null);
+        request.setInventoryId(update.getInventoryId() > 0 ? update.getInventoryId() : null);
+        // left null when absent, which the validation rejects like a missing quantity on PATCH /v1/stock
+        request.setQuantity(update.hasQuantity() ? update.getQuantity().getValue() : null);
+        try {
+            validationHelper.validate(request);
+            if (stockUpdatePipeline.isEnabled()) {
+                return stockUpdatePipeline.submit(request);
+            }
+            stockService.updateStockEntry(request);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static StockUpdateResult result(long sequence, Throwable error) {
+        StockUpdateResult.Builder result = StockUpdateResult.newBuilder().setSequence(sequence);
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            return result.setStatus(StockUpdateResult.Status.OK).build();
+        }
+        if (cause instanceof ResourceNotFoundException) {
+            return result.setStatus(StockUpdateResult.Status.NOT_FOUND).setMessage(cause.getMessage()).build();
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return result.setStatus(StockUpdateResult.Status.BAD_REQUEST).setMessage(cause.getMessage()).build();
+        }
+        LOGGER.error("Failed to update stock entry over gRPC", cause);
+        return result.setStatus(StockUpdateResult.Status.ERROR).setMessage("Internal server error").build();
+    }
+
+    // results may be sent from the pipeline thread, the call is only touched under the stream's lock
+    private class UpdateStream implements StreamObserver<StockUpdate> {
+        private final ServerCallStreamObserver<StockUpdateResult> call;
+        private int inFlight;
+        private int deferredRequests;
+        private boolean halfClosed;
+        private boolean closed;
+
+        private UpdateStream(ServerCallStreamObserver<StockUpdateResult> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void onNext(StockUpdate update) {
+            synchronized (this) {
+                inFlight++;
+            }
+            apply(update).whenComplete((ignored, error) -> answer(result(update.getSequence(), error)));
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            closed = true;
+            LOGGER.debug("Stock update stream closed by the client", t);
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            halfClosed = true;
+            completeIfDone();
+        }
+
+        private synchronized void answer(StockUpdateResult result) {
+            inFlight--;
+            if (closed || call.isCancelled()) {
+                return;
+            }
+            call.onNext(result);
+            // the next update is read only once the client takes results again
+            if (call.isReady()) {
+                call.request(1);
+            } else {
+                deferredRequests++;
+            }
+            completeIfDone();
+        }
+
+        private synchronized void onReady() {
+            if (deferredRequests > 0 && !closed) {
+                call.request(deferredRequests);
+                deferredRequests = 0;
+            }
+        }
+
+        private void completeIfDone() {
+            if (halfClosed && inFlight == 0 && !closed) {
+                closed = true;
+                call.onCompleted();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.elvison.inventoryapp.helper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+@Component
+public class AsyncExecutionHelper {
+
+    @Autowired
+    private ThreadPoolTaskExecutor workerThreadPool;
+
+    // failures complete the future with the original exception rather than a CompletionException, so the
+    // exception handler maps them the same way as on the synchronous endpoints
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) throws TaskRejectedException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        workerThreadPool.execute(() -> {
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    public CompletableFuture<Void> run(Runnable runnable) throws TaskRejectedException {
+        return supply(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.elvison.inventoryapp.helper;
+
+import org.codehaus.plexus.util.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class NameSearchHelper {
+
+    private static final String PREFIX_MODE = "prefix";
+    private static final String SUBSTRING_MODE = "substring";
+
+    @Value("${app.search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${app.search.max-limit:100}")
+    private int maxLimit;
+
+    // LIKE pattern body for the given query with its wildcards escaped; the repositories add the % around it
+    public String term(String query) {
+        if (StringUtils.isBlank(query)) {
+            throw new IllegalArgumentException("Search query is empty");
+        }
+        return query.trim()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    public boolean isSubstringMode(String mode) {
+        if (mode == null || PREFIX_MODE.equalsIgnoreCase(mode)) {
+            return false;
+        }
+        if (SUBSTRING_MODE.equalsIgnoreCase(mode)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Search mode is invalid");
+    }
+
+    public int limit(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Limit is invalid");
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,25 @@
+package com.elvison.inventoryapp.helper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PaginationHelper {
+
+    @Value("${app.pagination.default-limit:1000}")
+    private int defaultLimit;
+
+    @Value("${app.pagination.max-limit:10000}")
+    private int maxLimit;
+
+    public int limit(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Limit is invalid");
+        }
+        return limit;
+    }
+}
@@ -1,6 +1,8 @@
 package com.elvison.inventoryapp.helper;
 
+import com.elvison.inventoryapp.model.rest.StockAdjustmentRequest;
 import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.model.rest.StockThresholdRequest;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -19,4 +21,28 @@ public class StockRequestValidationHelper {
             throw new IllegalArgumentException("Quantity is invalid");
         }
     }
+
+    public void validateAdjustment(StockAdjustmentRequest request) {
+        if (request.getInventoryId() == null) {
+            throw new IllegalArgumentException("Inventory ID is invalid");
+        }
+
+        if (request.getProductId() == null) {
+            throw new IllegalArgumentException("Product ID is invalid");
+        }
+
+        if (request.getDelta() == null) {
+            throw new IllegalArgumentException("Delta is invalid");
+        }
+    }
+
+    public void validateThreshold(StockThresholdRequest request) {
+        if (request.getProductId() == null) {
+            throw new IllegalArgumentException("Product ID is invalid");
+        }
+
+        if (request.getThreshold() == null || request.getThreshold() < 0) {
+            throw new IllegalArgumentException("Threshold is invalid");
+        }
+    }
 }
@@ -0,0 +1,598 @@
+package com.elvison.inventoryapp.ledger;
+
+import com.elvison.inventoryapp.exception.InternalServerException;
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.repository.StockRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+// In-memory stock quantities for hot entries, keyed by (product ID, inventory ID) packed into a long.
+// Changes are applied under a per-stripe lock, logged to a write-ahead log before they are acknowledged and persisted
+// in batches by a background flusher; entries are loaded lazily from the database on first access. Entries of deleted products and
+// inventories are evicted once the delete commits, so that no change is acknowledged for a row that is gone. A change
+// made in a transaction that rolls back is compensated afterwards, logged like any other change.
+@Component
+public class StockLedger {
+
+    private static final Logger LOGGER = LogManager.getLogger(StockLedger.class);
+
+    @Value("${app.stock.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.stock.ledger.stripes:64}")
+    private int stripeCount;
+
+    @Value("${app.stock.ledger.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${app.stock.ledger.wal.directory:ledger}")
+    private String walDirectory;
+
+    @Value("${app.stock.ledger.wal.fsync:true}")
+    private boolean fsync;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Stripe[] stripes;
+    private StockLedgerWal wal;
+    private ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalStateException("Stock ledger stripe count must be a power of 2");
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        wal = new StockLedgerWal(Paths.get(walDirectory), fsync);
+        recover();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flush();
+        wal.close();
+        flusher = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // false while the latest log write failed; only the changes of a failed write are rejected
+    public boolean isLogWritable() {
+        return wal == null || wal.isWritable();
+    }
+
+    public long getFailedLogWrites() {
+        return wal == null ? 0 : wal.failedWrites();
+    }
+
+    public OptionalInt getQuantity(int productId, int inventoryId) {
+        long key = StockEntryId.key(productId, inventoryId);
+        OptionalInt quantity = peek(key);
+        return quantity.isPresent() ? quantity : load(key, productId, inventoryId);
+    }
+
+    // in-memory value only, never touches the database
+    public OptionalInt peekQuantity(int productId, int inventoryId) {
+        return peek(StockEntryId.key(productId, inventoryId));
+    }
+
+    // empty if the entry does not exist or the quantity would drop below zero
+    public OptionalInt adjustQuantity(int productId, int inventoryId, int delta) {
+        long key = StockEntryId.key(productId, inventoryId);
+        Stripe stripe = stripe(key);
+        while (true) {
+            int quantity;
+            long sequence = 0;
+            stripe.lock.lock();
+            try {
+                int slot = stripe.indexOf(key);
+                if (slot < 0) {
+                    quantity = -1;
+                } else {
+                    long adjusted = (long) stripe.values[slot] + delta;
+                    if (adjusted < 0) {
+                        return OptionalInt.empty();
+                    }
+                    if (adjusted > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("Quantity is invalid");
+                    }
+                    quantity = (int) adjusted;
+                    sequence = update(stripe, slot, quantity);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+
+            if (quantity >= 0) {
+                undoOnRollback(key, quantity - delta, quantity, true);
+                await(sequence);
+                return OptionalInt.of(quantity);
+            }
+            if (!load(key, productId, inventoryId).isPresent()) {
+                return OptionalInt.empty();
+            }
+        }
+    }
+
+    // false if the entry does not exist
+    public boolean setQuantity(int productId, int inventoryId, int quantity) {
+        return getAndSetQuantity(productId, inventoryId, quantity).isPresent();
+    }
+
+    // the quantity replaced, or empty if the entry does not exist
+    public OptionalInt getAndSetQuantity(int productId, int inventoryId, int quantity) {
+        long key = StockEntryId.key(productId, inventoryId);
+        Stripe stripe = stripe(key);
+        while (true) {
+            int previous;
+            long sequence = 0;
+            stripe.lock.lock();
+            try {
+                int slot = stripe.indexOf(key);
+                previous = slot < 0 ? -1 : stripe.values[slot];
+                if (slot >= 0) {
+                    sequence = update(stripe, slot, quantity);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+
+            if (previous >= 0) {
+                undoOnRollback(key, previous, quantity, false);
+                await(sequence);
+                return OptionalInt.of(previous);
+            }
+            if (!load(key, productId, inventoryId).isPresent()) {
+                return OptionalInt.empty();
+            }
+        }
+    }
+
+    // the stock entries of the products are removed by their cascading foreign key when the current transaction commits
+    public void evictProductsLater(Collection<Integer> productIds) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        Set<Integer> ids = new HashSet<>(productIds);
+        evictLater(key -> ids.contains(StockEntryId.productId(key)));
+    }
+
+    // the stock entries of the inventory are removed by its cascading foreign key when the current transaction commits
+    public void evictInventoryLater(int inventoryId) {
+        if (!enabled) {
+            return;
+        }
+        evictLater(key -> StockEntryId.inventoryId(key) == inventoryId);
+    }
+
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            long segment;
+            int count = 0;
+            long[] keys = new long[64];
+            int[] quantities = new int[64];
+
+            // all stripe locks are held only for the log rotation and the dirty snapshot, so every record in the
+            // older segments belongs to a change captured here
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+            }
+            try {
+                segment = wal.rotate();
+                for (Stripe stripe : stripes) {
+                    for (int i = 0; i < stripe.dirtyCount; i++) {
+                        int slot = stripe.indexOf(stripe.dirtyKeys[i]);
+                        if (slot >= 0 && stripe.states[slot] == Stripe.DIRTY) {
+                            if (count == keys.length) {
+                                keys = Arrays.copyOf(keys, count * 2);
+                                quantities = Arrays.copyOf(quantities, count * 2);
+                            }
+                            keys[count] = stripe.keys[slot];
+                            quantities[count++] = stripe.values[slot];
+                            stripe.states[slot] = Stripe.CLEAN;
+                        }
+                    }
+                    stripe.dirtyCount = 0;
+                }
+            } finally {
+                for (Stripe stripe : stripes) {
+                    stripe.lock.unlock();
+                }
+            }
+
+            if (count > 0) {
+                List<StockEntry> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    entries.add(StockEntry.of(StockEntryId.productId(keys[i]), StockEntryId.inventoryId(keys[i]), quantities[i]));
+                }
+                int[] updated;
+                try {
+                    updated = transactionTemplate.execute(status -> stockRepository.updateQuantities(entries));
+                } catch (RuntimeException e) {
+                    for (int i = 0; i < count; i++) {
+                        markDirty(keys[i]);
+                    }
+                    throw e;
+                }
+                for (int i = 0; i < count; i++) {
+                    if (updated[i] == 0) {
+                        // the row is gone while the entry was not evicted yet, i.e. the change raced the delete
+                        LOGGER.warn("Dropped stock ledger change of product ID {} and inventory ID {}, the stock entry no longer exists",
+                                StockEntryId.productId(keys[i]), StockEntryId.inventoryId(keys[i]));
+                        remove(keys[i]);
+                    }
+                }
+            }
+            wal.deleteSegmentsBefore(segment);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.error("Failed to flush stock ledger", e);
+        }
+    }
+
+    private void recover() throws IOException {
+        wal.replay((key, quantity) -> {
+            Stripe stripe = stripe(key);
+            int slot = stripe.indexOf(key);
+            if (slot < 0) {
+                slot = stripe.insert(key, quantity);
+            }
+            stripe.values[slot] = quantity;
+            stripe.markDirty(slot);
+        });
+        flush();
+    }
+
+    private OptionalInt peek(long key) {
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.indexOf(key);
+            return slot < 0 ? OptionalInt.empty() : OptionalInt.of(stripe.values[slot]);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private OptionalInt load(long key, int productId, int inventoryId) {
+        Stripe stripe = stripe(key);
+        while (true) {
+            // the database read happens outside the stripe lock; a concurrent load of the same key keeps the first
+            // value, and an eviction in between means the row read may be deleted by now, so it is read again
+            int evictions = stripe.evictions;
+            Integer loaded = stockRepository.findById(StockEntryId.of(productId, inventoryId))
+                    .map(StockEntry::getQuantity)
+                    .orElse(null);
+            if (loaded == null) {
+                return OptionalInt.empty();
+            }
+
+            stripe.lock.lock();
+            try {
+                int slot = stripe.indexOf(key);
+                if (slot >= 0) {
+                    return OptionalInt.of(stripe.values[slot]);
+                }
+                if (stripe.evictions == evictions) {
+                    stripe.insert(key, loaded);
+                    return OptionalInt.of(loaded);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void evictLater(LongPredicate keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                evict(keys);
+            }
+        });
+    }
+
+    // registered before the change is awaited, so that a failed log write rolls the change back too
+    private void undoOnRollback(long key, int previous, int quantity, boolean relative) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Undo> undos = (List<Undo>) TransactionSynchronizationManager.getResource(this);
+        if (undos == null) {
+            List<Undo> pending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockLedger.this);
+                    if (status != STATUS_COMMITTED) {
+                        undo(pending);
+                    }
+                }
+            });
+            undos = pending;
+        }
+        undos.add(new Undo(key, previous, quantity, relative));
+    }
+
+    // latest change first; an adjustment is reverted by its delta, since other changes may have been applied on top of
+    // it, while a replaced quantity is restored only if no later change replaced it in turn
+    private void undo(List<Undo> undos) {
+        for (int i = undos.size() - 1; i >= 0; i--) {
+            Undo undo = undos.get(i);
+            Stripe stripe = stripe(undo.key);
+            long sequence = 0;
+            stripe.lock.lock();
+            try {
+                int slot = stripe.indexOf(undo.key);
+                if (slot < 0) {
+                    continue;
+                }
+                int restored;
+                if (undo.relative) {
+                    long reverted = (long) stripe.values[slot] - undo.quantity + undo.previous;
+                    restored = (int) Math.max(0, Math.min(Integer.MAX_VALUE, reverted));
+                    if (restored != reverted) {
+                        LOGGER.warn("Clamped rolled back stock ledger change of product ID {} and inventory ID {} to {}",
+                                StockEntryId.productId(undo.key), StockEntryId.inventoryId(undo.key), restored);
+                    }
+                } else if (stripe.values[slot] == undo.quantity) {
+                    restored = undo.previous;
+                } else {
+                    continue;
+                }
+                sequence = update(stripe, slot, restored);
+            } finally {
+                stripe.lock.unlock();
+            }
+            try {
+                wal.await(sequence);
+            } catch (IOException e) {
+                LOGGER.error("Failed to log rolled back stock ledger change of product ID {} and inventory ID {}",
+                        StockEntryId.productId(undo.key), StockEntryId.inventoryId(undo.key), e);
+            }
+        }
+    }
+
+    // pending changes of the evicted entries are dropped with them, their rows are gone
+    private void evict(LongPredicate keys) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (int i = 0; i < stripe.keys.length; i++) {
+                    if ((stripe.states[i] == Stripe.CLEAN || stripe.states[i] == Stripe.DIRTY) && keys.test(stripe.keys[i])) {
+                        stripe.states[i] = Stripe.REMOVED;
+                    }
+                }
+                stripe.evictions++;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void markDirty(long key) {
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.indexOf(key);
+            if (slot >= 0) {
+                stripe.markDirty(slot);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void remove(long key) {
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.indexOf(key);
+            if (slot >= 0 && stripe.states[slot] == Stripe.CLEAN) {
+                stripe.states[slot] = Stripe.REMOVED;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // must hold the stripe lock; the change is appended to the log in stripe order and returns the sequence number
+    // to await outside the lock
+    private long update(Stripe stripe, int slot, int quantity) {
+        long sequence = wal.append(stripe.keys[slot], quantity);
+        stripe.values[slot] = quantity;
+        stripe.markDirty(slot);
+        return sequence;
+    }
+
+    // the change is acknowledged only once its log record is written, and forced to the device unless fsync is off
+    private void await(long sequence) {
+        try {
+            wal.await(sequence);
+        } catch (IOException e) {
+            throw new InternalServerException("Failed to write stock ledger log");
+        }
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) (mix(key) >>> 32) & (stripes.length - 1)];
+    }
+
+    private static long mix(long key) {
+        // murmur3 finalizer: stripes use the high half and slots the low half of the same hash
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Undo {
+        private final long key;
+        private final int previous;
+        private final int quantity;
+        private final boolean relative;
+
+        private Undo(long key, int previous, int quantity, boolean relative) {
+            this.key = key;
+            this.previous = previous;
+            this.quantity = quantity;
+            this.relative = relative;
+        }
+    }
+
+    // open-addressing long -> int map with linear probing, guarded by its lock; dirty keys are tracked in a list
+    // so that a flush costs O(changes) rather than O(entries)
+    private static final class Stripe {
+        private static final byte EMPTY = 0;
+        private static final byte CLEAN = 1;
+        private static final byte DIRTY = 2;
+        private static final byte REMOVED = 3;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] keys = new long[16];
+        private int[] values = new int[16];
+        private byte[] states = new byte[16];
+        private int used;
+        private long[] dirtyKeys = new long[16];
+        private int dirtyCount;
+        // written under the lock, read before a load without it
+        private volatile int evictions;
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) mix(key) & mask; states[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key && states[i] != REMOVED) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // the key must not be present; returns the slot of the new clean entry
+        private int insert(long key, int value) {
+            if ((used + 1) * 4 > keys.length * 3) {
+                rehash();
+            }
+            int slot = place(key);
+            if (states[slot] == EMPTY) {
+                used++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            states[slot] = CLEAN;
+            return slot;
+        }
+
+        private void markDirty(int slot) {
+            if (states[slot] == DIRTY) {
+                return;
+            }
+            states[slot] = DIRTY;
+            if (dirtyCount == dirtyKeys.length) {
+                dirtyKeys = Arrays.copyOf(dirtyKeys, dirtyCount * 2);
+            }
+            dirtyKeys[dirtyCount++] = keys[slot];
+        }
+
+        private int place(long key) {
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (states[i] == CLEAN || states[i] == DIRTY) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            byte[] oldStates = states;
+
+            int live = 0;
+            for (byte state : oldStates) {
+                if (state == CLEAN || state == DIRTY) {
+                    live++;
+                }
+            }
+            int capacity = oldKeys.length;
+            while ((live + 1) * 2 > capacity) {
+                capacity *= 2;
+            }
+
+            keys = new long[capacity];
+            values = new int[capacity];
+            states = new byte[capacity];
+            used = live;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStates[i] == CLEAN || oldStates[i] == DIRTY) {
+                    int slot = place(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    states[slot] = oldStates[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.elvison.inventoryapp.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// append-only log of (key, quantity) after-images, split into numbered segments; replaying a segment twice is harmless.
+// Appending only copies the record into a buffer; a change is acknowledged once await has seen its record written
+// (and forced to the device with fsync), and whoever awaits first writes every record buffered so far in one call,
+// so that concurrent changes from all stripes share the write and the fsync. A failed write fails only the records of
+// its batch, which may be lost, and the log goes on in a new segment.
+class StockLedgerWal implements Closeable {
+
+    interface RecordConsumer {
+        void accept(long key, int quantity);
+    }
+
+    private static final String SEGMENT_PREFIX = "stock-ledger-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int RECORD_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int INITIAL_RECORDS = 1024;
+
+    private final Path directory;
+    private final boolean fsync;
+    // guards the buffer being appended to and the count of appended records, held only to copy a record
+    private final Object appendLock = new Object();
+    private ByteBuffer appending = ByteBuffer.allocateDirect(INITIAL_RECORDS * RECORD_SIZE);
+    private long appended;
+    // guards the channel and the buffer being written
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private ByteBuffer writing = ByteBuffer.allocateDirect(INITIAL_RECORDS * RECORD_SIZE);
+    private volatile long written;
+    // sequence ranges of failed writes, last sequence to first; one entry per failure
+    private final ConcurrentSkipListMap<Long, Long> failedRanges = new ConcurrentSkipListMap<>();
+    private volatile boolean writable = true;
+    // null after a failed write until a new segment could be opened
+    private FileChannel channel;
+    private long segment;
+
+    StockLedgerWal(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        List<Long> existing = segments();
+        segment = existing.isEmpty() ? 0 : existing.get(existing.size() - 1) + 1;
+        channel = open(segment);
+    }
+
+    // returns the sequence number of the record, to be awaited before the change is acknowledged
+    long append(long key, int quantity) {
+        synchronized (appendLock) {
+            if (appending.remaining() < RECORD_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(appending.capacity() * 2);
+                appending.flip();
+                grown.put(appending);
+                appending = grown;
+            }
+            appending.putLong(key).putInt(quantity);
+            return ++appended;
+        }
+    }
+
+    // returns once the record of the given sequence number is written, writing the buffered records if no one else is
+    void await(long sequence) throws IOException {
+        while (written < sequence) {
+            writeLock.lock();
+            try {
+                if (written < sequence) {
+                    write();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        Map.Entry<Long, Long> failed = failedRanges.ceilingEntry(sequence);
+        if (failed != null && failed.getValue() <= sequence) {
+            throw new IOException("Failed to write stock ledger log record " + sequence);
+        }
+    }
+
+    // false while the latest write failed
+    boolean isWritable() {
+        return writable;
+    }
+
+    long failedWrites() {
+        return failedRanges.size();
+    }
+
+    // starts a new segment and returns its number; every older segment is covered once the current state is persisted.
+    // No record may be appended concurrently.
+    long rotate() throws IOException {
+        writeLock.lock();
+        try {
+            write();
+            channel.force(false);
+            channel.close();
+            channel = null;
+            channel = open(++segment);
+            return segment;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void replay(RecordConsumer consumer) throws IOException {
+        for (long number : segments()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path(number))))) {
+                while (true) {
+                    long key;
+                    int quantity;
+                    try {
+                        key = in.readLong();
+                        quantity = in.readInt();
+                    } catch (EOFException e) {
+                        // end of segment, or a torn record at the tail of the last one
+                        break;
+                    }
+                    consumer.accept(key, quantity);
+                }
+            }
+        }
+    }
+
+    void deleteSegmentsBefore(long number) throws IOException {
+        for (long existing : segments()) {
+            if (existing < number) {
+                Files.deleteIfExists(path(existing));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            write();
+            channel.force(false);
+            channel.close();
+            channel = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // must hold the write lock; swaps the buffers so that appending goes on while the batch is written
+    private void write() throws IOException {
+        ByteBuffer batch;
+        long sequence;
+        synchronized (appendLock) {
+            batch = appending;
+            appending = writing;
+            writing = batch;
+            sequence = appended;
+        }
+        batch.flip();
+        try {
+            if (channel == null) {
+                channel = open(++segment);
+            }
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // the batch may be partly written, so the segment ends with it and the next write opens a new one
+            if (sequence > written) {
+                failedRanges.put(sequence, written + 1);
+            }
+            writable = false;
+            closeQuietly();
+            written = sequence;
+            throw e;
+        } finally {
+            batch.clear();
+        }
+        writable = true;
+        written = sequence;
+    }
+
+    private void closeQuietly() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the segment is abandoned either way
+        }
+        channel = null;
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(path(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path path(long number) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
@@ -1,10 +1,14 @@
 package com.elvison.inventoryapp.model;
 
+import com.elvison.inventoryapp.config.HibernateCacheConfiguration;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfiguration.CATEGORIES)
 @Table(name = "categories")
 @Schema(description = "Category")
 public class Category {
@@ -18,6 +22,14 @@ public class Category {
     @Schema(description = "Category Name")
     private String name;
 
+    public Category() {
+    }
+
+    public Category(Integer id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -35,9 +47,6 @@ public class Category {
     }
 
     public static Category of(Integer id, String name) {
-        Category category = new Category();
-        category.setId(id);
-        category.setName(name);
-        return category;
+        return new Category(id, name);
     }
 }
@@ -1,10 +1,14 @@
 package com.elvison.inventoryapp.model;
 
+import com.elvison.inventoryapp.config.HibernateCacheConfiguration;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfiguration.INVENTORIES)
 @Table(name = "inventories")
 @Schema(description = "Inventory")
 public class Inventory {
@@ -19,6 +23,14 @@ public class Inventory {
     @Schema(description = "Inventory Name")
     private String name;
 
+    public Inventory() {
+    }
+
+    public Inventory(Integer id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -36,9 +48,6 @@ public class Inventory {
     }
 
     public static Inventory of(Integer id, String name) {
-        Inventory inventory = new Inventory();
-        inventory.setId(id);
-        inventory.setName(name);
-        return inventory;
+        return new Inventory(id, name);
     }
 }
@@ -1,11 +1,15 @@
 package com.elvison.inventoryapp.model;
 
+import com.elvison.inventoryapp.config.HibernateCacheConfiguration;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfiguration.PRODUCTS)
 @Table(name = "products")
 @Schema(description = "Product")
 public class Product {
@@ -22,10 +26,20 @@ public class Product {
     @Schema(description = "Product Name")
     private String name;
 
-    @OneToOne(fetch = FetchType.LAZY)
+    // read-only side of category_id, only loaded when fetched together with the product
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", referencedColumnName = "id", insertable = false, updatable = false)
     @JsonIgnore
-    private transient Category category;
+    private Category category;
+
+    public Product() {
+    }
+
+    public Product(Integer id, Integer categoryId, String name) {
+        this.id = id;
+        this.categoryId = categoryId;
+        this.name = name;
+    }
 
     public Integer getId() {
         return id;
@@ -56,10 +70,6 @@ public class Product {
     }
 
     public static Product of(Integer id, Integer categoryId, String name) {
-        Product product = new Product();
-        product.setId(id);
-        product.setCategoryId(categoryId);
-        product.setName(name);
-        return product;
+        return new Product(id, categoryId, name);
     }
 }
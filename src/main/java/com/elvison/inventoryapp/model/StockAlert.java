@@ -0,0 +1,134 @@
+package com.elvison.inventoryapp.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import javax.persistence.*;
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "stock_alerts")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Stock Alert")
+public class StockAlert {
+
+    public enum Type {
+        // the quantity fell to or below the threshold
+        LOW,
+        // the quantity rose above the threshold again
+        RESTOCKED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    @Schema(description = "Stock Alert ID")
+    private Long id;
+
+    @Column(name = "product_id")
+    @Schema(description = "Product ID")
+    private Integer productId;
+
+    @Column(name = "inventory_id")
+    @Schema(description = "Inventory ID")
+    private Integer inventoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type")
+    @Schema(description = "Direction of the threshold crossing")
+    private Type type;
+
+    @Column(name = "threshold")
+    @Schema(description = "Threshold crossed")
+    private Integer threshold;
+
+    @Column(name = "previous_quantity")
+    @Schema(description = "Quantity before the change, absent if the stock entry was created")
+    private Integer previousQuantity;
+
+    @Column(name = "quantity")
+    @Schema(description = "Quantity after the change")
+    private Integer quantity;
+
+    @Column(name = "created_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss ZZZ")
+    @Schema(description = "Timestamp of the change")
+    private ZonedDateTime createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Integer getInventoryId() {
+        return inventoryId;
+    }
+
+    public void setInventoryId(Integer inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Integer getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(Integer threshold) {
+        this.threshold = threshold;
+    }
+
+    public Integer getPreviousQuantity() {
+        return previousQuantity;
+    }
+
+    public void setPreviousQuantity(Integer previousQuantity) {
+        this.previousQuantity = previousQuantity;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public ZonedDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(ZonedDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public static StockAlert of(Integer productId, Integer inventoryId, Type type, Integer threshold, Integer previousQuantity, Integer quantity) {
+        StockAlert alert = new StockAlert();
+        alert.setProductId(productId);
+        alert.setInventoryId(inventoryId);
+        alert.setType(type);
+        alert.setThreshold(threshold);
+        alert.setPreviousQuantity(previousQuantity);
+        alert.setQuantity(quantity);
+        alert.setCreatedAt(ZonedDateTime.now());
+        return alert;
+    }
+}
@@ -1,6 +1,7 @@
 package com.elvison.inventoryapp.model;
 
-import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import javax.persistence.Column;
@@ -11,16 +12,19 @@ import javax.persistence.Table;
 @Entity
 @Table(name = "stocks")
 @Schema(description = "Stock Entry")
+@JsonPropertyOrder({"productId", "inventoryId", "quantity"})
 public class StockEntry {
 
+    // flattened by the getters below rather than with @JsonUnwrapped, whose unwrapping serializer is slower
     @EmbeddedId
-    @JsonUnwrapped
+    @JsonIgnore
     private StockEntryId id;
 
     @Column(name = "quantity")
     @Schema(required = true, description = "Quantity")
     private Integer quantity;
 
+    @JsonIgnore
     public StockEntryId getId() {
         return id;
     }
@@ -29,6 +33,16 @@ public class StockEntry {
         this.id = id;
     }
 
+    @Schema(required = true, description = "Product ID")
+    public Integer getProductId() {
+        return id == null ? null : id.getProductId();
+    }
+
+    @Schema(required = true, description = "Inventory ID")
+    public Integer getInventoryId() {
+        return id == null ? null : id.getInventoryId();
+    }
+
     public Integer getQuantity() {
         return quantity;
     }
@@ -41,16 +41,38 @@ public class StockEntryId implements Serializable {
         return id;
     }
 
+    public static StockEntryId ofKey(long key) {
+        return of(productId(key), inventoryId(key));
+    }
+
+    // packs both IDs into one long so that hot paths can key maps and arrays without allocating an ID object
+    public static long key(int productId, int inventoryId) {
+        return ((long) productId << 32) | (inventoryId & 0xFFFFFFFFL);
+    }
+
+    public static int productId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int inventoryId(long key) {
+        return (int) key;
+    }
+
+    public long toKey() {
+        return key(productId, inventoryId);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StockEntryId that = (StockEntryId) o;
-        return productId.equals(that.productId) && inventoryId.equals(that.inventoryId);
+        return Objects.equals(productId, that.productId) && Objects.equals(inventoryId, that.inventoryId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(productId, inventoryId);
+        // null-safe for an ID that is not filled in yet, without the varargs array of Objects.hash
+        return 31 * Objects.hashCode(productId) + Objects.hashCode(inventoryId);
     }
 }
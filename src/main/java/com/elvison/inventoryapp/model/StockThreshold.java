@@ -0,0 +1,71 @@
+package com.elvison.inventoryapp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "stock_thresholds")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Stock Threshold")
+public class StockThreshold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    @Schema(description = "Stock Threshold ID")
+    private Integer id;
+
+    @Column(name = "product_id")
+    @Schema(required = true, description = "Product ID")
+    private Integer productId;
+
+    @Column(name = "inventory_id")
+    @Schema(description = "Inventory ID, absent if the threshold applies to every inventory of the product")
+    private Integer inventoryId;
+
+    @Column(name = "threshold")
+    @Schema(required = true, description = "Quantity at or below which the stock is low")
+    private Integer threshold;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Integer getInventoryId() {
+        return inventoryId;
+    }
+
+    public void setInventoryId(Integer inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    public Integer getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(Integer threshold) {
+        this.threshold = threshold;
+    }
+
+    public static StockThreshold of(Integer productId, Integer inventoryId, Integer threshold) {
+        StockThreshold stockThreshold = new StockThreshold();
+        stockThreshold.setProductId(productId);
+        stockThreshold.setInventoryId(inventoryId);
+        stockThreshold.setThreshold(threshold);
+        return stockThreshold;
+    }
+}
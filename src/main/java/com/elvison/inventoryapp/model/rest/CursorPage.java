@@ -0,0 +1,40 @@
+package com.elvison.inventoryapp.model.rest;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    private CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    // only a full page can be followed by more rows; the next one starts after the key of its last item
+    public static <T> CursorPage<T> of(List<T> items, int limit, Function<T, Object> cursorOf) {
+        String nextCursor = items.size() < limit ? null : String.valueOf(cursorOf.apply(items.get(items.size() - 1)));
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (nextCursor != null) {
+            builder.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return builder.body(items);
+    }
+}
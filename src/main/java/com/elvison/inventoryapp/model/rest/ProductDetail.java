@@ -0,0 +1,43 @@
+package com.elvison.inventoryapp.model.rest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Product with its category")
+public class ProductDetail {
+
+    @Schema(description = "Product ID")
+    private final Integer id;
+
+    @Schema(description = "Product Name")
+    private final String name;
+
+    @Schema(description = "Category ID")
+    private final Integer categoryId;
+
+    @Schema(description = "Category Name")
+    private final String categoryName;
+
+    // constructed by the repository query straight from the joined rows
+    public ProductDetail(Integer id, String name, Integer categoryId, String categoryName) {
+        this.id = id;
+        this.name = name;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+}
@@ -0,0 +1,40 @@
+package com.elvison.inventoryapp.model.rest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Stock Adjustment Request Data")
+public class StockAdjustmentRequest {
+
+    @Schema(required = true, description = "Product ID")
+    private Integer productId;
+
+    @Schema(required = true, description = "Inventory ID")
+    private Integer inventoryId;
+
+    @Schema(required = true, description = "Signed quantity change")
+    private Integer delta;
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Integer getInventoryId() {
+        return inventoryId;
+    }
+
+    public void setInventoryId(Integer inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+}
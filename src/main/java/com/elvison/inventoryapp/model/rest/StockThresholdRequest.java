@@ -0,0 +1,40 @@
+package com.elvison.inventoryapp.model.rest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Stock Threshold Request Data")
+public class StockThresholdRequest {
+
+    @Schema(required = true, description = "Product ID")
+    private Integer productId;
+
+    @Schema(description = "Inventory ID, omit to apply the threshold to every inventory of the product")
+    private Integer inventoryId;
+
+    @Schema(required = true, description = "Quantity at or below which the stock is low")
+    private Integer threshold;
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Integer getInventoryId() {
+        return inventoryId;
+    }
+
+    public void setInventoryId(Integer inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    public Integer getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(Integer threshold) {
+        this.threshold = threshold;
+    }
+}
@@ -0,0 +1,46 @@
+package com.elvison.inventoryapp.model.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Stock Total")
+public class StockTotal {
+
+    @Schema(description = "Product ID, if the total is per product")
+    private Integer productId;
+
+    @Schema(description = "Inventory ID, if the total is per inventory")
+    private Integer inventoryId;
+
+    @Schema(description = "Category ID, if the total is per category")
+    private Integer categoryId;
+
+    @Schema(required = true, description = "Total quantity")
+    private long quantity;
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public Integer getInventoryId() {
+        return inventoryId;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public static StockTotal of(Integer productId, Integer inventoryId, Integer categoryId, long quantity) {
+        StockTotal total = new StockTotal();
+        total.productId = productId;
+        total.inventoryId = inventoryId;
+        total.categoryId = categoryId;
+        total.quantity = quantity;
+        return total;
+    }
+}
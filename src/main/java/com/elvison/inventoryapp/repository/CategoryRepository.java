@@ -1,12 +1,42 @@
 package com.elvison.inventoryapp.repository;
 
+import com.elvison.inventoryapp.config.HibernateCacheConfiguration;
 import com.elvison.inventoryapp.model.Category;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
-    boolean existsByName(String name);
+    // pages are built straight from the selected columns, the rows never enter the persistence context
+    @Query("select new com.elvison.inventoryapp.model.Category(c.id, c.name) from Category c " +
+            "where c.id > :after order by c.id")
+    List<Category> findByIdGreaterThanOrderByIdAsc(@Param("after") Integer after, Pageable pageable);
 
-    List<Category> findByNameLike(String nameFilter);
+    @QueryHints({
+            @QueryHint(name = HibernateCacheConfiguration.CACHEABLE_HINT, value = "true"),
+            @QueryHint(name = HibernateCacheConfiguration.CACHE_REGION_HINT, value = HibernateCacheConfiguration.CATEGORY_QUERIES)
+    })
+    @Query("select new com.elvison.inventoryapp.model.Category(c.id, c.name) from Category c " +
+            "where c.name like :nameFilter and c.id > :after order by c.id")
+    List<Category> findByNameLikeAndIdGreaterThanOrderByIdAsc(@Param("nameFilter") String nameFilter, @Param("after") Integer after, Pageable pageable);
+
+    @Query(value = "SELECT * FROM categories WHERE lower(name) LIKE lower(:term) || '%' " +
+            "ORDER BY lower(name), id LIMIT :limit", nativeQuery = true)
+    List<Category> searchByNamePrefix(@Param("term") String term, @Param("limit") int limit);
+
+    // prefix matches rank first, then shorter names
+    @Query(value = "SELECT * FROM categories WHERE lower(name) LIKE '%' || lower(:term) || '%' " +
+            "ORDER BY lower(name) NOT LIKE lower(:term) || '%', length(name), id LIMIT :limit", nativeQuery = true)
+    List<Category> searchByNameSubstring(@Param("term") String term, @Param("limit") int limit);
+
+    // looked up in the second-level cache, the inherited one always counts in the database
+    @Override
+    default boolean existsById(Integer id) {
+        return findById(id).isPresent();
+    }
 }
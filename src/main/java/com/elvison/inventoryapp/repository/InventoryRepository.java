@@ -1,12 +1,47 @@
 package com.elvison.inventoryapp.repository;
 
+import com.elvison.inventoryapp.config.HibernateCacheConfiguration;
 import com.elvison.inventoryapp.model.Inventory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
-    boolean existsByName(String name);
+    // unmanaged instances straight from the selected columns, a page adds nothing to the persistence context
+    @Query("select new com.elvison.inventoryapp.model.Inventory(i.id, i.name) from Inventory i " +
+            "where i.id > :after order by i.id")
+    List<Inventory> findByIdGreaterThanOrderByIdAsc(@Param("after") Integer after, Pageable pageable);
 
-    List<Inventory> findByNameLike(String nameFilter);
+    @QueryHints({
+            @QueryHint(name = HibernateCacheConfiguration.CACHEABLE_HINT, value = "true"),
+            @QueryHint(name = HibernateCacheConfiguration.CACHE_REGION_HINT, value = HibernateCacheConfiguration.INVENTORY_QUERIES)
+    })
+    @Query("select new com.elvison.inventoryapp.model.Inventory(i.id, i.name) from Inventory i " +
+            "where i.name like :nameFilter and i.id > :after order by i.id")
+    List<Inventory> findByNameLikeAndIdGreaterThanOrderByIdAsc(@Param("nameFilter") String nameFilter, @Param("after") Integer after, Pageable pageable);
+
+    @Query(value = "SELECT * FROM inventories WHERE lower(name) LIKE lower(:term) || '%' " +
+            "ORDER BY lower(name), id LIMIT :limit", nativeQuery = true)
+    List<Inventory> searchByNamePrefix(@Param("term") String term, @Param("limit") int limit);
+
+    // prefix matches rank first, then shorter names
+    @Query(value = "SELECT * FROM inventories WHERE lower(name) LIKE '%' || lower(:term) || '%' " +
+            "ORDER BY lower(name) NOT LIKE lower(:term) || '%', length(name), id LIMIT :limit", nativeQuery = true)
+    List<Inventory> searchByNameSubstring(@Param("term") String term, @Param("limit") int limit);
+
+    @Query("select i.id from Inventory i where i.id in :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    // served by the entity region of the second-level cache rather than by a count query
+    @Override
+    default boolean existsById(Integer id) {
+        return findById(id).isPresent();
+    }
 }
@@ -1,12 +1,83 @@
 package com.elvison.inventoryapp.repository;
 
+import com.elvison.inventoryapp.config.HibernateCacheConfiguration;
 import com.elvison.inventoryapp.model.Product;
+import com.elvison.inventoryapp.model.rest.ProductDetail;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Integer> {
-    boolean existsByName(String name);
+    // constructor projections, so that large pages are neither tracked nor snapshotted by the persistence context
+    @Query("select new com.elvison.inventoryapp.model.Product(p.id, p.categoryId, p.name) from Product p " +
+            "where p.id > :after order by p.id")
+    List<Product> findByIdGreaterThanOrderByIdAsc(@Param("after") Integer after, Pageable pageable);
 
-    List<Product> findByNameLike(String nameFilter);
+    @QueryHints({
+            @QueryHint(name = HibernateCacheConfiguration.CACHEABLE_HINT, value = "true"),
+            @QueryHint(name = HibernateCacheConfiguration.CACHE_REGION_HINT, value = HibernateCacheConfiguration.PRODUCT_QUERIES)
+    })
+    @Query("select new com.elvison.inventoryapp.model.Product(p.id, p.categoryId, p.name) from Product p " +
+            "where p.name like :nameFilter and p.id > :after order by p.id")
+    List<Product> findByNameLikeAndIdGreaterThanOrderByIdAsc(@Param("nameFilter") String nameFilter, @Param("after") Integer after, Pageable pageable);
+
+    @Query(value = "SELECT * FROM products WHERE lower(name) LIKE lower(:term) || '%' " +
+            "ORDER BY lower(name), id LIMIT :limit", nativeQuery = true)
+    List<Product> searchByNamePrefix(@Param("term") String term, @Param("limit") int limit);
+
+    // prefix matches rank first, then shorter names
+    @Query(value = "SELECT * FROM products WHERE lower(name) LIKE '%' || lower(:term) || '%' " +
+            "ORDER BY lower(name) NOT LIKE lower(:term) || '%', length(name), id LIMIT :limit", nativeQuery = true)
+    List<Product> searchByNameSubstring(@Param("term") String term, @Param("limit") int limit);
+
+    @Query("select p.id, p.categoryId from Product p where p.id in :ids")
+    List<Object[]> findIdAndCategoryIdByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // category IDs by product ID, of the products that exist
+    default Map<Integer, Integer> findCategoryIdsByIds(Collection<Integer> ids) {
+        Map<Integer, Integer> categoryIds = new HashMap<>();
+        for (Object[] row : findIdAndCategoryIdByIdIn(ids)) {
+            categoryIds.put((Integer) row[0], (Integer) row[1]);
+        }
+        return categoryIds;
+    }
+
+    @Query("select p from Product p join fetch p.category where p.id = :id")
+    Optional<Product> findWithCategoryById(@Param("id") int id);
+
+    @Query("select new com.elvison.inventoryapp.model.rest.ProductDetail(p.id, p.name, c.id, c.name) " +
+            "from Product p join p.category c where p.id > :after order by p.id")
+    List<ProductDetail> findDetails(@Param("after") int after, Pageable pageable);
+
+    @Query("select new com.elvison.inventoryapp.model.rest.ProductDetail(p.id, p.name, c.id, c.name) " +
+            "from Product p join p.category c where p.categoryId = :categoryId and p.id > :after order by p.id")
+    List<ProductDetail> findDetailsByCategoryId(@Param("categoryId") int categoryId, @Param("after") int after, Pageable pageable);
+
+    @Query("select p.id from Product p where p.categoryId = :categoryId")
+    List<Integer> findIdsByCategoryId(@Param("categoryId") int categoryId);
+
+    // a bulk delete through Hibernate invalidates the cached products and product queries, which the cascading
+    // foreign key of the category would not
+    @Modifying
+    @Query("delete from Product p where p.categoryId = :categoryId")
+    int deleteByCategoryId(@Param("categoryId") int categoryId);
+
+    @Query("select p.categoryId from Product p where p.id = :id")
+    Optional<Integer> findCategoryIdById(@Param("id") int id);
+
+    // stock entry and threshold writes check their product here, mostly without a query
+    @Override
+    default boolean existsById(Integer id) {
+        return findById(id).isPresent();
+    }
 }
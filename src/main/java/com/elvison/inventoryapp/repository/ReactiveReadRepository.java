@@ -0,0 +1,122 @@
+package com.elvison.inventoryapp.repository;
+
+import com.elvison.inventoryapp.model.Category;
+import com.elvison.inventoryapp.model.Inventory;
+import com.elvison.inventoryapp.model.Product;
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+// read-only queries over the reactive PostgreSQL driver for the reactive read tier, writes stay on JPA and JDBC.
+// Rows are emitted as the driver decodes them, so a slow subscriber slows down the fetch instead of buffering
+@Repository
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveReadRepository {
+
+    private static final String SELECT_STOCK_SQL = "SELECT product_id, inventory_id, quantity FROM stocks WHERE TRUE";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<StockEntry> findStockEntries(Integer productId, Integer inventoryId, Long after, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_STOCK_SQL);
+        if (productId != null) {
+            sql.append(" AND product_id = :productId");
+        }
+        if (inventoryId != null) {
+            sql.append(" AND inventory_id = :inventoryId");
+        }
+        if (after != null) {
+            sql.append(" AND (product_id, inventory_id) > (:afterProductId, :afterInventoryId)");
+        }
+        sql.append(" ORDER BY product_id, inventory_id LIMIT :limit");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.execute(sql.toString());
+        if (productId != null) {
+            spec = spec.bind("productId", productId);
+        }
+        if (inventoryId != null) {
+            spec = spec.bind("inventoryId", inventoryId);
+        }
+        if (after != null) {
+            spec = spec
+                    .bind("afterProductId", StockEntryId.productId(after))
+                    .bind("afterInventoryId", StockEntryId.inventoryId(after));
+        }
+        return spec
+                .bind("limit", limit)
+                .map((row, metadata) -> StockEntry.of(
+                        row.get("product_id", Integer.class),
+                        row.get("inventory_id", Integer.class),
+                        row.get("quantity", Integer.class)))
+                .all();
+    }
+
+    public Flux<Category> findCategories(String nameFilter, Integer after, int limit) {
+        return findAll("SELECT id, name FROM categories", nameFilter, after, limit, ReactiveReadRepository::category);
+    }
+
+    public Mono<Category> findCategory(int categoryId) {
+        return findById("SELECT id, name FROM categories WHERE id = :id", categoryId, ReactiveReadRepository::category);
+    }
+
+    public Flux<Inventory> findInventories(String nameFilter, Integer after, int limit) {
+        return findAll("SELECT id, name FROM inventories", nameFilter, after, limit, ReactiveReadRepository::inventory);
+    }
+
+    public Mono<Inventory> findInventory(int inventoryId) {
+        return findById("SELECT id, name FROM inventories WHERE id = :id", inventoryId, ReactiveReadRepository::inventory);
+    }
+
+    public Flux<Product> findProducts(String nameFilter, Integer after, int limit) {
+        return findAll("SELECT id, category_id, name FROM products", nameFilter, after, limit, ReactiveReadRepository::product);
+    }
+
+    public Mono<Product> findProduct(int productId) {
+        return findById("SELECT id, category_id, name FROM products WHERE id = :id", productId, ReactiveReadRepository::product);
+    }
+
+    // same filter and order as the blocking list endpoints: a LIKE pattern on the name and ascending IDs after the cursor
+    private <T> Flux<T> findAll(String select, String nameFilter, Integer after, int limit, Function<Row, T> mapper) {
+        boolean filtered = nameFilter != null && !nameFilter.isEmpty();
+        StringBuilder sql = new StringBuilder(select).append(" WHERE id > :after");
+        if (filtered) {
+            sql.append(" AND name LIKE :name");
+        }
+        sql.append(" ORDER BY id LIMIT :limit");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.execute(sql.toString())
+                .bind("after", after == null ? 0 : after);
+        if (filtered) {
+            spec = spec.bind("name", nameFilter);
+        }
+        return spec.bind("limit", limit).map((row, metadata) -> mapper.apply(row)).all();
+    }
+
+    private <T> Mono<T> findById(String sql, int id, Function<Row, T> mapper) {
+        return databaseClient.execute(sql)
+                .bind("id", id)
+                .map((row, metadata) -> mapper.apply(row))
+                .one();
+    }
+
+    private static Category category(Row row) {
+        return Category.of(row.get("id", Integer.class), row.get("name", String.class));
+    }
+
+    private static Inventory inventory(Row row) {
+        return Inventory.of(row.get("id", Integer.class), row.get("name", String.class));
+    }
+
+    private static Product product(Row row) {
+        return Product.of(row.get("id", Integer.class), row.get("category_id", Integer.class), row.get("name", String.class));
+    }
+}
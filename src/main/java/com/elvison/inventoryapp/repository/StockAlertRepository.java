@@ -0,0 +1,13 @@
+package com.elvison.inventoryapp.repository;
+
+import com.elvison.inventoryapp.model.StockAlert;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface StockAlertRepository extends JpaRepository<StockAlert, Long> {
+    List<StockAlert> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    List<StockAlert> findByProductIdAndIdGreaterThanOrderByIdAsc(Integer productId, Long after, Pageable pageable);
+}
@@ -3,11 +3,15 @@ package com.elvison.inventoryapp.repository;
 import com.elvison.inventoryapp.model.StockEntry;
 import com.elvison.inventoryapp.model.StockEntryId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.List;
+import javax.persistence.LockModeType;
+import java.util.Optional;
 
-public interface StockRepository extends JpaRepository<StockEntry, StockEntryId> {
-    List<StockEntry> findByIdProductId(Integer id);
-
-    List<StockEntry> findByIdInventoryId(Integer id);
+public interface StockRepository extends JpaRepository<StockEntry, StockEntryId>, StockRepositoryCustom {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StockEntry s where s.id = :id")
+    Optional<StockEntry> findByIdForUpdate(@Param("id") StockEntryId id);
 }
@@ -0,0 +1,44 @@
+package com.elvison.inventoryapp.repository;
+
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.rest.StockTotal;
+import com.elvison.inventoryapp.util.LongIntHashMap;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface StockRepositoryCustom {
+    // keys are packed stock entry IDs, see StockEntryId.key
+    long[] findExistingKeys(long[] keys);
+
+    // keyset page ordered by (product ID, inventory ID), starting after the given packed key if any
+    List<StockEntry> findPage(Integer productId, Integer inventoryId, Long after, int limit);
+
+    // streams matching entries from a server-side cursor; must run inside a transaction
+    void forEach(Integer productId, Integer inventoryId, int fetchSize, Consumer<StockEntry> consumer);
+
+    void insertAll(List<StockEntry> entries);
+
+    int[] updateQuantities(List<StockEntry> entries);
+
+    // locks the existing entries among the packed keys until the end of the transaction and returns their quantities
+    LongIntHashMap lockQuantities(long[] keys);
+
+    // totals with product and category IDs set
+    List<StockTotal> sumByProduct();
+
+    // totals with inventory and category IDs set
+    List<StockTotal> sumByInventoryAndCategory();
+
+    // locks the entries of the product, inventory or category until the end of the transaction; totals with product,
+    // inventory and category IDs set and the quantity of the entry
+    List<StockTotal> lockByProductId(int productId);
+
+    List<StockTotal> lockByInventoryId(int inventoryId);
+
+    List<StockTotal> lockByCategoryId(int categoryId);
+
+    // empty if the entry does not exist or the quantity would drop below zero or overflow
+    Optional<Integer> adjustQuantity(Integer productId, Integer inventoryId, int delta);
+}
@@ -0,0 +1,195 @@
+package com.elvison.inventoryapp.repository;
+
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.rest.StockTotal;
+import com.elvison.inventoryapp.util.LongIntHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// plain JDBC for the bulk paths so that large batches skip the persistence context and go out as JDBC batches
+public class StockRepositoryImpl implements StockRepositoryCustom {
+
+    private static final String SELECT_EXISTING_IDS_SQL = "SELECT s.product_id, s.inventory_id FROM stocks s " +
+            "JOIN unnest(?, ?) AS k(product_id, inventory_id) ON s.product_id = k.product_id AND s.inventory_id = k.inventory_id";
+    // rows are locked in key order, so that concurrent bulk updates cannot deadlock on each other
+    private static final String LOCK_QUANTITIES_SQL = "SELECT s.product_id, s.inventory_id, s.quantity FROM stocks s " +
+            "JOIN unnest(?, ?) AS k(product_id, inventory_id) ON s.product_id = k.product_id AND s.inventory_id = k.inventory_id " +
+            "ORDER BY s.product_id, s.inventory_id FOR UPDATE OF s";
+    private static final String SUM_BY_PRODUCT_SQL = "SELECT s.product_id, p.category_id, sum(s.quantity) FROM stocks s " +
+            "JOIN products p ON p.id = s.product_id GROUP BY s.product_id, p.category_id";
+    private static final String SUM_BY_INVENTORY_AND_CATEGORY_SQL = "SELECT s.inventory_id, p.category_id, sum(s.quantity) FROM stocks s " +
+            "JOIN products p ON p.id = s.product_id GROUP BY s.inventory_id, p.category_id";
+    // entries of one product, inventory or category with the category of their product, locked in key order
+    private static final String LOCK_ENTRIES_SQL = "SELECT s.product_id, s.inventory_id, p.category_id, s.quantity FROM stocks s " +
+            "JOIN products p ON p.id = s.product_id WHERE %s = ? ORDER BY s.product_id, s.inventory_id FOR UPDATE OF s";
+    private static final RowMapper<StockTotal> ENTRY_TOTAL_MAPPER = (rs, rowNum) -> StockTotal.of(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getLong(4));
+    private static final String SELECT_SQL = "SELECT product_id, inventory_id, quantity FROM stocks WHERE TRUE";
+    private static final RowMapper<StockEntry> STOCK_ENTRY_MAPPER = (rs, rowNum) -> StockEntry.of(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+    private static final String INSERT_SQL = "INSERT INTO stocks (product_id, inventory_id, quantity) VALUES (?, ?, ?)";
+    private static final String UPDATE_QUANTITY_SQL = "UPDATE stocks SET quantity = ? WHERE product_id = ? AND inventory_id = ?";
+    // the bound is checked in bigint, so that an overflowing delta misses the row instead of failing the statement
+    private static final String ADJUST_QUANTITY_SQL = "UPDATE stocks SET quantity = quantity + ? " +
+            "WHERE product_id = ? AND inventory_id = ? AND CAST(quantity AS BIGINT) + ? BETWEEN 0 AND 2147483647 RETURNING quantity";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long[] findExistingKeys(long[] keys) {
+        return jdbcTemplate.query(
+                SELECT_EXISTING_IDS_SQL,
+                ps -> setKeyArrays(ps, keys),
+                (rs, rowNum) -> StockEntryId.key(rs.getInt(1), rs.getInt(2))
+        ).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public List<StockEntry> findPage(Integer productId, Integer inventoryId, Long after, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        appendFilters(sql, args, productId, inventoryId);
+        if (after != null) {
+            // row comparison, so that the primary key index serves both the seek and the order
+            sql.append(" AND (product_id, inventory_id) > (?, ?)");
+            args.add(StockEntryId.productId(after));
+            args.add(StockEntryId.inventoryId(after));
+        }
+        sql.append(" ORDER BY product_id, inventory_id LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), STOCK_ENTRY_MAPPER, args.toArray());
+    }
+
+    @Override
+    public void forEach(Integer productId, Integer inventoryId, int fetchSize, Consumer<StockEntry> consumer) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        appendFilters(sql, args, productId, inventoryId);
+        sql.append(" ORDER BY product_id, inventory_id");
+
+        // with a fetch size and auto-commit off the driver reads through a cursor instead of buffering every row
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql.toString());
+                    ps.setFetchSize(fetchSize);
+                    for (int i = 0; i < args.size(); i++) {
+                        ps.setObject(i + 1, args.get(i));
+                    }
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(STOCK_ENTRY_MAPPER.mapRow(rs, 0))
+        );
+    }
+
+    @Override
+    public void insertAll(List<StockEntry> entries) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StockEntry entry = entries.get(i);
+                ps.setInt(1, entry.getId().getProductId());
+                ps.setInt(2, entry.getId().getInventoryId());
+                ps.setInt(3, entry.getQuantity());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    @Override
+    public int[] updateQuantities(List<StockEntry> entries) {
+        return jdbcTemplate.batchUpdate(UPDATE_QUANTITY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StockEntry entry = entries.get(i);
+                ps.setInt(1, entry.getQuantity());
+                ps.setInt(2, entry.getId().getProductId());
+                ps.setInt(3, entry.getId().getInventoryId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    @Override
+    public LongIntHashMap lockQuantities(long[] keys) {
+        LongIntHashMap quantities = new LongIntHashMap(keys.length);
+        jdbcTemplate.query(
+                LOCK_QUANTITIES_SQL,
+                ps -> setKeyArrays(ps, keys),
+                (RowCallbackHandler) rs -> quantities.putIfAbsent(StockEntryId.key(rs.getInt(1), rs.getInt(2)), rs.getInt(3))
+        );
+        return quantities;
+    }
+
+    @Override
+    public List<StockTotal> sumByProduct() {
+        return jdbcTemplate.query(SUM_BY_PRODUCT_SQL, (rs, rowNum) -> StockTotal.of(rs.getInt(1), null, rs.getInt(2), rs.getLong(3)));
+    }
+
+    @Override
+    public List<StockTotal> sumByInventoryAndCategory() {
+        return jdbcTemplate.query(SUM_BY_INVENTORY_AND_CATEGORY_SQL, (rs, rowNum) -> StockTotal.of(null, rs.getInt(1), rs.getInt(2), rs.getLong(3)));
+    }
+
+    @Override
+    public List<StockTotal> lockByProductId(int productId) {
+        return jdbcTemplate.query(String.format(LOCK_ENTRIES_SQL, "s.product_id"), ENTRY_TOTAL_MAPPER, productId);
+    }
+
+    @Override
+    public List<StockTotal> lockByInventoryId(int inventoryId) {
+        return jdbcTemplate.query(String.format(LOCK_ENTRIES_SQL, "s.inventory_id"), ENTRY_TOTAL_MAPPER, inventoryId);
+    }
+
+    @Override
+    public List<StockTotal> lockByCategoryId(int categoryId) {
+        return jdbcTemplate.query(String.format(LOCK_ENTRIES_SQL, "p.category_id"), ENTRY_TOTAL_MAPPER, categoryId);
+    }
+
+    @Override
+    public Optional<Integer> adjustQuantity(Integer productId, Integer inventoryId, int delta) {
+        // single conditional statement: the row lock taken by the UPDATE closes the read-modify-write window
+        List<Integer> quantities = jdbcTemplate.queryForList(ADJUST_QUANTITY_SQL, Integer.class, delta, productId, inventoryId, delta);
+        return quantities.stream().findFirst();
+    }
+
+    private static void setKeyArrays(PreparedStatement ps, long[] keys) throws SQLException {
+        Integer[] productIds = new Integer[keys.length];
+        Integer[] inventoryIds = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            productIds[i] = StockEntryId.productId(keys[i]);
+            inventoryIds[i] = StockEntryId.inventoryId(keys[i]);
+        }
+        ps.setArray(1, ps.getConnection().createArrayOf("int4", productIds));
+        ps.setArray(2, ps.getConnection().createArrayOf("int4", inventoryIds));
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> args, Integer productId, Integer inventoryId) {
+        if (productId != null) {
+            sql.append(" AND product_id = ?");
+            args.add(productId);
+        }
+        if (inventoryId != null) {
+            sql.append(" AND inventory_id = ?");
+            args.add(inventoryId);
+        }
+    }
+}
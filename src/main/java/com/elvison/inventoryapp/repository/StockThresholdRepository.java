@@ -0,0 +1,14 @@
+package com.elvison.inventoryapp.repository;
+
+import com.elvison.inventoryapp.model.StockThreshold;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface StockThresholdRepository extends JpaRepository<StockThreshold, Integer> {
+    // a null inventory ID finds the threshold that applies to every inventory of the product
+    Optional<StockThreshold> findByProductIdAndInventoryId(Integer productId, Integer inventoryId);
+
+    List<StockThreshold> findByProductIdOrderByIdAsc(Integer productId);
+}
@@ -1,10 +1,15 @@
 package com.elvison.inventoryapp.rest;
 
+import com.elvison.inventoryapp.etag.TableETag;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.AsyncExecutionHelper;
 import com.elvison.inventoryapp.model.Category;
 import com.elvison.inventoryapp.model.rest.ApiError;
 import com.elvison.inventoryapp.model.rest.CategoryRequest;
+import com.elvison.inventoryapp.model.rest.CursorPage;
 import com.elvison.inventoryapp.service.CategoryService;
+import com.elvison.inventoryapp.snapshot.CatalogSnapshots;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,9 +18,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("v1/category")
@@ -25,6 +36,12 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private AsyncExecutionHelper asyncHelper;
+
+    @Autowired
+    private CatalogSnapshots catalogSnapshots;
+
     @PostMapping
     @Operation(description = "Creates a new category")
     @ApiResponses({
@@ -40,17 +57,74 @@ public class CategoryController {
     }
 
     @GetMapping
+    @TableETag(TableVersions.Table.CATEGORIES)
     @Operation(description = "Gets category details")
     @ApiResponse(responseCode = "200", description = "Success")
-    public List<Category> getCategories(
+    public ResponseEntity<List<Category>> getCategories(
+            @RequestParam(name = "name", required = false)
+            @Parameter(description = "Category name filter")
+                    String nameFilter,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Integer after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of categories to return")
+                    Integer limit,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        // unfiltered pages are the same between writes, they are written from their serialized snapshot
+        if (StringUtils.isEmpty(nameFilter) && catalogSnapshots.isAcceptable(request)) {
+            catalogSnapshots.write(TableVersions.Table.CATEGORIES, after, limit, () -> categoryService.getCategories(null, after, limit), request, response);
+            return null;
+        }
+        return categoryService.getCategories(nameFilter, after, limit).toResponseEntity();
+    }
+
+    @GetMapping(value = "/async")
+    @TableETag(TableVersions.Table.CATEGORIES)
+    @Operation(description = "Gets category details on the worker pool")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<Category>>> getCategoriesAsync(
             @RequestParam(name = "name", required = false)
             @Parameter(description = "Category name filter")
-                    String nameFilter
+                    String nameFilter,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Integer after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of categories to return")
+                    Integer limit
+    ) {
+        return asyncHelper.supply(() -> categoryService.getCategories(nameFilter, after, limit).toResponseEntity());
+    }
+
+    @GetMapping(value = "/search")
+    @TableETag(TableVersions.Table.CATEGORIES)
+    @Operation(description = "Searches categories by name, case-insensitively")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public List<Category> searchCategories(
+            @RequestParam(name = "q")
+            @Parameter(description = "Text to search for", required = true)
+                    String query,
+            @RequestParam(name = "mode", required = false)
+            @Parameter(description = "Either prefix (default) or substring")
+                    String mode,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of categories to return")
+                    Integer limit
     ) {
-        return categoryService.getCategories(nameFilter);
+        return categoryService.searchCategories(query, mode, limit);
     }
 
     @GetMapping(value = "/{categoryId}")
+    @TableETag(TableVersions.Table.CATEGORIES)
     @Operation(description = "Gets detail for given category ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success"),
@@ -1,10 +1,15 @@
 package com.elvison.inventoryapp.rest;
 
+import com.elvison.inventoryapp.etag.TableETag;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.AsyncExecutionHelper;
 import com.elvison.inventoryapp.model.Inventory;
 import com.elvison.inventoryapp.model.rest.ApiError;
+import com.elvison.inventoryapp.model.rest.CursorPage;
 import com.elvison.inventoryapp.model.rest.InventoryRequest;
 import com.elvison.inventoryapp.service.InventoryService;
+import com.elvison.inventoryapp.snapshot.CatalogSnapshots;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,9 +18,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("v1/inventory")
@@ -25,6 +36,12 @@ public class InventoryController {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private AsyncExecutionHelper asyncHelper;
+
+    @Autowired
+    private CatalogSnapshots catalogSnapshots;
+
     @PostMapping
     @Operation(description = "Creates a new inventory")
     @ApiResponses({
@@ -40,17 +57,74 @@ public class InventoryController {
     }
 
     @GetMapping
+    @TableETag(TableVersions.Table.INVENTORIES)
     @Operation(description = "Gets inventory details")
     @ApiResponse(responseCode = "200", description = "Success")
-    public List<Inventory> getInventories(
+    public ResponseEntity<List<Inventory>> getInventories(
+            @RequestParam(name = "name", required = false)
+            @Parameter(description = "Inventory name filter")
+                    String nameFilter,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Integer after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of inventories to return")
+                    Integer limit,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        // unfiltered pages are the same between writes, they are written from their serialized snapshot
+        if (StringUtils.isEmpty(nameFilter) && catalogSnapshots.isAcceptable(request)) {
+            catalogSnapshots.write(TableVersions.Table.INVENTORIES, after, limit, () -> inventoryService.getInventories(null, after, limit), request, response);
+            return null;
+        }
+        return inventoryService.getInventories(nameFilter, after, limit).toResponseEntity();
+    }
+
+    @GetMapping(value = "/async")
+    @TableETag(TableVersions.Table.INVENTORIES)
+    @Operation(description = "Gets inventory details on the worker pool")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<Inventory>>> getInventoriesAsync(
             @RequestParam(name = "name", required = false)
             @Parameter(description = "Inventory name filter")
-                    String nameFilter
+                    String nameFilter,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Integer after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of inventories to return")
+                    Integer limit
+    ) {
+        return asyncHelper.supply(() -> inventoryService.getInventories(nameFilter, after, limit).toResponseEntity());
+    }
+
+    @GetMapping(value = "/search")
+    @TableETag(TableVersions.Table.INVENTORIES)
+    @Operation(description = "Searches inventories by name, case-insensitively")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public List<Inventory> searchInventories(
+            @RequestParam(name = "q")
+            @Parameter(description = "Text to search for", required = true)
+                    String query,
+            @RequestParam(name = "mode", required = false)
+            @Parameter(description = "Either prefix (default) or substring")
+                    String mode,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of inventories to return")
+                    Integer limit
     ) {
-        return inventoryService.getInventories(nameFilter);
+        return inventoryService.searchInventories(query, mode, limit);
     }
 
     @GetMapping(value = "/{inventoryId}")
+    @TableETag(TableVersions.Table.INVENTORIES)
     @Operation(description = "Gets detail for given inventory ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success"),
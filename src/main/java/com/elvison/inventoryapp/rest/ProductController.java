@@ -1,10 +1,16 @@
 package com.elvison.inventoryapp.rest;
 
+import com.elvison.inventoryapp.etag.TableETag;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.AsyncExecutionHelper;
 import com.elvison.inventoryapp.model.Product;
 import com.elvison.inventoryapp.model.rest.ApiError;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.ProductDetail;
 import com.elvison.inventoryapp.model.rest.ProductRequest;
 import com.elvison.inventoryapp.service.ProductService;
+import com.elvison.inventoryapp.snapshot.CatalogSnapshots;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,9 +19,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("v1/product")
@@ -25,6 +37,12 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private AsyncExecutionHelper asyncHelper;
+
+    @Autowired
+    private CatalogSnapshots catalogSnapshots;
+
     @PostMapping
     @Operation(description = "Creates a new product")
     @ApiResponses({
@@ -41,17 +59,92 @@ public class ProductController {
     }
 
     @GetMapping
+    @TableETag(TableVersions.Table.PRODUCTS)
     @Operation(description = "Gets product details")
     @ApiResponse(responseCode = "200", description = "Success")
-    public List<Product> getProducts(
+    public ResponseEntity<List<Product>> getProducts(
+            @RequestParam(name = "name", required = false)
+            @Parameter(description = "Product name filter")
+                    String nameFilter,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Integer after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of products to return")
+                    Integer limit,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        // unfiltered pages are the same between writes, they are written from their serialized snapshot
+        if (StringUtils.isEmpty(nameFilter) && catalogSnapshots.isAcceptable(request)) {
+            catalogSnapshots.write(TableVersions.Table.PRODUCTS, after, limit, () -> productService.getProducts(null, after, limit), request, response);
+            return null;
+        }
+        return productService.getProducts(nameFilter, after, limit).toResponseEntity();
+    }
+
+    @GetMapping(value = "/async")
+    @TableETag(TableVersions.Table.PRODUCTS)
+    @Operation(description = "Gets product details on the worker pool")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<Product>>> getProductsAsync(
             @RequestParam(name = "name", required = false)
             @Parameter(description = "Product name filter")
-                    String nameFilter
+                    String nameFilter,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Integer after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of products to return")
+                    Integer limit
+    ) {
+        return asyncHelper.supply(() -> productService.getProducts(nameFilter, after, limit).toResponseEntity());
+    }
+
+    @GetMapping(value = "/detail")
+    @TableETag({TableVersions.Table.PRODUCTS, TableVersions.Table.CATEGORIES})
+    @Operation(description = "Gets product details together with their category")
+    @ApiResponse(responseCode = "200", description = "Success")
+    public ResponseEntity<List<ProductDetail>> getProductDetails(
+            @RequestParam(name = "categoryId", required = false)
+            @Parameter(description = "Category ID filter")
+                    Integer categoryId,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Integer after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of products to return")
+                    Integer limit
+    ) {
+        return productService.getProductDetails(categoryId, after, limit).toResponseEntity();
+    }
+
+    @GetMapping(value = "/search")
+    @TableETag(TableVersions.Table.PRODUCTS)
+    @Operation(description = "Searches products by name, case-insensitively")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public List<Product> searchProducts(
+            @RequestParam(name = "q")
+            @Parameter(description = "Text to search for", required = true)
+                    String query,
+            @RequestParam(name = "mode", required = false)
+            @Parameter(description = "Either prefix (default) or substring")
+                    String mode,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of products to return")
+                    Integer limit
     ) {
-        return productService.getProducts(nameFilter);
+        return productService.searchProducts(query, mode, limit);
     }
 
     @GetMapping(value = "/{productId}")
+    @TableETag(TableVersions.Table.PRODUCTS)
     @Operation(description = "Gets detail for given product ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success"),
@@ -0,0 +1,156 @@
+package com.elvison.inventoryapp.rest;
+
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
+import com.elvison.inventoryapp.model.Category;
+import com.elvison.inventoryapp.model.Inventory;
+import com.elvison.inventoryapp.model.Product;
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.rest.ApiError;
+import com.elvison.inventoryapp.repository.ReactiveReadRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.function.Function;
+
+// read endpoints of the reactive tier, served by Reactor Netty on app.reactive.port. Lists are streamed as
+// newline-delimited JSON with backpressure from the HTTP connection down to the database driver, one page at a time
+// as on the blocking endpoints
+@Component
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveReadHandler {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private ReactiveReadRepository readRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaginationHelper paginationHelper;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    public HttpHandler httpHandler() {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(configurer -> {
+                    Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON, NDJSON);
+                    encoder.setStreamingMediaTypes(Arrays.asList(NDJSON, MediaType.APPLICATION_STREAM_JSON));
+                    configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+                    configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return RouterFunctions.toHttpHandler(routes(), strategies);
+    }
+
+    RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/v1/stock", this::getStockEntries)
+                .GET("/v1/category", this::getCategories)
+                .GET("/v1/category/{categoryId}", this::getCategory)
+                .GET("/v1/inventory", this::getInventories)
+                .GET("/v1/inventory/{inventoryId}", this::getInventory)
+                .GET("/v1/product", this::getProducts)
+                .GET("/v1/product/{productId}", this::getProduct)
+                .onError(IllegalArgumentException.class, (e, request) -> error(HttpStatus.BAD_REQUEST, e.getMessage()))
+                // parameters are parsed while the handler assembles its response, defer so that onError sees those errors
+                .filter((request, next) -> Mono.defer(() -> next.handle(request)))
+                .build();
+    }
+
+    private Mono<ServerResponse> getStockEntries(ServerRequest request) {
+        Flux<StockEntry> entries = readRepository.findStockEntries(
+                param(request, "productId", Integer::valueOf),
+                param(request, "inventoryId", Integer::valueOf),
+                param(request, "after", Long::valueOf),
+                limit(request));
+        if (stockLedger.isEnabled()) {
+            entries = entries.map(this::withLedgerQuantity);
+        }
+        return ServerResponse.ok().contentType(NDJSON).body(entries, StockEntry.class);
+    }
+
+    // the rows may be older than the quantities held by the ledger, as on the blocking endpoint; peeking never blocks
+    private StockEntry withLedgerQuantity(StockEntry entry) {
+        OptionalInt quantity = stockLedger.peekQuantity(entry.getId().getProductId(), entry.getId().getInventoryId());
+        return quantity.isPresent() ? StockEntry.of(entry.getId().getProductId(), entry.getId().getInventoryId(), quantity.getAsInt()) : entry;
+    }
+
+    private Mono<ServerResponse> getCategories(ServerRequest request) {
+        Flux<Category> categories = readRepository.findCategories(
+                request.queryParam("name").orElse(null), param(request, "after", Integer::valueOf), limit(request));
+        return ServerResponse.ok().contentType(NDJSON).body(categories, Category.class);
+    }
+
+    private Mono<ServerResponse> getCategory(ServerRequest request) {
+        return readRepository.findCategory(pathVariable(request, "categoryId"))
+                .flatMap(category -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(category))
+                .switchIfEmpty(error(HttpStatus.NOT_FOUND, "Category not found"));
+    }
+
+    private Mono<ServerResponse> getInventories(ServerRequest request) {
+        Flux<Inventory> inventories = readRepository.findInventories(
+                request.queryParam("name").orElse(null), param(request, "after", Integer::valueOf), limit(request));
+        return ServerResponse.ok().contentType(NDJSON).body(inventories, Inventory.class);
+    }
+
+    private Mono<ServerResponse> getInventory(ServerRequest request) {
+        return readRepository.findInventory(pathVariable(request, "inventoryId"))
+                .flatMap(inventory -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(inventory))
+                .switchIfEmpty(error(HttpStatus.NOT_FOUND, "Inventory not found"));
+    }
+
+    private Mono<ServerResponse> getProducts(ServerRequest request) {
+        Flux<Product> products = readRepository.findProducts(
+                request.queryParam("name").orElse(null), param(request, "after", Integer::valueOf), limit(request));
+        return ServerResponse.ok().contentType(NDJSON).body(products, Product.class);
+    }
+
+    private Mono<ServerResponse> getProduct(ServerRequest request) {
+        return readRepository.findProduct(pathVariable(request, "productId"))
+                .flatMap(product -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(product))
+                .switchIfEmpty(error(HttpStatus.NOT_FOUND, "Product not found"));
+    }
+
+    private int limit(ServerRequest request) {
+        return paginationHelper.limit(param(request, "limit", Integer::valueOf));
+    }
+
+    private static <T> T param(ServerRequest request, String name, Function<String, T> parser) {
+        return request.queryParam(name).map(value -> parse(name, value, parser)).orElse(null);
+    }
+
+    private static int pathVariable(ServerRequest request, String name) {
+        return parse(name, request.pathVariable(name), Integer::valueOf);
+    }
+
+    private static <T> T parse(String name, String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name);
+        }
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(ApiError.of(message));
+    }
+}
@@ -5,6 +5,8 @@ import com.elvison.inventoryapp.exception.ResourceNotFoundException;
 import com.elvison.inventoryapp.model.rest.ApiError;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -30,6 +32,14 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return build(HttpStatus.BAD_REQUEST, e);
     }
 
+    // the worker pool and its queue are full
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ApiError> handleTaskRejectedException(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ApiError.of("Server is busy, please retry later"));
+    }
+
     private ResponseEntity<ApiError> build(HttpStatus status, Throwable t) {
         return ResponseEntity.status(status).body(ApiError.of(t.getMessage()));
     }
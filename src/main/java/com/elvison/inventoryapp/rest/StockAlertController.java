@@ -0,0 +1,91 @@
+package com.elvison.inventoryapp.rest;
+
+import com.elvison.inventoryapp.model.StockAlert;
+import com.elvison.inventoryapp.model.StockThreshold;
+import com.elvison.inventoryapp.model.rest.ApiError;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.StockThresholdRequest;
+import com.elvison.inventoryapp.service.StockAlertService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("v1/stock")
+@Tag(name = "Stock Alert", description = "Low Stock Thresholds and Alerts")
+public class StockAlertController {
+
+    @Autowired
+    private StockAlertService stockAlertService;
+
+    @PutMapping(value = "/threshold")
+    @Operation(description = "Sets the low stock threshold of a product, in one inventory or in every inventory")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public StockThreshold setThreshold(
+            @RequestBody
+            @Parameter(description = "Threshold details", required = true)
+                    StockThresholdRequest request
+    ) {
+        return stockAlertService.setThreshold(request);
+    }
+
+    @GetMapping(value = "/threshold")
+    @Operation(description = "Gets the low stock thresholds of a product")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public List<StockThreshold> getThresholds(
+            @RequestParam(name = "productId")
+            @Parameter(description = "Product ID", required = true)
+                    Integer productId
+    ) {
+        return stockAlertService.getThresholds(productId);
+    }
+
+    @DeleteMapping(value = "/threshold")
+    @Operation(description = "Deletes the low stock threshold of a product in one inventory, or in every inventory if no inventory ID is given")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public void deleteThreshold(
+            @RequestParam(name = "productId")
+            @Parameter(description = "Product ID", required = true)
+                    Integer productId,
+            @RequestParam(name = "inventoryId", required = false)
+            @Parameter(description = "Inventory ID")
+                    Integer inventoryId
+    ) {
+        stockAlertService.deleteThreshold(productId, inventoryId);
+    }
+
+    @GetMapping(value = "/alert")
+    @Operation(description = "Gets the alerts raised by stock quantities crossing their thresholds, oldest first")
+    @ApiResponse(responseCode = "200", description = "Success")
+    public ResponseEntity<List<StockAlert>> getAlerts(
+            @RequestParam(name = "productId", required = false)
+            @Parameter(description = "Product ID")
+                    Integer productId,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Long after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of alerts to return")
+                    Integer limit
+    ) {
+        return stockAlertService.getAlerts(productId, after, limit).toResponseEntity();
+    }
+}
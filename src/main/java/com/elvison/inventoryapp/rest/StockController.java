@@ -1,9 +1,19 @@
 package com.elvison.inventoryapp.rest;
 
+import com.elvison.inventoryapp.etag.TableETag;
+import com.elvison.inventoryapp.etag.TableVersions;
+import com.elvison.inventoryapp.helper.AsyncExecutionHelper;
 import com.elvison.inventoryapp.model.StockEntry;
 import com.elvison.inventoryapp.model.rest.ApiError;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.StockAdjustmentRequest;
 import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.model.rest.StockTotal;
 import com.elvison.inventoryapp.service.StockService;
+import com.elvison.inventoryapp.service.StockUpdatePipeline;
+import com.elvison.inventoryapp.stream.StockChangeStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,18 +22,38 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("v1/stock")
 @Tag(name = "Stock", description = "Stock Management")
 public class StockController {
+    private static final String NDJSON_VALUE = "application/x-ndjson";
 
     @Autowired
     private StockService stockService;
 
+    @Autowired
+    private StockUpdatePipeline stockUpdatePipeline;
+
+    @Autowired
+    private StockChangeStream stockChangeStream;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AsyncExecutionHelper asyncHelper;
+
     @PostMapping
     @Operation(description = "Creates a new stock entry")
     @ApiResponses({
@@ -39,18 +69,156 @@ public class StockController {
         stockService.createStockEntry(request);
     }
 
+    @PostMapping(value = "/batch")
+    @Operation(description = "Creates new stock entries in bulk")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public void addStockEntries(
+            @RequestBody
+            @Parameter(description = "New stock entries details", required = true)
+                    List<StockEntryRequest> requests
+    ) {
+        stockService.createStockEntries(requests);
+    }
+
+    @PostMapping(value = "/batch/async")
+    @Operation(description = "Creates new stock entries in bulk on the worker pool")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public CompletableFuture<Void> addStockEntriesAsync(
+            @RequestBody
+            @Parameter(description = "New stock entries details", required = true)
+                    List<StockEntryRequest> requests
+    ) {
+        return asyncHelper.run(() -> stockService.createStockEntries(requests));
+    }
+
     @GetMapping
+    @TableETag(TableVersions.Table.STOCKS)
     @Operation(description = "Gets stock entries")
     @ApiResponse(responseCode = "200", description = "Success")
-    public List<StockEntry> getStockEntries(
+    public ResponseEntity<List<StockEntry>> getStockEntries(
+            @RequestParam(name = "productId", required = false)
+            @Parameter(description = "Product ID")
+                    Integer productId,
+            @RequestParam(name = "inventoryId", required = false)
+            @Parameter(description = "Inventory ID")
+                    Integer inventoryId,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Long after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of stock entries to return")
+                    Integer limit
+    ) {
+        return stockService.getStockEntries(productId, inventoryId, after, limit).toResponseEntity();
+    }
+
+    @GetMapping(value = "/async")
+    @TableETag(TableVersions.Table.STOCKS)
+    @Operation(description = "Gets stock entries on the worker pool")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<StockEntry>>> getStockEntriesAsync(
+            @RequestParam(name = "productId", required = false)
+            @Parameter(description = "Product ID")
+                    Integer productId,
+            @RequestParam(name = "inventoryId", required = false)
+            @Parameter(description = "Inventory ID")
+                    Integer inventoryId,
+            @RequestParam(name = "after", required = false)
+            @Parameter(description = "Cursor returned in the " + CursorPage.NEXT_CURSOR_HEADER + " header of the previous page")
+                    Long after,
+            @RequestParam(name = "limit", required = false)
+            @Parameter(description = "Maximum number of stock entries to return")
+                    Integer limit
+    ) {
+        return asyncHelper.supply(() -> stockService.getStockEntries(productId, inventoryId, after, limit).toResponseEntity());
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    @Operation(description = "Streams all matching stock entries as newline-delimited JSON")
+    @ApiResponse(responseCode = "200", description = "Success")
+    public ResponseEntity<StreamingResponseBody> exportStockEntries(
+            @RequestParam(name = "productId", required = false)
+            @Parameter(description = "Product ID")
+                    Integer productId,
+            @RequestParam(name = "inventoryId", required = false)
+            @Parameter(description = "Inventory ID")
+                    Integer inventoryId
+    ) {
+        ObjectWriter writer = objectMapper.writerFor(StockEntry.class);
+        StreamingResponseBody body = out -> stockService.exportStockEntries(productId, inventoryId, entry -> {
+            try {
+                out.write(writer.writeValueAsBytes(entry));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(description = "Streams committed stock entry changes as Server-Sent Events; bursts of changes to one entry are coalesced into its latest quantity, and a reset event asks a client that fell too far behind to reload and reconnect")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public SseEmitter streamStockChanges(
+            @RequestParam(name = "productId", required = false)
+            @Parameter(description = "Product ID")
+                    Integer productId,
+            @RequestParam(name = "inventoryId", required = false)
+            @Parameter(description = "Inventory ID")
+                    Integer inventoryId
+    ) {
+        return stockChangeStream.subscribe(productId, inventoryId);
+    }
+
+    @GetMapping(value = "/total")
+    @Operation(description = "Gets the total stock quantity of a product, or of an inventory, a category, a category within an inventory or everything")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public StockTotal getStockTotal(
             @RequestParam(name = "productId", required = false)
             @Parameter(description = "Product ID")
                     Integer productId,
             @RequestParam(name = "inventoryId", required = false)
+            @Parameter(description = "Inventory ID")
+                    Integer inventoryId,
+            @RequestParam(name = "categoryId", required = false)
+            @Parameter(description = "Category ID")
+                    Integer categoryId
+    ) {
+        return stockService.getStockTotal(productId, inventoryId, categoryId);
+    }
+
+    @GetMapping(value = "/total/category")
+    @Operation(description = "Gets the total stock quantity of every category, across all inventories or within one")
+    @ApiResponse(responseCode = "200", description = "Success")
+    public List<StockTotal> getCategoryStockTotals(
+            @RequestParam(name = "inventoryId", required = false)
             @Parameter(description = "Inventory ID")
                     Integer inventoryId
     ) {
-        return stockService.getStockEntries(productId, inventoryId);
+        return stockService.getCategoryStockTotals(inventoryId);
+    }
+
+    @PostMapping(value = "/total/reconcile")
+    @Operation(description = "Rebuilds the stock totals from the stock entries")
+    @ApiResponse(responseCode = "200", description = "Success")
+    public void reconcileStockTotals() {
+        stockService.reconcileStockTotals();
     }
 
     @PatchMapping
@@ -65,6 +233,56 @@ public class StockController {
             @Parameter(description = "Update stock entry", required = true)
                     StockEntryRequest request
     ) {
-        stockService.updateStockEntry(request);
+        if (stockUpdatePipeline.isEnabled()) {
+            stockUpdatePipeline.update(request);
+        } else {
+            stockService.updateStockEntry(request);
+        }
+    }
+
+    @PatchMapping(value = "/batch")
+    @Operation(description = "Updates existing stock entries in bulk")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public void updateStockEntries(
+            @RequestBody
+            @Parameter(description = "Update stock entries", required = true)
+                    List<StockEntryRequest> requests
+    ) {
+        stockService.updateStockEntries(requests);
+    }
+
+    @PatchMapping(value = "/batch/async")
+    @Operation(description = "Updates existing stock entries in bulk on the worker pool")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public CompletableFuture<Void> updateStockEntriesAsync(
+            @RequestBody
+            @Parameter(description = "Update stock entries", required = true)
+                    List<StockEntryRequest> requests
+    ) {
+        return asyncHelper.run(() -> stockService.updateStockEntries(requests));
+    }
+
+    @PostMapping(value = "/adjust")
+    @Operation(description = "Atomically increments or decrements the quantity of an existing stock entry")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public StockEntry adjustStockEntry(
+            @RequestBody
+            @Parameter(description = "Stock adjustment", required = true)
+                    StockAdjustmentRequest request
+    ) {
+        return stockService.adjustStockEntry(request);
     }
 }
@@ -1,45 +1,86 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
 import com.elvison.inventoryapp.helper.DefaultNameValidationHelper;
+import com.elvison.inventoryapp.helper.NameSearchHelper;
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.Category;
 import com.elvison.inventoryapp.model.rest.CategoryRequest;
+import com.elvison.inventoryapp.model.rest.CursorPage;
 import com.elvison.inventoryapp.repository.CategoryRepository;
+import com.elvison.inventoryapp.repository.ProductRepository;
+import com.elvison.inventoryapp.util.ConstraintViolations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import javax.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class CategoryService {
 
+    private static final String UNIQUE_NAME_CONSTRAINT = "uq_categories_name";
+
     @Autowired
     private DefaultNameValidationHelper validationHelper;
 
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PaginationHelper paginationHelper;
+
+    @Autowired
+    private NameSearchHelper searchHelper;
+
+    @Autowired
+    private StockTotals stockTotals;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private StockLedger stockLedger;
+
     @Transactional
     public void createCategory(CategoryRequest request) {
         validationHelper.validate(request);
 
-        if (categoryRepository.existsByName(request.getName())) {
-            throw new IllegalArgumentException("Category with the same name already exists");
-        }
-
         Category category = new Category();
         category.setName(request.getName());
-        categoryRepository.save(category);
+        save(category);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Category> getCategories(String nameFilter, Integer after, Integer limit) {
+        int pageSize = paginationHelper.limit(limit);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        int from = after == null ? 0 : after;
+
+        List<Category> categories = StringUtils.isEmpty(nameFilter)
+                ? categoryRepository.findByIdGreaterThanOrderByIdAsc(from, pageable)
+                : categoryRepository.findByNameLikeAndIdGreaterThanOrderByIdAsc(nameFilter, from, pageable);
+        return CursorPage.of(categories, pageSize, Category::getId);
     }
 
-    public List<Category> getCategories(String nameFilter) {
-        if (StringUtils.isEmpty(nameFilter)) {
-            return categoryRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<Category> searchCategories(String query, String mode, Integer limit) {
+        String term = searchHelper.term(query);
+        int maxResults = searchHelper.limit(limit);
+        if (searchHelper.isSubstringMode(mode)) {
+            return categoryRepository.searchByNameSubstring(term, maxResults);
         }
-        return categoryRepository.findByNameLike(nameFilter);
+        return categoryRepository.searchByNamePrefix(term, maxResults);
     }
 
     public Optional<Category> getCategory(Integer id) {
@@ -50,15 +91,11 @@ public class CategoryService {
     public void updateCategory(Integer id, CategoryRequest request) {
         validationHelper.validate(request);
 
-        if (categoryRepository.existsByName(request.getName())) {
-            throw new IllegalArgumentException("Category with the same name already exists");
-        }
-
         Category category = categoryRepository
                 .findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
         category.setName(request.getName());
-        categoryRepository.save(category);
+        save(category);
     }
 
     @Transactional
@@ -66,6 +103,18 @@ public class CategoryService {
         if (!categoryRepository.existsById(id)) {
             throw new ResourceNotFoundException("Category not found");
         }
+        // stock entries of the products are still removed by their cascading foreign key
+        stockTotals.removeCategory(id);
+        if (stockLedger.isEnabled()) {
+            stockLedger.evictProductsLater(productRepository.findIdsByCategoryId(id));
+        }
+        productRepository.deleteByCategoryId(id);
         categoryRepository.deleteById(id);
+        tableVersions.changed(TableVersions.Table.CATEGORIES, TableVersions.Table.PRODUCTS, TableVersions.Table.STOCKS);
+    }
+
+    private void save(Category category) {
+        ConstraintViolations.saveUnique(categoryRepository, category, UNIQUE_NAME_CONSTRAINT, "Category with the same name already exists");
+        tableVersions.changed(TableVersions.Table.CATEGORIES);
     }
 }
@@ -1,45 +1,82 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
 import com.elvison.inventoryapp.helper.DefaultNameValidationHelper;
+import com.elvison.inventoryapp.helper.NameSearchHelper;
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.Inventory;
+import com.elvison.inventoryapp.model.rest.CursorPage;
 import com.elvison.inventoryapp.model.rest.InventoryRequest;
 import com.elvison.inventoryapp.repository.InventoryRepository;
+import com.elvison.inventoryapp.util.ConstraintViolations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import javax.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class InventoryService {
 
+    private static final String UNIQUE_NAME_CONSTRAINT = "uq_inventories_name";
+
     @Autowired
     private DefaultNameValidationHelper validationHelper;
 
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private PaginationHelper paginationHelper;
+
+    @Autowired
+    private NameSearchHelper searchHelper;
+
+    @Autowired
+    private StockTotals stockTotals;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private StockLedger stockLedger;
+
     @Transactional
     public void createInventory(InventoryRequest request) {
         validationHelper.validate(request);
 
-        if (inventoryRepository.existsByName(request.getName())) {
-            throw new IllegalArgumentException("Inventory with the same name already exists");
-        }
-
         Inventory inventory = new Inventory();
         inventory.setName(request.getName());
-        inventoryRepository.save(inventory);
+        save(inventory);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Inventory> getInventories(String nameFilter, Integer after, Integer limit) {
+        int pageSize = paginationHelper.limit(limit);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        int from = after == null ? 0 : after;
+
+        List<Inventory> inventories = StringUtils.isEmpty(nameFilter)
+                ? inventoryRepository.findByIdGreaterThanOrderByIdAsc(from, pageable)
+                : inventoryRepository.findByNameLikeAndIdGreaterThanOrderByIdAsc(nameFilter, from, pageable);
+        return CursorPage.of(inventories, pageSize, Inventory::getId);
     }
 
-    public List<Inventory> getInventories(String nameFilter) {
-        if (StringUtils.isEmpty(nameFilter)) {
-            return inventoryRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<Inventory> searchInventories(String query, String mode, Integer limit) {
+        String term = searchHelper.term(query);
+        int maxResults = searchHelper.limit(limit);
+        if (searchHelper.isSubstringMode(mode)) {
+            return inventoryRepository.searchByNameSubstring(term, maxResults);
         }
-        return inventoryRepository.findByNameLike(nameFilter);
+        return inventoryRepository.searchByNamePrefix(term, maxResults);
     }
 
     public Optional<Inventory> getInventory(Integer id) {
@@ -50,15 +87,11 @@ public class InventoryService {
     public void updateInventory(Integer id, InventoryRequest request) {
         validationHelper.validate(request);
 
-        if (inventoryRepository.existsByName(request.getName())) {
-            throw new IllegalArgumentException("Inventory with the same name already exists");
-        }
-
         Inventory inventory = inventoryRepository
                 .findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory not found"));
         inventory.setName(request.getName());
-        inventoryRepository.save(inventory);
+        save(inventory);
     }
 
     @Transactional
@@ -66,6 +99,17 @@ public class InventoryService {
         if (!inventoryRepository.existsById(id)) {
             throw new ResourceNotFoundException("Inventory not found");
         }
+        // stock entries of the inventory are removed by the cascading foreign key
+        stockTotals.removeInventory(id);
         inventoryRepository.deleteById(id);
+        if (stockLedger.isEnabled()) {
+            stockLedger.evictInventoryLater(id);
+        }
+        tableVersions.changed(TableVersions.Table.INVENTORIES, TableVersions.Table.STOCKS);
+    }
+
+    private void save(Inventory inventory) {
+        ConstraintViolations.saveUnique(inventoryRepository, inventory, UNIQUE_NAME_CONSTRAINT, "Inventory with the same name already exists");
+        tableVersions.changed(TableVersions.Table.INVENTORIES);
     }
 }
@@ -1,23 +1,35 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.NameSearchHelper;
+import com.elvison.inventoryapp.helper.PaginationHelper;
 import com.elvison.inventoryapp.helper.ProductRequestValidationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.Category;
 import com.elvison.inventoryapp.model.Product;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.ProductDetail;
 import com.elvison.inventoryapp.model.rest.ProductRequest;
-import com.elvison.inventoryapp.repository.CategoryRepository;
 import com.elvison.inventoryapp.repository.ProductRepository;
+import com.elvison.inventoryapp.util.ConstraintViolations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import javax.transaction.Transactional;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class ProductService {
 
+    private static final String UNIQUE_NAME_CONSTRAINT = "uq_products_name";
+
     @Autowired
     private ProductRequestValidationHelper validationHelper;
 
@@ -25,31 +37,70 @@ public class ProductService {
     private ProductRepository productRepository;
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private PaginationHelper paginationHelper;
+
+    @Autowired
+    private NameSearchHelper searchHelper;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private StockTotals stockTotals;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private StockLedger stockLedger;
 
     @Transactional
     public void createProduct(ProductRequest request) {
-        Category category = categoryRepository
-                .findById(request.getCategoryId())
+        Category category = categoryService
+                .getCategory(request.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Given category does not exist"));
 
         validationHelper.validate(request, category);
 
-        if (productRepository.existsByName(request.getName())) {
-            throw new IllegalArgumentException("Product with the same name already exists");
-        }
-
         Product product = new Product();
         product.setName(request.getName());
         product.setCategoryId(request.getCategoryId());
-        productRepository.save(product);
+        save(product);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Product> getProducts(String nameFilter, Integer after, Integer limit) {
+        int pageSize = paginationHelper.limit(limit);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        int from = after == null ? 0 : after;
+
+        List<Product> products = StringUtils.isEmpty(nameFilter)
+                ? productRepository.findByIdGreaterThanOrderByIdAsc(from, pageable)
+                : productRepository.findByNameLikeAndIdGreaterThanOrderByIdAsc(nameFilter, from, pageable);
+        return CursorPage.of(products, pageSize, Product::getId);
+    }
+
+    // one joined query per page, categories are never loaded one by one
+    @Transactional(readOnly = true)
+    public CursorPage<ProductDetail> getProductDetails(Integer categoryId, Integer after, Integer limit) {
+        int pageSize = paginationHelper.limit(limit);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        int from = after == null ? 0 : after;
+
+        List<ProductDetail> details = categoryId == null
+                ? productRepository.findDetails(from, pageable)
+                : productRepository.findDetailsByCategoryId(categoryId, from, pageable);
+        return CursorPage.of(details, pageSize, ProductDetail::getId);
     }
 
-    public List<Product> getProducts(String nameFilter) {
-        if (StringUtils.isEmpty(nameFilter)) {
-            return productRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<Product> searchProducts(String query, String mode, Integer limit) {
+        String term = searchHelper.term(query);
+        int maxResults = searchHelper.limit(limit);
+        if (searchHelper.isSubstringMode(mode)) {
+            return productRepository.searchByNameSubstring(term, maxResults);
         }
-        return productRepository.findByNameLike(nameFilter);
+        return productRepository.searchByNamePrefix(term, maxResults);
     }
 
     public Optional<Product> getProduct(Integer id) {
@@ -58,29 +109,28 @@ public class ProductService {
 
     @Transactional
     public void updateProduct(Integer id, ProductRequest request) {
+        // the current category is needed for validation unless it changes, it comes with the product
         Product product = productRepository
-                .findById(id)
+                .findWithCategoryById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
 
         if (!product.getName().equals(request.getName())) {
-            if (productRepository.existsByName(request.getName())) {
-                throw new IllegalArgumentException("Product with the same name already exists");
-            }
             product.setName(request.getName());
         }
 
         Category category;
         if (!request.getCategoryId().equals(product.getCategoryId())) {
-            category = categoryRepository
-                    .findById(request.getCategoryId())
+            category = categoryService
+                    .getCategory(request.getCategoryId())
                     .orElseThrow(() -> new ResourceNotFoundException("Given category does not exist"));
+            stockTotals.moveProduct(id, product.getCategoryId(), category.getId());
             product.setCategoryId(category.getId());
         } else {
             category = product.getCategory();
         }
 
         validationHelper.validate(request, category);
-        productRepository.save(product);
+        save(product);
     }
 
     @Transactional
@@ -88,7 +138,16 @@ public class ProductService {
         if (!productRepository.existsById(id)) {
             throw new ResourceNotFoundException("Product not found");
         }
+        stockTotals.removeProduct(id);
         productRepository.deleteById(id);
+        if (stockLedger.isEnabled()) {
+            stockLedger.evictProductsLater(Collections.singletonList(id));
+        }
+        tableVersions.changed(TableVersions.Table.PRODUCTS, TableVersions.Table.STOCKS);
     }
 
+    private void save(Product product) {
+        ConstraintViolations.saveUnique(productRepository, product, UNIQUE_NAME_CONSTRAINT, "Product with the same name already exists");
+        tableVersions.changed(TableVersions.Table.PRODUCTS);
+    }
 }
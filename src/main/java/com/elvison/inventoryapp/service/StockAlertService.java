@@ -0,0 +1,104 @@
+package com.elvison.inventoryapp.service;
+
+import com.elvison.inventoryapp.alert.StockThresholds;
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.model.StockAlert;
+import com.elvison.inventoryapp.model.StockThreshold;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.StockThresholdRequest;
+import com.elvison.inventoryapp.repository.InventoryRepository;
+import com.elvison.inventoryapp.repository.ProductRepository;
+import com.elvison.inventoryapp.repository.StockAlertRepository;
+import com.elvison.inventoryapp.repository.StockThresholdRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class StockAlertService {
+
+    @Autowired
+    private StockThresholdRepository thresholdRepository;
+
+    @Autowired
+    private StockAlertRepository alertRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockRequestValidationHelper validationHelper;
+
+    @Autowired
+    private PaginationHelper paginationHelper;
+
+    @Autowired
+    private StockThresholds stockThresholds;
+
+    // sets the threshold of the product in one inventory, or in every inventory without its own if no inventory ID
+    // is given; an existing threshold for the same product and inventory is replaced
+    @Transactional
+    public StockThreshold setThreshold(StockThresholdRequest request) {
+        validationHelper.validateThreshold(request);
+
+        StockThreshold threshold = thresholdRepository
+                .findByProductIdAndInventoryId(request.getProductId(), request.getInventoryId())
+                .orElse(null);
+        if (threshold == null) {
+            if (!productRepository.existsById(request.getProductId())) {
+                throw new IllegalArgumentException(String.format("Product of ID %d does not exist", request.getProductId()));
+            }
+            if (request.getInventoryId() != null && !inventoryRepository.existsById(request.getInventoryId())) {
+                throw new IllegalArgumentException(String.format("Inventory of ID %d does not exist", request.getInventoryId()));
+            }
+            threshold = StockThreshold.of(request.getProductId(), request.getInventoryId(), request.getThreshold());
+        } else {
+            threshold.setThreshold(request.getThreshold());
+        }
+        threshold = thresholdRepository.save(threshold);
+        stockThresholds.set(request.getProductId(), request.getInventoryId(), request.getThreshold());
+        return threshold;
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockThreshold> getThresholds(Integer productId) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Product ID is invalid");
+        }
+        return thresholdRepository.findByProductIdOrderByIdAsc(productId);
+    }
+
+    @Transactional
+    public void deleteThreshold(Integer productId, Integer inventoryId) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Product ID is invalid");
+        }
+        StockThreshold threshold = thresholdRepository
+                .findByProductIdAndInventoryId(productId, inventoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock threshold not found"));
+        thresholdRepository.delete(threshold);
+        stockThresholds.remove(productId, inventoryId);
+    }
+
+    // oldest first, so that a consumer can poll with the cursor of its last page for new alerts
+    @Transactional(readOnly = true)
+    public CursorPage<StockAlert> getAlerts(Integer productId, Long after, Integer limit) {
+        int pageSize = paginationHelper.limit(limit);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        long from = after == null ? 0 : after;
+
+        List<StockAlert> alerts = productId == null
+                ? alertRepository.findByIdGreaterThanOrderByIdAsc(from, pageable)
+                : alertRepository.findByProductIdAndIdGreaterThanOrderByIdAsc(productId, from, pageable);
+        return CursorPage.of(alerts, pageSize, StockAlert::getId);
+    }
+}
@@ -1,19 +1,38 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.alert.StockThresholds;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.PaginationHelper;
 import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.StockEntry;
 import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.StockAdjustmentRequest;
 import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.model.rest.StockTotal;
 import com.elvison.inventoryapp.repository.InventoryRepository;
 import com.elvison.inventoryapp.repository.ProductRepository;
 import com.elvison.inventoryapp.repository.StockRepository;
+import com.elvison.inventoryapp.stream.StockChangeStream;
+import com.elvison.inventoryapp.util.LongIntHashMap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class StockService {
@@ -30,6 +49,30 @@ public class StockService {
     @Autowired
     private StockRequestValidationHelper validationHelper;
 
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private PaginationHelper paginationHelper;
+
+    @Autowired
+    private StockTotals stockTotals;
+
+    @Autowired
+    private StockThresholds stockThresholds;
+
+    @Autowired
+    private StockChangeStream stockChangeStream;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Value("${app.stock.batch.chunk-size:1000}")
+    private int batchChunkSize;
+
+    @Value("${app.stock.export.fetch-size:1000}")
+    private int exportFetchSize;
+
     @Transactional
     public void createStockEntry(StockEntryRequest request) {
         validationHelper.validate(request);
@@ -50,33 +93,286 @@ public class StockService {
         entry.setId(id);
         entry.setQuantity(request.getQuantity());
         stockRepository.save(entry);
+        changed(request.getProductId(), request.getInventoryId(), null, request.getQuantity());
     }
 
-    public List<StockEntry> getStockEntries(Integer productId, Integer inventoryId) {
+    @Transactional(readOnly = true)
+    public CursorPage<StockEntry> getStockEntries(Integer productId, Integer inventoryId, Long after, Integer limit) {
+        int pageSize = paginationHelper.limit(limit);
         if (inventoryId != null && productId != null) {
-            return stockRepository
-                    .findById(StockEntryId.of(productId, inventoryId))
-                    .map(Collections::singletonList)
-                    .orElse(Collections.emptyList());
+            // a single entry at most, so any cursor means it has been returned already
+            return CursorPage.of(after == null ? getStockEntry(productId, inventoryId) : Collections.emptyList(), pageSize, e -> e.getId().toKey());
         }
-        if (inventoryId != null) {
-            return stockRepository.findByIdInventoryId(inventoryId);
-        }
-        if (productId != null) {
-            return stockRepository.findByIdProductId(productId);
-        }
-        return stockRepository.findAll();
+        List<StockEntry> entries = withLedgerQuantities(stockRepository.findPage(productId, inventoryId, after, pageSize));
+        return CursorPage.of(entries, pageSize, e -> e.getId().toKey());
+    }
+
+    // rows are handed to the consumer while the database cursor is open, so memory use does not depend on the result size
+    @Transactional(readOnly = true)
+    public void exportStockEntries(Integer productId, Integer inventoryId, Consumer<StockEntry> consumer) {
+        stockRepository.forEach(productId, inventoryId, exportFetchSize, e -> consumer.accept(withLedgerQuantity(e)));
     }
 
     @Transactional
     public void updateStockEntry(StockEntryRequest request) {
         validationHelper.validate(request);
 
+        if (stockLedger.isEnabled()) {
+            int previous = stockLedger.getAndSetQuantity(request.getProductId(), request.getInventoryId(), request.getQuantity())
+                    .orElseThrow(() -> stockEntryNotFound(request.getProductId(), request.getInventoryId()));
+            changed(request.getProductId(), request.getInventoryId(), previous, request.getQuantity());
+            return;
+        }
+
+        // locked, so that the quantity replaced and thus the change to the totals is exact
         StockEntryId id = StockEntryId.of(request.getProductId(), request.getInventoryId());
         StockEntry entry = stockRepository
-                .findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(String.format("Stock entry for given product ID %d and inventory ID %d is not found", request.getProductId(), request.getInventoryId())));
+                .findByIdForUpdate(id)
+                .orElseThrow(() -> stockEntryNotFound(request.getProductId(), request.getInventoryId()));
+        int previous = entry.getQuantity();
         entry.setQuantity(request.getQuantity());
         stockRepository.save(entry);
+        changed(request.getProductId(), request.getInventoryId(), previous, request.getQuantity());
+    }
+
+    @Transactional
+    public StockEntry adjustStockEntry(StockAdjustmentRequest request) {
+        validationHelper.validateAdjustment(request);
+
+        if (stockLedger.isEnabled()) {
+            OptionalInt quantity = stockLedger.adjustQuantity(request.getProductId(), request.getInventoryId(), request.getDelta());
+            if (!quantity.isPresent()) {
+                if (!stockLedger.getQuantity(request.getProductId(), request.getInventoryId()).isPresent()) {
+                    throw stockEntryNotFound(request.getProductId(), request.getInventoryId());
+                }
+                throw insufficientStock(request.getProductId(), request.getInventoryId());
+            }
+            changed(request.getProductId(), request.getInventoryId(), quantity.getAsInt() - request.getDelta(), quantity.getAsInt());
+            return StockEntry.of(request.getProductId(), request.getInventoryId(), quantity.getAsInt());
+        }
+
+        Optional<Integer> quantity = stockRepository.adjustQuantity(request.getProductId(), request.getInventoryId(), request.getDelta());
+        if (!quantity.isPresent()) {
+            // only the failure path pays for telling a missing entry apart from an insufficient or overflowing quantity
+            StockEntry entry = stockRepository
+                    .findById(StockEntryId.of(request.getProductId(), request.getInventoryId()))
+                    .orElseThrow(() -> stockEntryNotFound(request.getProductId(), request.getInventoryId()));
+            if ((long) entry.getQuantity() + request.getDelta() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Quantity is invalid");
+            }
+            throw insufficientStock(request.getProductId(), request.getInventoryId());
+        }
+        // the update is atomic, so the quantity it replaced is exactly the new one less the delta
+        changed(request.getProductId(), request.getInventoryId(), quantity.get() - request.getDelta(), quantity.get());
+        return StockEntry.of(request.getProductId(), request.getInventoryId(), quantity.get());
+    }
+
+    @Transactional
+    public void createStockEntries(List<StockEntryRequest> requests) {
+        List<StockEntry> entries = toStockEntries(requests);
+
+        for (List<StockEntry> chunk : partition(entries)) {
+            Set<Integer> productIds = new HashSet<>();
+            Set<Integer> inventoryIds = new HashSet<>();
+            long[] keys = new long[chunk.size()];
+            for (int i = 0; i < keys.length; i++) {
+                StockEntryId id = chunk.get(i).getId();
+                productIds.add(id.getProductId());
+                inventoryIds.add(id.getInventoryId());
+                keys[i] = id.toKey();
+            }
+
+            long[] existingKeys = stockRepository.findExistingKeys(keys);
+            if (existingKeys.length > 0) {
+                throw new IllegalArgumentException(String.format("Stock entry for given product ID %d and inventory ID %d already exists", StockEntryId.productId(existingKeys[0]), StockEntryId.inventoryId(existingKeys[0])));
+            }
+
+            // one query per chunk checks the products and resolves their categories for the totals
+            Map<Integer, Integer> categoryIds = productRepository.findCategoryIdsByIds(productIds);
+            productIds.removeAll(categoryIds.keySet());
+            if (!productIds.isEmpty()) {
+                throw new IllegalArgumentException(String.format("Product of ID %d does not exist", productIds.iterator().next()));
+            }
+            inventoryIds.removeAll(inventoryRepository.findExistingIds(inventoryIds));
+            if (!inventoryIds.isEmpty()) {
+                throw new IllegalArgumentException(String.format("Inventory of ID %d does not exist", inventoryIds.iterator().next()));
+            }
+
+            stockRepository.insertAll(chunk);
+            for (StockEntry entry : chunk) {
+                int productId = entry.getId().getProductId();
+                int inventoryId = entry.getId().getInventoryId();
+                stockTotals.add(productId, inventoryId, categoryIds.get(productId), entry.getQuantity());
+                stockThresholds.check(productId, inventoryId, null, entry.getQuantity());
+                stockChangeStream.publish(productId, inventoryId, entry.getQuantity());
+            }
+        }
+        if (!entries.isEmpty()) {
+            tableVersions.changed(TableVersions.Table.STOCKS);
+        }
+    }
+
+    @Transactional
+    public void updateStockEntries(List<StockEntryRequest> requests) {
+        List<StockEntry> entries = toStockEntries(requests);
+
+        if (stockLedger.isEnabled()) {
+            // every entry has to exist before any of them is applied, rather than applying and compensating them again
+            for (StockEntry entry : entries) {
+                if (!stockLedger.getQuantity(entry.getId().getProductId(), entry.getId().getInventoryId()).isPresent()) {
+                    throw stockEntryNotFound(entry.getId().getProductId(), entry.getId().getInventoryId());
+                }
+            }
+        }
+
+        List<StockEntryId> missingIds = updateExistingStockEntries(entries);
+        if (!missingIds.isEmpty()) {
+            StockEntryId id = missingIds.get(0);
+            throw stockEntryNotFound(id.getProductId(), id.getInventoryId());
+        }
+    }
+
+    // entries are expected to be validated by the caller; entries not found are returned instead of thrown
+    // so that one missing entry does not roll back the rest of the group
+    @Transactional
+    public List<StockEntryId> updateExistingStockEntries(List<StockEntry> entries) {
+        List<StockEntryId> missingIds = new ArrayList<>();
+        if (stockLedger.isEnabled()) {
+            for (StockEntry entry : entries) {
+                OptionalInt previous = stockLedger.getAndSetQuantity(entry.getId().getProductId(), entry.getId().getInventoryId(), entry.getQuantity());
+                if (previous.isPresent()) {
+                    changedEntry(entry.getId().getProductId(), entry.getId().getInventoryId(), previous.getAsInt(), entry.getQuantity());
+                } else {
+                    missingIds.add(entry.getId());
+                }
+            }
+            if (missingIds.size() < entries.size()) {
+                tableVersions.changed(TableVersions.Table.STOCKS);
+            }
+            return missingIds;
+        }
+
+        for (List<StockEntry> chunk : partition(entries)) {
+            // one extra round trip per chunk locks the rows and reads the quantities being replaced
+            long[] keys = new long[chunk.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = chunk.get(i).getId().toKey();
+            }
+            LongIntHashMap previous = stockRepository.lockQuantities(keys);
+
+            int[] counts = stockRepository.updateQuantities(chunk);
+            for (int i = 0; i < counts.length; i++) {
+                StockEntry entry = chunk.get(i);
+                int quantity = previous.get(keys[i]);
+                if (counts[i] == 0 || quantity == LongIntHashMap.ABSENT) {
+                    missingIds.add(entry.getId());
+                } else {
+                    changedEntry(entry.getId().getProductId(), entry.getId().getInventoryId(), quantity, entry.getQuantity());
+                }
+            }
+        }
+        if (missingIds.size() < entries.size()) {
+            tableVersions.changed(TableVersions.Table.STOCKS);
+        }
+        return missingIds;
+    }
+
+    // a product total stands alone, the other IDs narrow down to an inventory, a category or both
+    public StockTotal getStockTotal(Integer productId, Integer inventoryId, Integer categoryId) {
+        if (productId != null) {
+            if (inventoryId != null || categoryId != null) {
+                throw new IllegalArgumentException("Product totals cannot be narrowed down by inventory or category");
+            }
+            return StockTotal.of(productId, null, null, stockTotals.getProductTotal(productId));
+        }
+        if (inventoryId != null && categoryId != null) {
+            return StockTotal.of(null, inventoryId, categoryId, stockTotals.getInventoryCategoryTotal(inventoryId, categoryId));
+        }
+        if (inventoryId != null) {
+            return StockTotal.of(null, inventoryId, null, stockTotals.getInventoryTotal(inventoryId));
+        }
+        if (categoryId != null) {
+            return StockTotal.of(null, null, categoryId, stockTotals.getCategoryTotal(categoryId));
+        }
+        return StockTotal.of(null, null, null, stockTotals.getTotal());
+    }
+
+    public List<StockTotal> getCategoryStockTotals(Integer inventoryId) {
+        return stockTotals.getCategoryTotals(inventoryId);
+    }
+
+    public void reconcileStockTotals() {
+        stockTotals.reconcile();
+    }
+
+    // previous is null for a created stock entry; everything derived from the quantities learns of the change here
+    private void changed(int productId, int inventoryId, Integer previous, int quantity) {
+        changedEntry(productId, inventoryId, previous, quantity);
+        tableVersions.changed(TableVersions.Table.STOCKS);
+    }
+
+    // batches move the table version once rather than per entry
+    private void changedEntry(int productId, int inventoryId, Integer previous, int quantity) {
+        stockTotals.add(productId, inventoryId, previous == null ? quantity : (long) quantity - previous);
+        stockThresholds.check(productId, inventoryId, previous, quantity);
+        stockChangeStream.publish(productId, inventoryId, quantity);
+    }
+
+    private List<StockEntry> getStockEntry(Integer productId, Integer inventoryId) {
+        if (stockLedger.isEnabled()) {
+            OptionalInt quantity = stockLedger.getQuantity(productId, inventoryId);
+            return quantity.isPresent()
+                    ? Collections.singletonList(StockEntry.of(productId, inventoryId, quantity.getAsInt()))
+                    : Collections.emptyList();
+        }
+        return stockRepository
+                .findById(StockEntryId.of(productId, inventoryId))
+                .map(Collections::singletonList)
+                .orElse(Collections.emptyList());
+    }
+
+    private List<StockEntry> withLedgerQuantities(List<StockEntry> entries) {
+        if (!stockLedger.isEnabled()) {
+            return entries;
+        }
+        return entries.stream().map(this::withLedgerQuantity).collect(Collectors.toList());
+    }
+
+    // quantities held by the ledger may not have been flushed to the database yet
+    private StockEntry withLedgerQuantity(StockEntry entry) {
+        if (!stockLedger.isEnabled()) {
+            return entry;
+        }
+        OptionalInt quantity = stockLedger.peekQuantity(entry.getId().getProductId(), entry.getId().getInventoryId());
+        return quantity.isPresent() ? StockEntry.of(entry.getId().getProductId(), entry.getId().getInventoryId(), quantity.getAsInt()) : entry;
+    }
+
+    private ResourceNotFoundException stockEntryNotFound(Integer productId, Integer inventoryId) {
+        return new ResourceNotFoundException(String.format("Stock entry for given product ID %d and inventory ID %d is not found", productId, inventoryId));
+    }
+
+    private IllegalArgumentException insufficientStock(Integer productId, Integer inventoryId) {
+        return new IllegalArgumentException(String.format("Insufficient stock for given product ID %d and inventory ID %d", productId, inventoryId));
+    }
+
+    private List<StockEntry> toStockEntries(List<StockEntryRequest> requests) {
+        List<StockEntry> entries = new ArrayList<>(requests.size());
+        LongIntHashMap keys = new LongIntHashMap(requests.size());
+        for (StockEntryRequest request : requests) {
+            validationHelper.validate(request);
+            if (keys.putIfAbsent(StockEntryId.key(request.getProductId(), request.getInventoryId()), 0) != LongIntHashMap.ABSENT) {
+                throw new IllegalArgumentException(String.format("Stock entry for given product ID %d and inventory ID %d is given more than once", request.getProductId(), request.getInventoryId()));
+            }
+            entries.add(StockEntry.of(request.getProductId(), request.getInventoryId(), request.getQuantity()));
+        }
+        return entries;
+    }
+
+    private <T> List<List<T>> partition(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += batchChunkSize) {
+            chunks.add(list.subList(i, Math.min(i + batchChunkSize, list.size())));
+        }
+        return chunks;
     }
 }
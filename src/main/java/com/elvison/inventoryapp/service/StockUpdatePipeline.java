@@ -0,0 +1,183 @@
+package com.elvison.inventoryapp.service;
+
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.util.LongIntHashMap;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Service
+public class StockUpdatePipeline {
+
+    @Value("${app.stock.pipeline.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.stock.pipeline.buffer-size:1024}")
+    private int bufferSize;
+
+    @Value("${app.stock.pipeline.batch-size:256}")
+    private int batchSize;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockRequestValidationHelper validationHelper;
+
+    private Disruptor<StockUpdateEvent> disruptor;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        disruptor = new Disruptor<>(StockUpdateEvent::new, bufferSize, r -> {
+            Thread thread = new Thread(r, "stock-update-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        }, ProducerType.MULTI, new BlockingWaitStrategy());
+        disruptor.handleEventsWith(new GroupCommitHandler());
+        disruptor.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (disruptor != null) {
+            // drains all published events before halting the consumer
+            disruptor.shutdown();
+            disruptor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Void> submit(StockEntryRequest request) {
+        if (disruptor == null) {
+            throw new IllegalStateException("Stock update pipeline is not running");
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        disruptor.getRingBuffer().publishEvent(StockUpdateEvent::set, request, future);
+        return future;
+    }
+
+    public void update(StockEntryRequest request) {
+        try {
+            submit(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    static class StockUpdateEvent {
+        private StockEntryRequest request;
+        private CompletableFuture<Void> future;
+
+        static void set(StockUpdateEvent event, long sequence, StockEntryRequest request, CompletableFuture<Void> future) {
+            event.request = request;
+            event.future = future;
+        }
+
+        private void clear() {
+            request = null;
+            future = null;
+        }
+    }
+
+    private static class PendingUpdate {
+        private long key;
+        private int quantity;
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+    }
+
+    // single consumer: merges updates by packed stock entry key (last write wins) and flushes them as one transaction
+    // at the end of each ring buffer batch, or earlier once the configured batch size is reached; the key index and
+    // the pending updates are reused across batches
+    class GroupCommitHandler implements EventHandler<StockUpdateEvent> {
+        private final LongIntHashMap index = new LongIntHashMap(batchSize);
+        private final List<PendingUpdate> pending = new ArrayList<>();
+        private int count;
+
+        @Override
+        public void onEvent(StockUpdateEvent event, long sequence, boolean endOfBatch) {
+            StockEntryRequest request = event.request;
+            CompletableFuture<Void> future = event.future;
+            event.clear();
+
+            try {
+                validationHelper.validate(request);
+                long key = StockEntryId.key(request.getProductId(), request.getInventoryId());
+                int i = index.putIfAbsent(key, count);
+                PendingUpdate update;
+                if (i == LongIntHashMap.ABSENT) {
+                    if (count == pending.size()) {
+                        pending.add(new PendingUpdate());
+                    }
+                    update = pending.get(count++);
+                    update.key = key;
+                } else {
+                    update = pending.get(i);
+                }
+                update.quantity = request.getQuantity();
+                update.futures.add(future);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+
+            if (endOfBatch || count >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (count == 0) {
+                return;
+            }
+            try {
+                List<StockEntry> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    PendingUpdate update = pending.get(i);
+                    entries.add(StockEntry.of(StockEntryId.productId(update.key), StockEntryId.inventoryId(update.key), update.quantity));
+                }
+                for (StockEntryId id : stockService.updateExistingStockEntries(entries)) {
+                    PendingUpdate update = pending.get(index.get(id.toKey()));
+                    ResourceNotFoundException e = new ResourceNotFoundException(String.format("Stock entry for given product ID %d and inventory ID %d is not found", id.getProductId(), id.getInventoryId()));
+                    update.futures.forEach(f -> f.completeExceptionally(e));
+                    update.futures.clear();
+                }
+                for (int i = 0; i < count; i++) {
+                    pending.get(i).futures.forEach(f -> f.complete(null));
+                }
+            } catch (RuntimeException e) {
+                for (int i = 0; i < count; i++) {
+                    pending.get(i).futures.forEach(f -> f.completeExceptionally(e));
+                }
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    pending.get(i).futures.clear();
+                }
+                count = 0;
+                index.clear();
+            }
+        }
+    }
+}
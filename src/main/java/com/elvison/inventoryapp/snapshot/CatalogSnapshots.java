@@ -0,0 +1,181 @@
+package com.elvison.inventoryapp.snapshot;
+
+import com.elvison.inventoryapp.etag.RepresentationETags;
+import com.elvison.inventoryapp.etag.TableVersions;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Unfiltered catalog list pages kept as the JSON bytes of the response, and gzipped when large enough, so that
+// serving the same page again neither loads entities nor runs Jackson. A page is kept under the version of its table
+// taken before it was read, so the first request after the table changes misses and builds it again; pages of older
+// versions are no longer read and expire.
+@Component
+public class CatalogSnapshots {
+
+    @Value("${app.cache.catalog.snapshot.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.cache.catalog.snapshot.gzip:true}")
+    private boolean gzipEnabled;
+
+    @Value("${app.cache.catalog.snapshot.gzip-min-size:2048}")
+    private int gzipMinSize;
+
+    @Value("${app.cache.catalog.snapshot.expire-after-write-ms:300000}")
+    private long expireAfterWriteMs;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private AsyncCache<String, Snapshot> snapshots;
+
+    @PostConstruct
+    public void init() {
+        snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Snapshot snapshot) -> snapshot.weight())
+                .expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS)
+                .buildAsync();
+    }
+
+    // the snapshots are JSON, a client preferring one of the binary encodings is left to the message converters
+    public boolean isAcceptable(HttpServletRequest request) {
+        return RepresentationETags.JSON.equals(RepresentationETags.negotiatedEncoding(request));
+    }
+
+    public void write(TableVersions.Table table, Integer after, Integer limit, Supplier<? extends CursorPage<?>> loader,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        write(get(table, after, limit, loader), request, response);
+    }
+
+    private Snapshot get(TableVersions.Table table, Integer after, Integer limit, Supplier<? extends CursorPage<?>> loader) {
+        String versionsETag = tableVersions.getETag(table);
+        if (versionsETag == null) {
+            return build(null, loader);
+        }
+        String etag = RepresentationETags.of(versionsETag, RepresentationETags.JSON);
+        String key = table.name() + ':' + after + ':' + limit + ':' + etag;
+        // the cache only installs the future, the page is read and serialized outside its lock; concurrent misses
+        // of one page wait for the first one, a failed build is removed and retried by the next request
+        CompletableFuture<Snapshot> building = new CompletableFuture<>();
+        CompletableFuture<Snapshot> snapshot = snapshots.get(key, (k, executor) -> building);
+        if (snapshot == building) {
+            try {
+                building.complete(build(etag, loader));
+            } catch (RuntimeException e) {
+                building.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return snapshot.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private Snapshot build(String etag, Supplier<? extends CursorPage<?>> loader) {
+        CursorPage<?> page = loader.get();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(page.getItems());
+            byte[] gzip = gzipEnabled && json.length >= gzipMinSize ? gzip(json) : null;
+            return new Snapshot(etag, page.getNextCursor(), json, gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot serialize catalog snapshot", e);
+        }
+    }
+
+    private static void write(Snapshot snapshot, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = snapshot.json;
+        String etag = snapshot.etag;
+        if (snapshot.gzip != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = snapshot.gzip;
+                // the gzipped bytes differ from the identity ones, so their tag is weak; If-None-Match ignores W/
+                etag = etag == null ? null : "W/" + etag;
+            }
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        if (snapshot.nextCursor != null) {
+            response.setHeader(CursorPage.NEXT_CURSOR_HEADER, snapshot.nextCursor);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsGzip(Enumeration<String> acceptEncoding) {
+        while (acceptEncoding.hasMoreElements()) {
+            for (String coding : acceptEncoding.nextElement().split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                    continue;
+                }
+                boolean refused = false;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim().replace(" ", "");
+                    refused |= parameter.matches("q=0(\\.0*)?");
+                }
+                if (!refused) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Snapshot {
+        private final String etag;
+        private final String nextCursor;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private Snapshot(String etag, String nextCursor, byte[] json, byte[] gzip) {
+            this.etag = etag;
+            this.nextCursor = nextCursor;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        private int weight() {
+            return json.length + (gzip == null ? 0 : gzip.length) + 64;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.elvison.inventoryapp.stream;
+
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Pushes committed stock quantity changes to Server-Sent Events subscribers. Each subscriber buffers pending changes
+// by stock entry, so a burst of changes to one entry collapses into its latest quantity and a slow client never
+// falls further behind than one message per entry. A subscriber whose buffer outgrows the configured number of
+// entries is sent a reset event and disconnected, its client reloads the stock entries and subscribes again.
+@Component
+public class StockChangeStream {
+
+    private static final Logger LOGGER = LogManager.getLogger(StockChangeStream.class);
+
+    public static final String CHANGE_EVENT = "stock";
+    public static final String RESET_EVENT = "reset";
+
+    @Value("${app.stock.stream.buffer-size:1024}")
+    private int bufferSize;
+
+    @Value("${app.stock.stream.max-subscribers:256}")
+    private int maxSubscribers;
+
+    @Value("${app.stock.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    // sends run on a pool of their own with a thread per subscriber, one task per subscriber at most
+    @Autowired
+    private ThreadPoolTaskExecutor stockStreamThreadPool;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // changes to the given product, inventory or both, or to every stock entry if neither is given
+    public SseEmitter subscribe(Integer productId, Integer inventoryId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new TaskRejectedException("Too many stock stream subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(productId, inventoryId, emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // changes made inside a transaction are sent once it commits, the last quantity of each entry only
+    public void publish(int productId, int inventoryId, int quantity) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long key = StockEntryId.key(productId, inventoryId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatch(key, quantity);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Integer> changes = (Map<Long, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            Map<Long, Integer> pending = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    pending.forEach(StockChangeStream.this::dispatch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockChangeStream.this);
+                }
+            });
+            changes = pending;
+        }
+        changes.put(key, quantity);
+    }
+
+    private void dispatch(long key, int quantity) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.matches(key)) {
+                subscriber.offer(key, quantity);
+            }
+        }
+    }
+
+    private final class Subscriber {
+        private final Integer productId;
+        private final Integer inventoryId;
+        private final SseEmitter emitter;
+
+        // guarded by this
+        private Map<Long, Integer> pending = new LinkedHashMap<>();
+        private boolean draining;
+        private boolean overflowed;
+
+        private Subscriber(Integer productId, Integer inventoryId, SseEmitter emitter) {
+            this.productId = productId;
+            this.inventoryId = inventoryId;
+            this.emitter = emitter;
+        }
+
+        private boolean matches(long key) {
+            return (productId == null || productId == StockEntryId.productId(key))
+                    && (inventoryId == null || inventoryId == StockEntryId.inventoryId(key));
+        }
+
+        private void offer(long key, int quantity) {
+            synchronized (this) {
+                if (overflowed) {
+                    return;
+                }
+                if (pending.put(key, quantity) == null && pending.size() > bufferSize) {
+                    overflowed = true;
+                    pending.clear();
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                stockStreamThreadPool.execute(this::drain);
+            } catch (TaskRejectedException e) {
+                // the pending changes stay buffered, the next change retries
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    Map<Long, Integer> batch;
+                    boolean reset;
+                    synchronized (this) {
+                        reset = overflowed;
+                        if (!reset && pending.isEmpty()) {
+                            draining = false;
+                            return;
+                        }
+                        batch = pending;
+                        pending = new LinkedHashMap<>();
+                    }
+                    if (reset) {
+                        LOGGER.warn("Stock stream subscriber fell more than {} entries behind, disconnecting it", bufferSize);
+                        emitter.send(SseEmitter.event().name(RESET_EVENT).data(""));
+                        close();
+                        emitter.complete();
+                        return;
+                    }
+                    for (Map.Entry<Long, Integer> change : batch.entrySet()) {
+                        StockEntry entry = StockEntry.of(StockEntryId.productId(change.getKey()), StockEntryId.inventoryId(change.getKey()), change.getValue());
+                        emitter.send(SseEmitter.event().name(CHANGE_EVENT).data(entry, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away or the emitter has completed, the container completes the request
+                close();
+            }
+        }
+
+        private void close() {
+            subscribers.remove(this);
+            synchronized (this) {
+                overflowed = true;
+                pending.clear();
+                draining = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.elvison.inventoryapp.util;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public final class ConstraintViolations {
+
+    private ConstraintViolations() {
+    }
+
+    // saves and flushes the entity, reporting a violation of the named unique constraint as invalid input with the
+    // given message; the database enforces uniqueness, and flushing surfaces the violation here rather than at commit
+    public static <T> T saveUnique(JpaRepository<T, ?> repository, T entity, String constraintName, String message) {
+        try {
+            return repository.saveAndFlush(entity);
+        } catch (DataIntegrityViolationException e) {
+            if (isViolated(e, constraintName)) {
+                throw new IllegalArgumentException(message);
+            }
+            throw e;
+        }
+    }
+
+    // true if the violation was raised by the named constraint, as reported by the database
+    public static boolean isViolated(DataIntegrityViolationException e, String constraintName) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                return constraintName.equalsIgnoreCase(((ConstraintViolationException) cause).getConstraintName());
+            }
+        }
+        return false;
+    }
+}
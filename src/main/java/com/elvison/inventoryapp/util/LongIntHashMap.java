@@ -0,0 +1,104 @@
+package com.elvison.inventoryapp.util;
+
+import java.util.Arrays;
+
+// open-addressing long -> int map with linear probing for packed keys on hot paths; values must be non-negative
+// so that -1 can mean absent. Not thread-safe, and clear() keeps the arrays for reuse.
+public final class LongIntHashMap {
+
+    public static final int ABSENT = -1;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return ABSENT;
+    }
+
+    // returns the current value, or ABSENT if the key was not present and has been added
+    public int putIfAbsent(long key, int value) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        if (++size * 4 > keys.length * 3) {
+            rehash();
+        }
+        return ABSENT;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                int i = slot(oldKeys[j], mask);
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                used[i] = true;
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        // murmur3 finalizer: packed keys tend to differ only in the low bits of each half
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
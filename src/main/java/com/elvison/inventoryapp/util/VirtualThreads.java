@@ -0,0 +1,54 @@
+package com.elvison.inventoryapp.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// virtual threads (Java 21+) looked up reflectively, the build still targets Java 8
+public final class VirtualThreads {
+    private static final Method NEW_EXECUTOR = method(Executors.class, "newVirtualThreadPerTaskExecutor");
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return NEW_EXECUTOR != null && OF_VIRTUAL != null;
+    }
+
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        return (ExecutorService) invoke(NEW_EXECUTOR, null);
+    }
+
+    // names the threads prefix0, prefix1, ... like Thread.ofVirtual().name(prefix, 0).factory()
+    public static ThreadFactory newThreadFactory(String prefix) {
+        Object builder = invoke(OF_VIRTUAL, null);
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a virtual thread factory", e);
+        }
+    }
+
+    private static Object invoke(Method method, Object target) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, running on Java " + System.getProperty("java.version"));
+        }
+        try {
+            return method.invoke(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual threads", e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.elvison.inventoryapp.aggregate;
+
+import com.elvison.inventoryapp.ledger.StockLedger;
+import com.elvison.inventoryapp.model.rest.StockTotal;
+import com.elvison.inventoryapp.repository.ProductRepository;
+import com.elvison.inventoryapp.repository.StockRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class StockTotalsTest {
+    private StockTotals stockTotals;
+    private StockRepository stockRepository;
+    private ProductRepository productRepository;
+    private StockLedger stockLedger;
+
+    @Before
+    public void setup() throws Exception {
+        stockRepository = Mockito.mock(StockRepository.class);
+        productRepository = Mockito.mock(ProductRepository.class);
+        stockLedger = Mockito.mock(StockLedger.class);
+        given(productRepository.findCategoryIdById(10)).willReturn(Optional.of(2));
+        given(productRepository.findCategoryIdById(11)).willReturn(Optional.of(3));
+
+        stockTotals = new StockTotals();
+        FieldSetter.setField(stockTotals, StockTotals.class.getDeclaredField("stockRepository"), stockRepository);
+        FieldSetter.setField(stockTotals, StockTotals.class.getDeclaredField("productRepository"), productRepository);
+        FieldSetter.setField(stockTotals, StockTotals.class.getDeclaredField("stockLedger"), stockLedger);
+        FieldSetter.setField(stockTotals, StockTotals.class.getDeclaredField("transactionManager"), Mockito.mock(PlatformTransactionManager.class));
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void GIVEN_deltas_WHEN_add_THEN_updates_every_total() {
+        stockTotals.add(10, 1, 100);
+        stockTotals.add(11, 1, 50);
+        stockTotals.add(10, 2, 30);
+        stockTotals.add(10, 1, -20);
+
+        Assert.assertEquals(110, stockTotals.getProductTotal(10));
+        Assert.assertEquals(130, stockTotals.getInventoryTotal(1));
+        Assert.assertEquals(110, stockTotals.getCategoryTotal(2));
+        Assert.assertEquals(80, stockTotals.getInventoryCategoryTotal(1, 2));
+        Assert.assertEquals(160, stockTotals.getTotal());
+        Assert.assertEquals(0, stockTotals.getProductTotal(12));
+        // the category of a product is looked up once
+        verify(productRepository, times(1)).findCategoryIdById(10);
+    }
+
+    @Test
+    public void GIVEN_transaction_WHEN_add_THEN_applies_deltas_after_commit_only() {
+        TransactionSynchronizationManager.initSynchronization();
+        stockTotals.add(10, 1, 100);
+        Assert.assertEquals(0, stockTotals.getProductTotal(10));
+
+        complete(true);
+        Assert.assertEquals(100, stockTotals.getProductTotal(10));
+
+        TransactionSynchronizationManager.initSynchronization();
+        stockTotals.add(10, 1, 100);
+        complete(false);
+        Assert.assertEquals(100, stockTotals.getProductTotal(10));
+    }
+
+    @Test
+    public void GIVEN_drifted_totals_WHEN_reconcile_THEN_rebuilds_from_database() {
+        stockTotals.add(10, 1, 999);
+        given(stockRepository.sumByProduct()).willReturn(Arrays.asList(StockTotal.of(10, null, 2, 100), StockTotal.of(11, null, 3, 50)));
+        given(stockRepository.sumByInventoryAndCategory()).willReturn(Arrays.asList(StockTotal.of(null, 1, 2, 70), StockTotal.of(null, 2, 2, 30), StockTotal.of(null, 1, 3, 50)));
+
+        stockTotals.reconcile();
+
+        Assert.assertEquals(100, stockTotals.getProductTotal(10));
+        Assert.assertEquals(120, stockTotals.getInventoryTotal(1));
+        Assert.assertEquals(100, stockTotals.getCategoryTotal(2));
+        Assert.assertEquals(30, stockTotals.getInventoryCategoryTotal(2, 2));
+        List<StockTotal> categoryTotals = stockTotals.getCategoryTotals(1);
+        Assert.assertEquals(2, categoryTotals.size());
+        Assert.assertEquals(Integer.valueOf(2), categoryTotals.get(0).getCategoryId());
+        Assert.assertEquals(70, categoryTotals.get(0).getQuantity());
+        Assert.assertEquals(Integer.valueOf(3), categoryTotals.get(1).getCategoryId());
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_WHEN_reconcile_THEN_flushes_ledger_first() throws Exception {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockRepository.sumByProduct()).willReturn(Collections.emptyList());
+        given(stockRepository.sumByInventoryAndCategory()).willReturn(Collections.emptyList());
+
+        stockTotals.reconcile();
+
+        verify(stockLedger, times(1)).flush();
+        Assert.assertEquals(0, stockTotals.getTotal());
+    }
+
+    @Test
+    public void GIVEN_product_moved_WHEN_commit_THEN_moves_stock_to_new_category() {
+        stockTotals.add(10, 1, 100);
+        stockTotals.add(10, 2, 30);
+        given(stockRepository.lockByProductId(10)).willReturn(Arrays.asList(StockTotal.of(10, 1, 2, 100), StockTotal.of(10, 2, 2, 30)));
+        given(productRepository.findCategoryIdById(10)).willReturn(Optional.of(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        stockTotals.moveProduct(10, 2, 3);
+        Assert.assertEquals(130, stockTotals.getCategoryTotal(2));
+
+        complete(true);
+        Assert.assertEquals(0, stockTotals.getCategoryTotal(2));
+        Assert.assertEquals(130, stockTotals.getCategoryTotal(3));
+        Assert.assertEquals(100, stockTotals.getInventoryCategoryTotal(1, 3));
+        Assert.assertEquals(130, stockTotals.getProductTotal(10));
+        // later deltas follow the product to its new category
+        stockTotals.add(10, 1, 5);
+        Assert.assertEquals(135, stockTotals.getCategoryTotal(3));
+    }
+
+    @Test
+    public void GIVEN_inventory_deleted_WHEN_commit_THEN_takes_its_stock_off_the_totals() {
+        stockTotals.add(10, 1, 100);
+        stockTotals.add(11, 1, 50);
+        stockTotals.add(10, 2, 30);
+        given(stockRepository.lockByInventoryId(1)).willReturn(Arrays.asList(StockTotal.of(10, 1, 2, 100), StockTotal.of(11, 1, 3, 50)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        stockTotals.removeInventory(1);
+        complete(true);
+
+        Assert.assertEquals(0, stockTotals.getInventoryTotal(1));
+        Assert.assertTrue(stockTotals.getCategoryTotals(1).isEmpty());
+        Assert.assertEquals(30, stockTotals.getProductTotal(10));
+        Assert.assertEquals(0, stockTotals.getProductTotal(11));
+        Assert.assertEquals(30, stockTotals.getCategoryTotal(2));
+        Assert.assertEquals(30, stockTotals.getTotal());
+        verify(stockRepository, never()).sumByProduct();
+    }
+
+    @Test
+    public void GIVEN_product_delete_rolled_back_WHEN_complete_THEN_keeps_totals() {
+        stockTotals.add(10, 1, 100);
+        given(stockRepository.lockByProductId(10)).willReturn(Collections.singletonList(StockTotal.of(10, 1, 2, 100)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        stockTotals.removeProduct(10);
+        complete(false);
+
+        Assert.assertEquals(100, stockTotals.getProductTotal(10));
+        Assert.assertEquals(100, stockTotals.getTotal());
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_WHEN_remove_category_THEN_takes_ledger_quantities_off() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        stockTotals.add(10, 1, 120);
+        given(stockRepository.lockByCategoryId(2)).willReturn(Collections.singletonList(StockTotal.of(10, 1, 2, 100)));
+        given(stockLedger.peekQuantity(10, 1)).willReturn(OptionalInt.of(120));
+
+        stockTotals.removeCategory(2);
+
+        Assert.assertEquals(0, stockTotals.getCategoryTotal(2));
+        Assert.assertEquals(0, stockTotals.getTotal());
+    }
+
+    private static void complete(boolean committed) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (committed) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(committed ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.elvison.inventoryapp.alert;
+
+import com.elvison.inventoryapp.model.StockAlert;
+import com.elvison.inventoryapp.model.StockThreshold;
+import com.elvison.inventoryapp.repository.StockAlertRepository;
+import com.elvison.inventoryapp.repository.StockThresholdRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class StockThresholdsTest {
+    private StockThresholds stockThresholds;
+    private StockAlertRepository alertRepository;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Before
+    public void setup() throws Exception {
+        StockThresholdRepository thresholdRepository = Mockito.mock(StockThresholdRepository.class);
+        given(thresholdRepository.findAll()).willReturn(Arrays.asList(StockThreshold.of(10, null, 20), StockThreshold.of(10, 2, 5)));
+        alertRepository = Mockito.mock(StockAlertRepository.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+
+        stockThresholds = new StockThresholds();
+        FieldSetter.setField(stockThresholds, StockThresholds.class.getDeclaredField("thresholdRepository"), thresholdRepository);
+        FieldSetter.setField(stockThresholds, StockThresholds.class.getDeclaredField("alertRepository"), alertRepository);
+        FieldSetter.setField(stockThresholds, StockThresholds.class.getDeclaredField("eventPublisher"), eventPublisher);
+        stockThresholds.load();
+    }
+
+    @Test
+    public void GIVEN_quantity_falling_to_threshold_WHEN_check_THEN_raises_low_alert() {
+        stockThresholds.check(10, 1, 25, 20);
+
+        verify(alertRepository, times(1)).save(argThat(a -> a.getType() == StockAlert.Type.LOW
+                && a.getProductId() == 10 && a.getInventoryId() == 1 && a.getThreshold() == 20
+                && a.getPreviousQuantity() == 25 && a.getQuantity() == 20));
+        verify(eventPublisher, times(1)).publishEvent(any(StockAlert.class));
+    }
+
+    @Test
+    public void GIVEN_quantity_rising_above_threshold_WHEN_check_THEN_raises_restocked_alert() {
+        stockThresholds.check(10, 1, 3, 21);
+
+        verify(alertRepository, times(1)).save(argThat(a -> a.getType() == StockAlert.Type.RESTOCKED && a.getQuantity() == 21));
+    }
+
+    @Test
+    public void GIVEN_quantity_staying_on_one_side_WHEN_check_THEN_raises_no_alert() {
+        stockThresholds.check(10, 1, 100, 21);
+        stockThresholds.check(10, 1, 20, 0);
+        stockThresholds.check(11, 1, 100, 0);
+
+        verify(alertRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void GIVEN_entry_threshold_WHEN_check_THEN_overrides_product_threshold() {
+        stockThresholds.check(10, 2, 30, 10);
+        verify(alertRepository, never()).save(any());
+
+        stockThresholds.check(10, 2, 10, 5);
+        verify(alertRepository, times(1)).save(argThat(a -> a.getType() == StockAlert.Type.LOW && a.getThreshold() == 5));
+    }
+
+    @Test
+    public void GIVEN_new_entry_below_threshold_WHEN_check_THEN_raises_low_alert() {
+        stockThresholds.check(10, 1, null, 0);
+        stockThresholds.check(10, 3, null, 50);
+
+        verify(alertRepository, times(1)).save(argThat(a -> a.getType() == StockAlert.Type.LOW && a.getPreviousQuantity() == null && a.getInventoryId() == 1));
+    }
+
+    @Test
+    public void GIVEN_removed_threshold_WHEN_check_THEN_falls_back_to_product_threshold() {
+        stockThresholds.remove(10, 2);
+        stockThresholds.set(11, 1, 0);
+
+        stockThresholds.check(10, 2, 30, 10);
+        stockThresholds.check(11, 1, 1, 0);
+
+        verify(alertRepository, times(2)).save(argThat(a -> a.getType() == StockAlert.Type.LOW));
+    }
+}
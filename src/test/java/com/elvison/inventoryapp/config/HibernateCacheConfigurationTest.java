@@ -0,0 +1,76 @@
+package com.elvison.inventoryapp.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.util.concurrent.TimeUnit;
+
+public class HibernateCacheConfigurationTest {
+
+    private HibernateCacheConfiguration configuration;
+    private CacheManager cacheManager;
+
+    @Before
+    public void setup() {
+        configuration = new HibernateCacheConfiguration();
+        cacheManager = configuration.hibernateCacheManager(10, 20, 30, 1, 2, 3, 60000, 30000);
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    public void GIVEN_region_sizes_WHEN_create_cache_manager_THEN_creates_bounded_regions() {
+        Assert.assertEquals(30, maximumSize(HibernateCacheConfiguration.PRODUCTS));
+        Assert.assertEquals(2, maximumSize(HibernateCacheConfiguration.INVENTORY_QUERIES));
+        Assert.assertNotNull(cacheManager.getCache("default-update-timestamps-region"));
+        Assert.assertNotNull(cacheManager.getCache("default-query-results-region"));
+        for (String region : cacheManager.getCacheNames()) {
+            Assert.assertTrue(region, configurationOf(region).getMaximumSize().isPresent());
+        }
+    }
+
+    @Test
+    public void GIVEN_ttls_WHEN_create_cache_manager_THEN_expires_entity_and_query_regions_but_not_update_timestamps() {
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(60), configurationOf(HibernateCacheConfiguration.CATEGORIES).getExpireAfterWrite().getAsLong());
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(30), configurationOf(HibernateCacheConfiguration.PRODUCT_QUERIES).getExpireAfterWrite().getAsLong());
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(30), configurationOf("default-query-results-region").getExpireAfterWrite().getAsLong());
+        Assert.assertFalse(configurationOf("default-update-timestamps-region").getExpireAfterWrite().isPresent());
+    }
+
+    @Test
+    public void GIVEN_region_reads_WHEN_bind_metrics_THEN_counts_hits_and_misses_per_region() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        configuration.hibernateCacheMetrics(cacheManager).bindTo(meterRegistry);
+
+        Cache<Object, Object> products = cacheManager.getCache(HibernateCacheConfiguration.PRODUCTS);
+        products.put(1, "One");
+        products.get(1);
+        products.get(2);
+
+        Assert.assertEquals(1, meterRegistry.get("cache.gets")
+                .tags("cache", HibernateCacheConfiguration.PRODUCTS, "result", "hit")
+                .functionCounter().count(), 0);
+        Assert.assertEquals(1, meterRegistry.get("cache.gets")
+                .tags("cache", HibernateCacheConfiguration.PRODUCTS, "result", "miss")
+                .functionCounter().count(), 0);
+    }
+
+    private long maximumSize(String region) {
+        return configurationOf(region).getMaximumSize().getAsLong();
+    }
+
+    @SuppressWarnings("unchecked")
+    private CaffeineConfiguration<Object, Object> configurationOf(String region) {
+        return cacheManager.getCache(region).getConfiguration(CaffeineConfiguration.class);
+    }
+}
@@ -0,0 +1,91 @@
+package com.elvison.inventoryapp.config;
+
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.model.Category;
+import com.elvison.inventoryapp.repository.CategoryRepository;
+import com.elvison.inventoryapp.service.CategoryService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+
+import static org.mockito.BDDMockito.given;
+
+public class ServiceMetricsAspectTest {
+
+    private MeterRegistry meterRegistry;
+    private CategoryRepository categoryRepository;
+    private CategoryService service;
+
+    @Before
+    public void setup() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        categoryRepository = Mockito.mock(CategoryRepository.class);
+
+        CategoryService target = new CategoryService();
+        FieldSetter.setField(target, CategoryService.class.getDeclaredField("categoryRepository"), categoryRepository);
+        ServiceMetricsAspect aspect = new ServiceMetricsAspect();
+        FieldSetter.setField(aspect, ServiceMetricsAspect.class.getDeclaredField("meterRegistry"), meterRegistry);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(aspect);
+        service = factory.getProxy();
+    }
+
+    @Test
+    public void GIVEN_service_call_WHEN_completed_THEN_records_timer() {
+        given(categoryRepository.findById(1)).willReturn(Optional.of(Category.of(1, "Food")));
+
+        service.getCategory(1);
+        service.getCategory(1);
+
+        Timer timer = meterRegistry.find(ServiceMetricsAspect.TIMER_NAME)
+                .tags("service", "CategoryService", "method", "getCategory", "exception", "none")
+                .timer();
+        Assert.assertNotNull(timer);
+        Assert.assertEquals(2, timer.count());
+    }
+
+    @Test
+    public void GIVEN_service_call_WHEN_completed_THEN_records_allocated_bytes() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        given(categoryRepository.findById(1)).willReturn(Optional.of(Category.of(1, "Food")));
+
+        service.getCategory(1);
+
+        DistributionSummary allocated = meterRegistry.find(ServiceMetricsAspect.ALLOCATED_NAME)
+                .tags("service", "CategoryService", "method", "getCategory", "exception", "none")
+                .summary();
+        Assert.assertNotNull(allocated);
+        Assert.assertEquals(1, allocated.count());
+        Assert.assertTrue(allocated.totalAmount() >= 0);
+    }
+
+    @Test
+    public void GIVEN_service_call_WHEN_failed_THEN_records_timer_with_exception() {
+        given(categoryRepository.existsById(1)).willReturn(false);
+
+        try {
+            service.deleteCategory(1);
+            Assert.fail();
+        } catch (ResourceNotFoundException e) {
+            // expected
+        }
+
+        Timer timer = meterRegistry.find(ServiceMetricsAspect.TIMER_NAME)
+                .tags("method", "deleteCategory", "exception", "ResourceNotFoundException")
+                .timer();
+        Assert.assertNotNull(timer);
+        Assert.assertEquals(1, timer.count());
+    }
+}
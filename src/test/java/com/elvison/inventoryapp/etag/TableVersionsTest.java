@@ -0,0 +1,120 @@
+package com.elvison.inventoryapp.etag;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.*;
+
+public class TableVersionsTest {
+    private TableVersions tableVersions;
+    private JdbcTemplate jdbcTemplate;
+    private EntityManager entityManager;
+
+    @Before
+    public void setup() throws Exception {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        entityManager = Mockito.mock(EntityManager.class);
+
+        tableVersions = new TableVersions();
+        FieldSetter.setField(tableVersions, TableVersions.class.getDeclaredField("jdbcTemplate"), jdbcTemplate);
+        FieldSetter.setField(tableVersions, TableVersions.class.getDeclaredField("entityManager"), entityManager);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void GIVEN_version_sums_WHEN_get_etag_THEN_tags_versions_of_given_tables_in_order() throws Exception {
+        willAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row("categories", 3));
+            handler.processRow(row("products", 7));
+            handler.processRow(row("stocks", 12));
+            return null;
+        }).given(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        Assert.assertEquals("\"v-12-7\"", tableVersions.getETag(TableVersions.Table.STOCKS, TableVersions.Table.PRODUCTS));
+        Assert.assertEquals("\"v-3\"", tableVersions.getETag(TableVersions.Table.CATEGORIES));
+    }
+
+    @Test
+    public void GIVEN_change_outside_transaction_WHEN_changed_THEN_increments_versions_at_once() {
+        tableVersions.changed(TableVersions.Table.STOCKS, TableVersions.Table.PRODUCTS);
+
+        List<Object[]> rows = incrementedNames();
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals("products", rows.get(0)[0]);
+        Assert.assertEquals("stocks", rows.get(1)[0]);
+        // one shard of each table, the same for both
+        int shard = (Integer) rows.get(0)[1];
+        Assert.assertTrue(shard >= 0 && shard < 16);
+        Assert.assertEquals(shard, rows.get(1)[1]);
+        verify(entityManager, never()).flush();
+    }
+
+    @Test
+    public void GIVEN_change_in_transaction_WHEN_commit_THEN_increments_versions_once_after_flush() {
+        TransactionSynchronizationManager.initSynchronization();
+        tableVersions.changed(TableVersions.Table.PRODUCTS);
+        tableVersions.changed(TableVersions.Table.PRODUCTS, TableVersions.Table.STOCKS);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        Assert.assertEquals(1, synchronizations.size());
+        synchronizations.get(0).beforeCommit(false);
+        Assert.assertEquals(2, incrementedNames().size());
+        verify(entityManager, times(1)).flush();
+
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        Assert.assertFalse(TransactionSynchronizationManager.hasResource(tableVersions));
+    }
+
+    @Test
+    public void GIVEN_change_in_transaction_WHEN_rolled_back_THEN_leaves_versions() {
+        TransactionSynchronizationManager.initSynchronization();
+        tableVersions.changed(TableVersions.Table.CATEGORIES);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        Assert.assertFalse(TransactionSynchronizationManager.hasResource(tableVersions));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> incrementedNames() {
+        ArgumentCaptor<List<Object[]>> names = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), names.capture());
+        return names.getValue();
+    }
+
+    private static ResultSet row(String name, long version) throws Exception {
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        given(rs.getString(1)).willReturn(name);
+        given(rs.getLong(2)).willReturn(version);
+        return rs;
+    }
+}
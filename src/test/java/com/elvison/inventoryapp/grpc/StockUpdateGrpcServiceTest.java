@@ -0,0 +1,180 @@
+package com.elvison.inventoryapp.grpc;
+
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.service.StockService;
+import com.elvison.inventoryapp.service.StockUpdatePipeline;
+import com.google.protobuf.Int32Value;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class StockUpdateGrpcServiceTest {
+    private StockService stockService;
+    private StockUpdatePipeline stockUpdatePipeline;
+    private Server server;
+    private ManagedChannel channel;
+
+    @Before
+    public void setup() throws Exception {
+        stockService = Mockito.mock(StockService.class);
+        stockUpdatePipeline = Mockito.mock(StockUpdatePipeline.class);
+
+        StockUpdateGrpcService service = new StockUpdateGrpcService();
+        FieldSetter.setField(service, StockUpdateGrpcService.class.getDeclaredField("window"), 2);
+        FieldSetter.setField(service, StockUpdateGrpcService.class.getDeclaredField("stockService"), stockService);
+        FieldSetter.setField(service, StockUpdateGrpcService.class.getDeclaredField("stockUpdatePipeline"), stockUpdatePipeline);
+        FieldSetter.setField(service, StockUpdateGrpcService.class.getDeclaredField("validationHelper"), new StockRequestValidationHelper());
+
+        server = NettyServerBuilder.forPort(0).addService(service).build().start();
+        channel = NettyChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext().build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void GIVEN_updates_WHEN_update_stock_THEN_answers_each_update_in_order() throws Exception {
+        willThrow(new ResourceNotFoundException("Stock entry not found"))
+                .given(stockService).updateStockEntry(argThat(r -> r.getProductId() == 2));
+
+        ResultCollector results = new ResultCollector();
+        StreamObserver<StockUpdate> updates = StockUpdateServiceGrpc.newStub(channel).updateStock(results);
+        updates.onNext(update(1, 1, 1, 10));
+        updates.onNext(update(2, 2, 1, 10));
+        updates.onNext(update(3, 1, 1, -1));
+        updates.onNext(update(4, 1, 2, 20));
+        updates.onCompleted();
+
+        Assert.assertTrue(results.completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(4, results.received.size());
+        Assert.assertEquals(StockUpdateResult.Status.OK, results.received.get(0).getStatus());
+        Assert.assertEquals(StockUpdateResult.Status.NOT_FOUND, results.received.get(1).getStatus());
+        Assert.assertEquals("Stock entry not found", results.received.get(1).getMessage());
+        Assert.assertEquals(StockUpdateResult.Status.BAD_REQUEST, results.received.get(2).getStatus());
+        Assert.assertEquals("Quantity is invalid", results.received.get(2).getMessage());
+        Assert.assertEquals(StockUpdateResult.Status.OK, results.received.get(3).getStatus());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(i + 1, results.received.get(i).getSequence());
+        }
+        verify(stockService, times(1)).updateStockEntry(argThat(r -> r.getProductId() == 1 && r.getInventoryId() == 2 && r.getQuantity() == 20));
+        verify(stockService, times(3)).updateStockEntry(any());
+    }
+
+    @Test
+    public void GIVEN_update_without_quantity_WHEN_update_stock_THEN_answers_bad_request() throws Exception {
+        ResultCollector results = new ResultCollector();
+        StreamObserver<StockUpdate> updates = StockUpdateServiceGrpc.newStub(channel).updateStock(results);
+        updates.onNext(StockUpdate.newBuilder().setSequence(1).setProductId(1).setInventoryId(1).build());
+        updates.onCompleted();
+
+        Assert.assertTrue(results.completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, results.received.size());
+        Assert.assertEquals(StockUpdateResult.Status.BAD_REQUEST, results.received.get(0).getStatus());
+        Assert.assertEquals("Quantity is invalid", results.received.get(0).getMessage());
+        verify(stockService, times(0)).updateStockEntry(any());
+    }
+
+    @Test
+    public void GIVEN_update_without_ids_WHEN_update_stock_THEN_answers_bad_request() throws Exception {
+        ResultCollector results = new ResultCollector();
+        StreamObserver<StockUpdate> updates = StockUpdateServiceGrpc.newStub(channel).updateStock(results);
+        updates.onNext(StockUpdate.newBuilder().setSequence(1).setInventoryId(1).setQuantity(Int32Value.of(10)).build());
+        updates.onNext(update(2, 1, -1, 10));
+        updates.onCompleted();
+
+        Assert.assertTrue(results.completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, results.received.size());
+        Assert.assertEquals(StockUpdateResult.Status.BAD_REQUEST, results.received.get(0).getStatus());
+        Assert.assertEquals("Product ID is invalid", results.received.get(0).getMessage());
+        Assert.assertEquals(StockUpdateResult.Status.BAD_REQUEST, results.received.get(1).getStatus());
+        Assert.assertEquals("Inventory ID is invalid", results.received.get(1).getMessage());
+        verify(stockService, times(0)).updateStockEntry(any());
+    }
+
+    @Test
+    public void GIVEN_pipeline_WHEN_update_stock_THEN_reads_no_more_than_window_ahead_of_results() throws Exception {
+        BlockingQueue<CompletableFuture<Void>> pending = new LinkedBlockingQueue<>();
+        given(stockUpdatePipeline.isEnabled()).willReturn(true);
+        given(stockUpdatePipeline.submit(any())).willAnswer(invocation -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        });
+
+        ResultCollector results = new ResultCollector();
+        StreamObserver<StockUpdate> updates = StockUpdateServiceGrpc.newStub(channel).updateStock(results);
+        for (int i = 1; i <= 4; i++) {
+            updates.onNext(update(i, i, 1, 10));
+        }
+        updates.onCompleted();
+
+        verify(stockUpdatePipeline, timeout(5000).times(2)).submit(any());
+        Thread.sleep(200);
+        verify(stockUpdatePipeline, times(2)).submit(any());
+
+        for (int i = 0; i < 4; i++) {
+            pending.poll(5, TimeUnit.SECONDS).complete(null);
+        }
+        Assert.assertTrue(results.completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(4, results.received.size());
+        Assert.assertTrue(results.received.stream().allMatch(r -> r.getStatus() == StockUpdateResult.Status.OK));
+        verify(stockService, times(0)).updateStockEntry(any());
+    }
+
+    private static StockUpdate update(long sequence, int productId, int inventoryId, int quantity) {
+        return StockUpdate.newBuilder()
+                .setSequence(sequence)
+                .setProductId(productId)
+                .setInventoryId(inventoryId)
+                .setQuantity(Int32Value.of(quantity))
+                .build();
+    }
+
+    private static class ResultCollector implements StreamObserver<StockUpdateResult> {
+        private final List<StockUpdateResult> received = new ArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public synchronized void onNext(StockUpdateResult result) {
+            received.add(result);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            Assert.fail(t.toString());
+        }
+
+        @Override
+        public void onCompleted() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.elvison.inventoryapp.helper;
+
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncExecutionHelperTest {
+
+    private ThreadPoolTaskExecutor executor;
+    private AsyncExecutionHelper helper;
+
+    @Before
+    public void setup() throws Exception {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+
+        helper = new AsyncExecutionHelper();
+        FieldSetter.setField(helper, AsyncExecutionHelper.class.getDeclaredField("workerThreadPool"), executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void GIVEN_supplier_WHEN_supply_THEN_completes_on_worker_thread() throws Exception {
+        String thread = helper.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        Assert.assertNotEquals(Thread.currentThread().getName(), thread);
+    }
+
+    @Test
+    public void GIVEN_failing_supplier_WHEN_supply_THEN_completes_with_original_exception() throws Exception {
+        CompletableFuture<Object> future = helper.supply(() -> {
+            throw new ResourceNotFoundException("not found");
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ResourceNotFoundException);
+        }
+    }
+
+    @Test(expected = TaskRejectedException.class)
+    public void GIVEN_saturated_pool_WHEN_supply_THEN_throws_task_rejected_exception() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // one task runs, one waits in the queue, the third has nowhere to go
+            helper.run(() -> await(release));
+            helper.run(() -> await(release));
+            helper.run(() -> await(release));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.elvison.inventoryapp.helper;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.FieldSetter;
+
+public class NameSearchHelperTest {
+
+    private NameSearchHelper helper;
+
+    @Before
+    public void setup() throws Exception {
+        helper = new NameSearchHelper();
+        FieldSetter.setField(helper, NameSearchHelper.class.getDeclaredField("defaultLimit"), 20);
+        FieldSetter.setField(helper, NameSearchHelper.class.getDeclaredField("maxLimit"), 100);
+    }
+
+    @Test
+    public void GIVEN_query_with_wildcards_WHEN_term_THEN_escapes_wildcards() {
+        Assert.assertEquals("50\\% off\\_x\\\\", helper.term(" 50% off_x\\ "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_blank_query_WHEN_term_THEN_throws_exception() {
+        helper.term("  ");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_null_query_WHEN_term_THEN_throws_exception() {
+        helper.term(null);
+    }
+
+    @Test
+    public void GIVEN_known_modes_WHEN_is_substring_mode_THEN_matches_case_insensitively() {
+        Assert.assertFalse(helper.isSubstringMode(null));
+        Assert.assertFalse(helper.isSubstringMode("Prefix"));
+        Assert.assertTrue(helper.isSubstringMode("SUBSTRING"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_unknown_mode_WHEN_is_substring_mode_THEN_throws_exception() {
+        helper.isSubstringMode("fuzzy");
+    }
+
+    @Test
+    public void GIVEN_no_limit_WHEN_limit_THEN_returns_default() {
+        Assert.assertEquals(20, helper.limit(null));
+        Assert.assertEquals(100, helper.limit(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_limit_above_max_WHEN_limit_THEN_throws_exception() {
+        helper.limit(101);
+    }
+}
@@ -1,6 +1,8 @@
 package com.elvison.inventoryapp.helper;
 
+import com.elvison.inventoryapp.model.rest.StockAdjustmentRequest;
 import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.model.rest.StockThresholdRequest;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -11,11 +13,15 @@ public class StockRequestValidationHelperTest {
 
     private StockRequestValidationHelper helper;
     private StockEntryRequest request;
+    private StockAdjustmentRequest adjustmentRequest;
+    private StockThresholdRequest thresholdRequest;
 
     @Before
     public void setup() {
         helper = new StockRequestValidationHelper();
         request = Mockito.mock(StockEntryRequest.class);
+        adjustmentRequest = Mockito.mock(StockAdjustmentRequest.class);
+        thresholdRequest = Mockito.mock(StockThresholdRequest.class);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -54,9 +60,63 @@ public class StockRequestValidationHelperTest {
         helper.validate(request);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_adjustment_with_null_inventory_WHEN_validate_THEN_throws_exception() {
+        updateAdjustmentMock(null, 2, 3);
+        helper.validateAdjustment(adjustmentRequest);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_adjustment_with_null_product_WHEN_validate_THEN_throws_exception() {
+        updateAdjustmentMock(1, null, 3);
+        helper.validateAdjustment(adjustmentRequest);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_adjustment_with_null_delta_WHEN_validate_THEN_throws_exception() {
+        updateAdjustmentMock(1, 2, null);
+        helper.validateAdjustment(adjustmentRequest);
+    }
+
+    @Test
+    public void GIVEN_adjustment_with_negative_delta_WHEN_validate_THEN_no_errors() {
+        updateAdjustmentMock(1, 2, -2);
+        helper.validateAdjustment(adjustmentRequest);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_threshold_request_with_null_product_WHEN_validate_threshold_THEN_throws_exception() {
+        updateThresholdMock(null, 2, 3);
+        helper.validateThreshold(thresholdRequest);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_threshold_request_with_negative_threshold_WHEN_validate_threshold_THEN_throws_exception() {
+        updateThresholdMock(1, 2, -1);
+        helper.validateThreshold(thresholdRequest);
+    }
+
+    @Test
+    public void GIVEN_threshold_request_without_inventory_WHEN_validate_threshold_THEN_no_errors() {
+        updateThresholdMock(1, null, 0);
+        helper.validateThreshold(thresholdRequest);
+    }
+
     private void updateMock(Integer inventoryId, Integer productId, Integer quantity) {
         given(request.getInventoryId()).willReturn(inventoryId);
         given(request.getProductId()).willReturn(productId);
         given(request.getQuantity()).willReturn(quantity);
     }
+
+    private void updateAdjustmentMock(Integer inventoryId, Integer productId, Integer delta) {
+        given(adjustmentRequest.getInventoryId()).willReturn(inventoryId);
+        given(adjustmentRequest.getProductId()).willReturn(productId);
+        given(adjustmentRequest.getDelta()).willReturn(delta);
+    }
+
+    private void updateThresholdMock(Integer productId, Integer inventoryId, Integer threshold) {
+        given(thresholdRequest.getProductId()).willReturn(productId);
+        given(thresholdRequest.getInventoryId()).willReturn(inventoryId);
+        given(thresholdRequest.getThreshold()).willReturn(threshold);
+    }
 }
@@ -0,0 +1,383 @@
+package com.elvison.inventoryapp.ledger;
+
+import com.elvison.inventoryapp.exception.InternalServerException;
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.repository.StockRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class StockLedgerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StockLedger ledger;
+    private StockRepository stockRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setup() throws Exception {
+        stockRepository = Mockito.mock(StockRepository.class);
+        transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        given(transactionTemplate.execute(any())).willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        given(stockRepository.updateQuantities(any())).willAnswer(invocation -> {
+            List<StockEntry> entries = invocation.getArgument(0);
+            int[] updated = new int[entries.size()];
+            Arrays.fill(updated, 1);
+            return updated;
+        });
+
+        ledger = ledger(folder.getRoot());
+        ledger.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        ledger.stop();
+    }
+
+    @Test
+    public void GIVEN_entry_not_in_memory_WHEN_get_quantity_THEN_loads_from_repository_once() {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+
+        Assert.assertEquals(OptionalInt.of(100), ledger.getQuantity(10, 1));
+        Assert.assertEquals(OptionalInt.of(100), ledger.getQuantity(10, 1));
+        verify(stockRepository, times(1)).findById(any());
+    }
+
+    @Test
+    public void GIVEN_non_existing_entry_WHEN_adjust_quantity_THEN_returns_empty() {
+        given(stockRepository.findById(any())).willReturn(Optional.empty());
+
+        Assert.assertFalse(ledger.adjustQuantity(10, 1, 5).isPresent());
+        Assert.assertFalse(ledger.setQuantity(10, 1, 5));
+    }
+
+    @Test
+    public void GIVEN_insufficient_stock_WHEN_adjust_quantity_THEN_returns_empty_and_keeps_quantity() {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+
+        Assert.assertFalse(ledger.adjustQuantity(10, 1, -101).isPresent());
+        Assert.assertEquals(OptionalInt.of(100), ledger.peekQuantity(10, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_overflowing_delta_WHEN_adjust_quantity_THEN_throws_exception() {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, Integer.MAX_VALUE)));
+
+        ledger.adjustQuantity(10, 1, 1);
+    }
+
+    @Test
+    public void GIVEN_changed_entries_WHEN_flush_THEN_persists_latest_quantities_once() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        given(stockRepository.findById(eq(StockEntryId.of(11, 1)))).willReturn(Optional.of(StockEntry.of(11, 1, 100)));
+
+        ledger.adjustQuantity(10, 1, -5);
+        ledger.adjustQuantity(10, 1, -5);
+        ledger.setQuantity(11, 1, 70);
+        ledger.flush();
+        ledger.flush();
+
+        verify(stockRepository, times(1)).updateQuantities(argThat(c -> c.size() == 2
+                && c.stream().anyMatch(e -> e.getId().getProductId() == 10 && e.getQuantity() == 90)
+                && c.stream().anyMatch(e -> e.getId().getProductId() == 11 && e.getQuantity() == 70)));
+        Assert.assertEquals(1, walSegments());
+    }
+
+    @Test
+    public void GIVEN_failed_flush_WHEN_flush_again_THEN_retries_changes() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        ledger.setQuantity(10, 1, 50);
+
+        doThrow(RuntimeException.class).doReturn(new int[]{1}).when(stockRepository).updateQuantities(any());
+        try {
+            ledger.flush();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        ledger.flush();
+
+        verify(stockRepository, times(2)).updateQuantities(argThat(c -> c.size() == 1 && c.get(0).getQuantity() == 50));
+    }
+
+    @Test
+    public void GIVEN_row_deleted_WHEN_flush_THEN_drops_entry_from_memory() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        ledger.setQuantity(10, 1, 50);
+        doReturn(new int[]{0}).when(stockRepository).updateQuantities(any());
+
+        ledger.flush();
+
+        Assert.assertFalse(ledger.peekQuantity(10, 1).isPresent());
+    }
+
+    @Test
+    public void GIVEN_deleted_product_WHEN_evict_THEN_rejects_later_changes_and_skips_flush() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        given(stockRepository.findById(eq(StockEntryId.of(11, 1)))).willReturn(Optional.of(StockEntry.of(11, 1, 100)));
+        ledger.setQuantity(10, 1, 50);
+        ledger.getQuantity(11, 1);
+
+        ledger.evictProductsLater(Collections.singletonList(10));
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.empty());
+
+        Assert.assertFalse(ledger.peekQuantity(10, 1).isPresent());
+        Assert.assertFalse(ledger.setQuantity(10, 1, 40));
+        Assert.assertEquals(OptionalInt.of(100), ledger.peekQuantity(11, 1));
+        ledger.flush();
+        verify(stockRepository, never()).updateQuantities(any());
+    }
+
+    @Test
+    public void GIVEN_deleted_inventory_WHEN_evict_THEN_drops_its_entries_only() {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        given(stockRepository.findById(eq(StockEntryId.of(10, 2)))).willReturn(Optional.of(StockEntry.of(10, 2, 100)));
+        ledger.getQuantity(10, 1);
+        ledger.getQuantity(10, 2);
+
+        ledger.evictInventoryLater(2);
+
+        Assert.assertEquals(OptionalInt.of(100), ledger.peekQuantity(10, 1));
+        Assert.assertFalse(ledger.peekQuantity(10, 2).isPresent());
+    }
+
+    @Test
+    public void GIVEN_unflushed_changes_WHEN_restarted_THEN_recovers_from_log() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        ledger.adjustQuantity(10, 1, -30);
+
+        // simulates a crash: the second ledger starts on the same log without the first one flushing
+        StockLedger recovered = ledger(folder.getRoot());
+        recovered.start();
+        try {
+            verify(stockRepository, times(1)).updateQuantities(argThat(c -> c.size() == 1 && c.get(0).getQuantity() == 70));
+            Assert.assertEquals(OptionalInt.of(70), recovered.peekQuantity(10, 1));
+        } finally {
+            recovered.stop();
+        }
+    }
+
+    @Test
+    public void GIVEN_concurrent_adjustments_WHEN_applied_THEN_no_update_is_lost() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            given(stockRepository.findById(eq(StockEntryId.of(10 + i, 1)))).willReturn(Optional.of(StockEntry.of(10 + i, 1, 0)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    ledger.adjustQuantity(10 + i % 8, 1, 1);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 8; i++) {
+            Assert.assertEquals(OptionalInt.of(1000), ledger.peekQuantity(10 + i, 1));
+        }
+    }
+
+    @Test
+    public void GIVEN_concurrent_fsynced_changes_WHEN_restarted_THEN_recovers_every_change() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            given(stockRepository.findById(eq(StockEntryId.of(10 + i, 1)))).willReturn(Optional.of(StockEntry.of(10 + i, 1, 0)));
+        }
+        File directory = folder.newFolder();
+        StockLedger synced = ledger(directory, true);
+        synced.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    synced.adjustQuantity(10 + i % 8, 1, 1);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // every acknowledged change is in the log, whichever thread wrote its record
+        StockLedger recovered = ledger(directory, true);
+        recovered.start();
+        try {
+            for (int i = 0; i < 8; i++) {
+                Assert.assertEquals(OptionalInt.of(200), recovered.peekQuantity(10 + i, 1));
+            }
+        } finally {
+            recovered.stop();
+            synced.stop();
+        }
+    }
+
+    @Test
+    public void GIVEN_many_entries_WHEN_inserted_THEN_all_remain_reachable() {
+        given(stockRepository.findById(any())).willAnswer(invocation -> {
+            StockEntryId id = invocation.getArgument(0);
+            return Optional.of(StockEntry.of(id.getProductId(), id.getInventoryId(), id.getProductId()));
+        });
+
+        for (int i = 0; i < 5000; i++) {
+            ledger.getQuantity(i, 1);
+        }
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals(OptionalInt.of(i), ledger.peekQuantity(i, 1));
+        }
+    }
+
+    @Test
+    public void GIVEN_changes_in_transaction_WHEN_rolled_back_THEN_restores_quantities() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        given(stockRepository.findById(eq(StockEntryId.of(11, 1)))).willReturn(Optional.of(StockEntry.of(11, 1, 100)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.adjustQuantity(10, 1, -5);
+        ledger.setQuantity(10, 1, 20);
+        ledger.setQuantity(11, 1, 70);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Assert.assertEquals(OptionalInt.of(100), ledger.peekQuantity(10, 1));
+        Assert.assertEquals(OptionalInt.of(100), ledger.peekQuantity(11, 1));
+        Assert.assertFalse(TransactionSynchronizationManager.hasResource(ledger));
+
+        // the compensation is persisted like any other change
+        ledger.flush();
+        verify(stockRepository, times(1)).updateQuantities(argThat(c -> c.size() == 2 && c.stream().allMatch(e -> e.getQuantity() == 100)));
+    }
+
+    @Test
+    public void GIVEN_rolled_back_adjustment_WHEN_other_change_applied_on_top_THEN_reverts_delta_only() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        ledger.getQuantity(10, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.adjustQuantity(10, 1, -5);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // committed outside the transaction before it rolls back
+        ledger.adjustQuantity(10, 1, -10);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Assert.assertEquals(OptionalInt.of(90), ledger.peekQuantity(10, 1));
+    }
+
+    @Test
+    public void GIVEN_rolled_back_set_WHEN_replaced_since_THEN_keeps_later_quantity() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        ledger.getQuantity(10, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.setQuantity(10, 1, 50);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        ledger.setQuantity(10, 1, 30);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Assert.assertEquals(OptionalInt.of(30), ledger.peekQuantity(10, 1));
+    }
+
+    @Test
+    public void GIVEN_changes_in_transaction_WHEN_committed_THEN_keeps_quantities() {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.adjustQuantity(10, 1, -5);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        Assert.assertEquals(OptionalInt.of(95), ledger.peekQuantity(10, 1));
+    }
+
+    @Test
+    public void GIVEN_failed_log_write_WHEN_changed_again_THEN_fails_only_lost_change_and_logs_to_new_segment() throws Exception {
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+        ledger.getQuantity(10, 1);
+        logChannel().close();
+
+        try {
+            ledger.setQuantity(10, 1, 50);
+            Assert.fail();
+        } catch (InternalServerException e) {
+            // expected
+        }
+        Assert.assertFalse(ledger.isLogWritable());
+        Assert.assertEquals(1, ledger.getFailedLogWrites());
+
+        Assert.assertTrue(ledger.setQuantity(10, 1, 40));
+        Assert.assertTrue(ledger.isLogWritable());
+        Assert.assertEquals(2, walSegments());
+
+        ledger.flush();
+        verify(stockRepository, times(1)).updateQuantities(argThat(c -> c.size() == 1 && c.get(0).getQuantity() == 40));
+        Assert.assertEquals(1, walSegments());
+    }
+
+    private FileChannel logChannel() throws Exception {
+        Field walField = StockLedger.class.getDeclaredField("wal");
+        walField.setAccessible(true);
+        Field channelField = StockLedgerWal.class.getDeclaredField("channel");
+        channelField.setAccessible(true);
+        return (FileChannel) channelField.get(walField.get(ledger));
+    }
+
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+
+    private StockLedger ledger(File directory) throws Exception {
+        return ledger(directory, false);
+    }
+
+    private StockLedger ledger(File directory, boolean fsync) throws Exception {
+        StockLedger ledger = new StockLedger();
+        FieldSetter.setField(ledger, StockLedger.class.getDeclaredField("stockRepository"), stockRepository);
+        FieldSetter.setField(ledger, StockLedger.class.getDeclaredField("transactionTemplate"), transactionTemplate);
+        FieldSetter.setField(ledger, StockLedger.class.getDeclaredField("enabled"), true);
+        FieldSetter.setField(ledger, StockLedger.class.getDeclaredField("stripeCount"), 4);
+        // long enough that only explicit flushes run during a test
+        FieldSetter.setField(ledger, StockLedger.class.getDeclaredField("flushIntervalMs"), 60000L);
+        FieldSetter.setField(ledger, StockLedger.class.getDeclaredField("walDirectory"), directory.getAbsolutePath());
+        FieldSetter.setField(ledger, StockLedger.class.getDeclaredField("fsync"), fsync);
+        return ledger;
+    }
+
+    private int walSegments() {
+        return folder.getRoot().list((dir, name) -> name.endsWith(".wal")).length;
+    }
+}
@@ -1,13 +1,25 @@
 package com.elvison.inventoryapp.rest;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.alert.StockThresholds;
+import com.elvison.inventoryapp.etag.TableVersions;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.service.CategoryService;
 import com.elvison.inventoryapp.service.InventoryService;
 import com.elvison.inventoryapp.service.ProductService;
+import com.elvison.inventoryapp.service.StockAlertService;
 import com.elvison.inventoryapp.service.StockService;
+import com.elvison.inventoryapp.service.StockUpdatePipeline;
+import com.elvison.inventoryapp.snapshot.CatalogSnapshots;
+import com.elvison.inventoryapp.stream.StockChangeStream;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
+// the list endpoints write their unfiltered pages through the real snapshots, over the mocked services
+@Import(CatalogSnapshots.class)
 public abstract class BaseWebMvcTest {
     @Autowired
     protected MockMvc mvc;
@@ -23,4 +35,29 @@ public abstract class BaseWebMvcTest {
 
     @MockBean
     protected ProductService productService;
+
+    @MockBean
+    protected StockUpdatePipeline stockUpdatePipeline;
+
+    @MockBean
+    protected StockLedger stockLedger;
+
+    @MockBean
+    protected StockTotals stockTotals;
+
+    @MockBean
+    protected StockThresholds stockThresholds;
+
+    @MockBean
+    protected StockAlertService stockAlertService;
+
+    @MockBean
+    protected StockChangeStream stockChangeStream;
+
+    @MockBean
+    protected TableVersions tableVersions;
+
+    // needed by ServiceMetricsAspect, which the web slice does not apply
+    @MockBean
+    protected MeterRegistry meterRegistry;
 }
@@ -1,11 +1,19 @@
 package com.elvison.inventoryapp.rest;
 
+import com.elvison.inventoryapp.config.WebConfiguration;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.model.Category;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.*;
 
@@ -14,6 +22,7 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.Is.isA;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -36,11 +45,37 @@ public class CategoryControllerTest extends BaseWebMvcTest {
                 .createCategory(argThat(r -> "One".equals(r.getName())));
     }
 
+    @Test
+    public void searchCategoriesTest() throws Exception {
+        given(categoryService.searchCategories(argThat("on"::equals), argThat("substring"::equals), intThat(i -> i == 5)))
+                .willReturn(Collections.singletonList(Category.of(1, "One")));
+
+        mvc.perform(get("/v1/category/search?q=on&mode=substring&limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("One")));
+    }
+
+    @Test
+    public void getCategoriesAsyncTest() throws Exception {
+        given(categoryService.getCategories(argThat("One"::equals), isNull(), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(Category.of(1, "One")), 1000, Category::getId));
+
+        MvcResult result = mvc.perform(get("/v1/category/async?name=One"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("One")));
+    }
+
     @Test
     public void getCategoriesWithNameFilterTest() throws Exception {
         List<Category> categories = Collections.singletonList(Category.of(1, "One"));
-        given(categoryService.getCategories(argThat("One"::equals)))
-                .willReturn(categories);
+        given(categoryService.getCategories(argThat("One"::equals), isNull(), isNull()))
+                .willReturn(CursorPage.of(categories, 1000, Category::getId));
 
         mvc.perform(get("/v1/category?name=One"))
                 .andExpect(status().isOk())
@@ -49,7 +84,7 @@ public class CategoryControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[0].id", is(1)))
                 .andExpect(jsonPath("$[0].name", is("One")));
 
-        verify(categoryService, times(1)).getCategories(argThat("One"::equals));
+        verify(categoryService, times(1)).getCategories(argThat("One"::equals), isNull(), isNull());
     }
 
     @Test
@@ -58,8 +93,8 @@ public class CategoryControllerTest extends BaseWebMvcTest {
                 Category.of(1, "One"),
                 Category.of(2, "Two")
         );
-        given(categoryService.getCategories(argThat(Objects::isNull)))
-                .willReturn(categories);
+        given(categoryService.getCategories(argThat(Objects::isNull), isNull(), isNull()))
+                .willReturn(CursorPage.of(categories, 1000, Category::getId));
 
         mvc.perform(get("/v1/category"))
                 .andExpect(status().isOk())
@@ -70,7 +105,22 @@ public class CategoryControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[1].id", is(2)))
                 .andExpect(jsonPath("$[1].name", is("Two")));
 
-        verify(categoryService, times(1)).getCategories(argThat(Objects::isNull));
+        verify(categoryService, times(1)).getCategories(argThat(Objects::isNull), isNull(), isNull());
+    }
+
+    @Test
+    public void getCategoriesAsSmileTest() throws Exception {
+        given(categoryService.getCategories(isNull(), isNull(), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(Category.of(1, "One")), 1000, Category::getId));
+
+        byte[] body = mvc.perform(get("/v1/category").header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WebConfiguration.APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Category category = new ObjectMapper(new SmileFactory()).readValue(body, Category[].class)[0];
+        Assert.assertEquals(Integer.valueOf(1), category.getId());
+        Assert.assertEquals("One", category.getName());
     }
 
     @Test
@@ -100,6 +150,76 @@ public class CategoryControllerTest extends BaseWebMvcTest {
         verify(categoryService, times(1)).getCategory(intThat(i -> i == 2));
     }
 
+    @Test
+    public void getSpecificCategoryWithETagTest() throws Exception {
+        given(tableVersions.getETag(TableVersions.Table.CATEGORIES)).willReturn("\"e-1\"");
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(Category.of(1, "One")));
+
+        mvc.perform(get("/v1/category/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"e-1-json\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        mvc.perform(get("/v1/category/1").header(HttpHeaders.IF_NONE_MATCH, "W/\"e-0-json\", \"e-1-json\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"e-1-json\""))
+                .andExpect(content().string(""));
+
+        verify(categoryService, times(1)).getCategory(intThat(i -> i == 1));
+    }
+
+    @Test
+    public void getSpecificCategoryWithStaleETagTest() throws Exception {
+        given(tableVersions.getETag(TableVersions.Table.CATEGORIES)).willReturn("\"e-2\"");
+        given(categoryService.getCategory(intThat(i -> i == 2))).willReturn(Optional.empty());
+
+        mvc.perform(get("/v1/category/2").header(HttpHeaders.IF_NONE_MATCH, "\"e-1\""))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        verify(categoryService, times(1)).getCategory(intThat(i -> i == 2));
+    }
+
+    @Test
+    public void getCategoriesAsyncWithETagTest() throws Exception {
+        given(tableVersions.getETag(TableVersions.Table.CATEGORIES)).willReturn("\"e-1\"");
+        given(categoryService.getCategories(isNull(), isNull(), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(Category.of(1, "One")), 1000, Category::getId));
+
+        MvcResult result = mvc.perform(get("/v1/category/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"e-1-json\""));
+    }
+
+    @Test
+    public void getSpecificCategoryAsSmileWithETagTest() throws Exception {
+        given(tableVersions.getETag(TableVersions.Table.CATEGORIES)).willReturn("\"e-1\"");
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(Category.of(1, "One")));
+
+        mvc.perform(get("/v1/category/1").header(HttpHeaders.ACCEPT, "application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WebConfiguration.APPLICATION_SMILE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"e-1-smile\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        // the JSON tag does not match the Smile encoding
+        mvc.perform(get("/v1/category/1").header(HttpHeaders.ACCEPT, "application/x-jackson-smile")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"e-1-json\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"e-1-smile\""));
+
+        mvc.perform(get("/v1/category/1").header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"e-1-cbor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"e-1-cbor\""));
+
+        verify(categoryService, times(2)).getCategory(intThat(i -> i == 1));
+    }
+
     @Test
     public void updateCategoryTest() throws Exception {
         mvc.perform(patch("/v1/category/1")
@@ -1,11 +1,13 @@
 package com.elvison.inventoryapp.rest;
 
 import com.elvison.inventoryapp.model.Inventory;
+import com.elvison.inventoryapp.model.rest.CursorPage;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.*;
 
@@ -14,6 +16,7 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.Is.isA;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -36,11 +39,37 @@ public class InventoryControllerTest extends BaseWebMvcTest {
                 .createInventory(argThat(r -> "One".equals(r.getName())));
     }
 
+    @Test
+    public void searchInventoriesTest() throws Exception {
+        given(inventoryService.searchInventories(argThat("on"::equals), argThat("substring"::equals), intThat(i -> i == 5)))
+                .willReturn(Collections.singletonList(Inventory.of(1, "One")));
+
+        mvc.perform(get("/v1/inventory/search?q=on&mode=substring&limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("One")));
+    }
+
+    @Test
+    public void getInventoriesAsyncTest() throws Exception {
+        given(inventoryService.getInventories(argThat("One"::equals), isNull(), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(Inventory.of(1, "One")), 1000, Inventory::getId));
+
+        MvcResult result = mvc.perform(get("/v1/inventory/async?name=One"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("One")));
+    }
+
     @Test
     public void getInventoriesWithNameFilterTest() throws Exception {
         List<Inventory> inventories = Collections.singletonList(Inventory.of(1, "One"));
-        given(inventoryService.getInventories(argThat("One"::equals)))
-                .willReturn(inventories);
+        given(inventoryService.getInventories(argThat("One"::equals), isNull(), isNull()))
+                .willReturn(CursorPage.of(inventories, 1000, Inventory::getId));
 
         mvc.perform(get("/v1/inventory?name=One"))
                 .andExpect(status().isOk())
@@ -49,7 +78,7 @@ public class InventoryControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[0].id", is(1)))
                 .andExpect(jsonPath("$[0].name", is("One")));
 
-        verify(inventoryService, times(1)).getInventories(argThat("One"::equals));
+        verify(inventoryService, times(1)).getInventories(argThat("One"::equals), isNull(), isNull());
     }
 
     @Test
@@ -58,8 +87,8 @@ public class InventoryControllerTest extends BaseWebMvcTest {
                 Inventory.of(1, "One"),
                 Inventory.of(2, "Two")
         );
-        given(inventoryService.getInventories(argThat(Objects::isNull)))
-                .willReturn(inventories);
+        given(inventoryService.getInventories(argThat(Objects::isNull), isNull(), isNull()))
+                .willReturn(CursorPage.of(inventories, 1000, Inventory::getId));
 
         mvc.perform(get("/v1/inventory"))
                 .andExpect(status().isOk())
@@ -70,7 +99,7 @@ public class InventoryControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[1].id", is(2)))
                 .andExpect(jsonPath("$[1].name", is("Two")));
 
-        verify(inventoryService, times(1)).getInventories(argThat(Objects::isNull));
+        verify(inventoryService, times(1)).getInventories(argThat(Objects::isNull), isNull(), isNull());
     }
 
     @Test
@@ -1,11 +1,14 @@
 package com.elvison.inventoryapp.rest;
 
 import com.elvison.inventoryapp.model.Product;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.ProductDetail;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.*;
 
@@ -14,6 +17,7 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.Is.isA;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -36,11 +40,37 @@ public class ProductControllerTest extends BaseWebMvcTest {
                 .createProduct(argThat(r -> r.getCategoryId() == 1 && "One".equals(r.getName())));
     }
 
+    @Test
+    public void searchProductsTest() throws Exception {
+        given(productService.searchProducts(argThat("on"::equals), argThat("substring"::equals), intThat(i -> i == 5)))
+                .willReturn(Collections.singletonList(Product.of(1, 2, "One")));
+
+        mvc.perform(get("/v1/product/search?q=on&mode=substring&limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("One")));
+    }
+
+    @Test
+    public void getProductsAsyncTest() throws Exception {
+        given(productService.getProducts(argThat("One"::equals), isNull(), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(Product.of(1, 2, "One")), 1000, Product::getId));
+
+        MvcResult result = mvc.perform(get("/v1/product/async?name=One"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("One")));
+    }
+
     @Test
     public void getProductsWithNameFilterTest() throws Exception {
         List<Product> products = Collections.singletonList(Product.of(1, 1, "One"));
-        given(productService.getProducts(argThat("One"::equals)))
-                .willReturn(products);
+        given(productService.getProducts(argThat("One"::equals), isNull(), isNull()))
+                .willReturn(CursorPage.of(products, 1000, Product::getId));
 
         mvc.perform(get("/v1/product?name=One"))
                 .andExpect(status().isOk())
@@ -50,7 +80,7 @@ public class ProductControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[0].categoryId", is(1)))
                 .andExpect(jsonPath("$[0].name", is("One")));
 
-        verify(productService, times(1)).getProducts(argThat("One"::equals));
+        verify(productService, times(1)).getProducts(argThat("One"::equals), isNull(), isNull());
     }
 
     @Test
@@ -59,8 +89,8 @@ public class ProductControllerTest extends BaseWebMvcTest {
                 Product.of(1, 1, "One"),
                 Product.of(2, 1, "Two")
         );
-        given(productService.getProducts(argThat(Objects::isNull)))
-                .willReturn(products);
+        given(productService.getProducts(argThat(Objects::isNull), isNull(), isNull()))
+                .willReturn(CursorPage.of(products, 1000, Product::getId));
 
         mvc.perform(get("/v1/product"))
                 .andExpect(status().isOk())
@@ -73,7 +103,27 @@ public class ProductControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[1].categoryId", is(1)))
                 .andExpect(jsonPath("$[1].name", is("Two")));
 
-        verify(productService, times(1)).getProducts(argThat(Objects::isNull));
+        verify(productService, times(1)).getProducts(argThat(Objects::isNull), isNull(), isNull());
+    }
+
+    @Test
+    public void getProductDetailsTest() throws Exception {
+        List<ProductDetail> details = Arrays.asList(
+                new ProductDetail(1, "Cake", 2, "Food"),
+                new ProductDetail(3, "Pizza", 2, "Food")
+        );
+        given(productService.getProductDetails(intThat(i -> i == 2), isNull(), intThat(i -> i == 2)))
+                .willReturn(CursorPage.of(details, 2, ProductDetail::getId));
+
+        mvc.perform(get("/v1/product/detail?categoryId=2&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "3"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[0].name", is("Cake")))
+                .andExpect(jsonPath("$[0].categoryId", is(2)))
+                .andExpect(jsonPath("$[0].categoryName", is("Food")))
+                .andExpect(jsonPath("$[1].name", is("Pizza")));
     }
 
     @Test
@@ -0,0 +1,126 @@
+package com.elvison.inventoryapp.rest;
+
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
+import com.elvison.inventoryapp.model.Category;
+import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.repository.ReactiveReadRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.HttpHandlerConnector;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.OptionalInt;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class ReactiveReadHandlerTest {
+
+    private ReactiveReadRepository readRepository;
+    private StockLedger stockLedger;
+    private WebTestClient client;
+
+    @Before
+    public void setup() throws Exception {
+        readRepository = Mockito.mock(ReactiveReadRepository.class);
+        stockLedger = Mockito.mock(StockLedger.class);
+        given(stockLedger.peekQuantity(anyInt(), anyInt())).willReturn(OptionalInt.empty());
+        PaginationHelper paginationHelper = new PaginationHelper();
+        FieldSetter.setField(paginationHelper, PaginationHelper.class.getDeclaredField("defaultLimit"), 1000);
+        FieldSetter.setField(paginationHelper, PaginationHelper.class.getDeclaredField("maxLimit"), 10000);
+
+        ReactiveReadHandler handler = new ReactiveReadHandler();
+        FieldSetter.setField(handler, ReactiveReadHandler.class.getDeclaredField("readRepository"), readRepository);
+        FieldSetter.setField(handler, ReactiveReadHandler.class.getDeclaredField("paginationHelper"), paginationHelper);
+        FieldSetter.setField(handler, ReactiveReadHandler.class.getDeclaredField("stockLedger"), stockLedger);
+        FieldSetter.setField(handler, ReactiveReadHandler.class.getDeclaredField("objectMapper"), Jackson2ObjectMapperBuilder.json().build());
+
+        client = WebTestClient.bindToServer(new HttpHandlerConnector(handler.httpHandler())).build();
+    }
+
+    @Test
+    public void GIVEN_stock_entries_WHEN_get_stock_entries_THEN_streams_ndjson() {
+        given(readRepository.findStockEntries(10, null, StockEntryId.key(10, 1), 1000))
+                .willReturn(Flux.just(StockEntry.of(10, 2, 5), StockEntry.of(10, 3, 7)));
+
+        client.get().uri("/v1/stock?productId=10&after={after}", StockEntryId.key(10, 1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/x-ndjson")
+                .expectBody(String.class).isEqualTo(
+                        "{\"productId\":10,\"inventoryId\":2,\"quantity\":5}\n" +
+                        "{\"productId\":10,\"inventoryId\":3,\"quantity\":7}\n");
+    }
+
+    @Test
+    public void GIVEN_invalid_limit_WHEN_get_categories_THEN_returns_bad_request() {
+        client.get().uri("/v1/category?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Limit is invalid");
+
+        verify(readRepository, never()).findCategories(any(), any(), anyInt());
+    }
+
+    @Test
+    public void GIVEN_limit_above_maximum_WHEN_get_stock_entries_THEN_returns_bad_request() {
+        client.get().uri("/v1/stock?limit=10001")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Limit is invalid");
+
+        verify(readRepository, never()).findStockEntries(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_WHEN_get_stock_entries_THEN_returns_ledger_quantities() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockLedger.peekQuantity(10, 2)).willReturn(OptionalInt.of(42));
+        given(readRepository.findStockEntries(10, null, null, 20))
+                .willReturn(Flux.just(StockEntry.of(10, 2, 5), StockEntry.of(10, 3, 7)));
+
+        client.get().uri("/v1/stock?productId=10&limit=20")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo(
+                        "{\"productId\":10,\"inventoryId\":2,\"quantity\":42}\n" +
+                        "{\"productId\":10,\"inventoryId\":3,\"quantity\":7}\n");
+    }
+
+    @Test
+    public void GIVEN_non_numeric_parameter_WHEN_get_stock_entries_THEN_returns_bad_request() {
+        client.get().uri("/v1/stock?productId=abc")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Invalid value for productId");
+    }
+
+    @Test
+    public void GIVEN_existing_category_WHEN_get_category_THEN_returns_category() {
+        given(readRepository.findCategory(1)).willReturn(Mono.just(Category.of(1, "Food")));
+
+        client.get().uri("/v1/category/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("Food");
+    }
+
+    @Test
+    public void GIVEN_non_existing_product_WHEN_get_product_THEN_returns_not_found() {
+        given(readRepository.findProduct(1)).willReturn(Mono.empty());
+
+        client.get().uri("/v1/product/1")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_FOUND)
+                .expectBody().jsonPath("$.message").isEqualTo("Product not found");
+    }
+}
@@ -5,6 +5,7 @@ import com.elvison.inventoryapp.exception.ResourceNotFoundException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import static org.hamcrest.core.Is.is;
@@ -12,6 +13,7 @@ import static org.hamcrest.core.Is.isA;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -21,7 +23,7 @@ public class RestExceptionHandlerTest extends BaseWebMvcTest {
 
     @Test
     public void GIVEN_any_query_WHEN_resource_not_found_exception_thrown_THEN_returns_404_status() throws Exception {
-        given(inventoryService.getInventories(any())).willThrow(new ResourceNotFoundException("the error message"));
+        given(inventoryService.getInventories(any(), any(), any())).willThrow(new ResourceNotFoundException("the error message"));
 
         mvc.perform(get("/v1/inventory"))
                 .andExpect(status().isNotFound())
@@ -31,7 +33,7 @@ public class RestExceptionHandlerTest extends BaseWebMvcTest {
 
     @Test
     public void GIVEN_any_query_WHEN_internal_server_exception_thrown_THEN_returns_500_status() throws Exception {
-        given(inventoryService.getInventories(any())).willThrow(new InternalServerException("the error message"));
+        given(inventoryService.getInventories(any(), any(), any())).willThrow(new InternalServerException("the error message"));
 
         mvc.perform(get("/v1/inventory"))
                 .andExpect(status().isInternalServerError())
@@ -41,11 +43,21 @@ public class RestExceptionHandlerTest extends BaseWebMvcTest {
 
     @Test
     public void GIVEN_any_query_WHEN_illegal_argument_exception_thrown_THEN_returns_400_status() throws Exception {
-        given(inventoryService.getInventories(any())).willThrow(new IllegalArgumentException("the error message"));
+        given(inventoryService.getInventories(any(), any(), any())).willThrow(new IllegalArgumentException("the error message"));
 
         mvc.perform(get("/v1/inventory"))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message", is("the error message")))
                 .andExpect(jsonPath("$.timestamp", isA(String.class)));
     }
+
+    @Test
+    public void GIVEN_any_query_WHEN_task_rejected_exception_thrown_THEN_returns_503_status() throws Exception {
+        given(inventoryService.getInventories(any(), any(), any())).willThrow(new TaskRejectedException("queue is full"));
+
+        mvc.perform(get("/v1/inventory"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.message", is("Server is busy, please retry later")));
+    }
 }
@@ -0,0 +1,68 @@
+package com.elvison.inventoryapp.rest;
+
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.model.StockAlert;
+import com.elvison.inventoryapp.model.StockThreshold;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(StockAlertController.class)
+public class StockAlertControllerTest extends BaseWebMvcTest {
+    @Test
+    public void setThresholdTest() throws Exception {
+        given(stockAlertService.setThreshold(argThat(r -> r.getProductId() == 1 && r.getInventoryId() == null && r.getThreshold() == 5)))
+                .willReturn(StockThreshold.of(1, null, 5));
+
+        mvc.perform(put("/v1/stock/threshold")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productId\":1,\"threshold\":5}")
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productId", is(1)))
+                .andExpect(jsonPath("$.inventoryId").doesNotExist())
+                .andExpect(jsonPath("$.threshold", is(5)));
+    }
+
+    @Test
+    public void deleteNonExistingThresholdTest() throws Exception {
+        willThrow(new ResourceNotFoundException("Stock threshold not found"))
+                .given(stockAlertService).deleteThreshold(1, 2);
+
+        mvc.perform(delete("/v1/stock/threshold?productId=1&inventoryId=2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getAlertsTest() throws Exception {
+        StockAlert alert = StockAlert.of(1, 2, StockAlert.Type.LOW, 5, 6, 4);
+        alert.setId(3L);
+        given(stockAlertService.getAlerts(intThat(i -> i == 1), longThat(l -> l == 2), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(alert), 1, StockAlert::getId));
+
+        mvc.perform(get("/v1/stock/alert?productId=1&after=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "3"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].type", is("LOW")))
+                .andExpect(jsonPath("$[0].previousQuantity", is(6)))
+                .andExpect(jsonPath("$[0].quantity", is(4)));
+    }
+}
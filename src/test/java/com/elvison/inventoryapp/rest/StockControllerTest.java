@@ -1,22 +1,42 @@
 package com.elvison.inventoryapp.rest;
 
+import com.elvison.inventoryapp.config.WebConfiguration;
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
 import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.StockTotal;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -38,11 +58,55 @@ public class StockControllerTest extends BaseWebMvcTest {
                 .createStockEntry(argThat(r -> r.getProductId() == 1 && r.getInventoryId() == 2 && r.getQuantity() == 100));
     }
 
+    @Test
+    public void addStockEntriesSuccessTest() throws Exception {
+        mvc.perform(post("/v1/stock/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productId\":1,\"inventoryId\":2,\"quantity\":100},{\"productId\":1,\"inventoryId\":3,\"quantity\":200}]")
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(stockService, times(1))
+                .createStockEntries(argThat(l -> l.size() == 2 && l.get(0).getInventoryId() == 2 && l.get(1).getInventoryId() == 3));
+    }
+
+    @Test
+    public void addStockEntriesAsyncTest() throws Exception {
+        MvcResult result = mvc.perform(post("/v1/stock/batch/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productId\":1,\"inventoryId\":2,\"quantity\":100}]")
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        verify(stockService, times(1))
+                .createStockEntries(argThat(l -> l.size() == 1 && l.get(0).getInventoryId() == 2));
+    }
+
+    @Test
+    public void getStockEntriesAsyncTest() throws Exception {
+        given(stockService.getStockEntries(intThat(i -> i == 1), isNull(), isNull(), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(StockEntry.of(1, 2, 100)), 1000, e -> e.getId().toKey()));
+
+        MvcResult result = mvc.perform(get("/v1/stock/async?productId=1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].quantity", is(100)));
+    }
+
     @Test
     public void getStockEntriesWithBothProductIdAndInventoryIdTest() throws Exception {
         List<StockEntry> entries = Collections.singletonList(StockEntry.of(1, 2, 100));
-        given(stockService.getStockEntries(intThat(i -> i == 1), intThat(i -> i == 2)))
-                .willReturn(entries);
+        given(stockService.getStockEntries(intThat(i -> i == 1), intThat(i -> i == 2), isNull(), isNull()))
+                .willReturn(CursorPage.of(entries, 1000, e -> e.getId().toKey()));
 
         mvc.perform(get("/v1/stock?productId=1&inventoryId=2"))
                 .andExpect(status().isOk())
@@ -52,7 +116,37 @@ public class StockControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[0].inventoryId", is(2)))
                 .andExpect(jsonPath("$[0].quantity", is(100)));
 
-        verify(stockService, times(1)).getStockEntries(intThat(i -> i == 1), intThat(i -> i == 2));
+        verify(stockService, times(1)).getStockEntries(intThat(i -> i == 1), intThat(i -> i == 2), isNull(), isNull());
+    }
+
+    @Test
+    public void getStockEntriesAsSmileTest() throws Exception {
+        given(stockService.getStockEntries(intThat(i -> i == 1), isNull(), isNull(), isNull()))
+                .willReturn(CursorPage.of(Collections.singletonList(StockEntry.of(1, 2, 100)), 1000, e -> e.getId().toKey()));
+
+        byte[] body = mvc.perform(get("/v1/stock?productId=1").accept(WebConfiguration.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WebConfiguration.APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<Map<String, Object>> entries = new ObjectMapper(new SmileFactory()).readValue(body, new TypeReference<List<Map<String, Object>>>() {});
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals(Arrays.asList("productId", "inventoryId", "quantity"), new ArrayList<>(entries.get(0).keySet()));
+        Assert.assertEquals(Arrays.asList(1, 2, 100), new ArrayList<>(entries.get(0).values()));
+    }
+
+    @Test
+    public void addStockEntriesAsCborTest() throws Exception {
+        byte[] body = new ObjectMapper(new CBORFactory()).writeValueAsBytes(Collections.singletonList(StockEntry.of(1, 2, 100)));
+
+        mvc.perform(post("/v1/stock/batch")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .content(body)
+        )
+                .andExpect(status().isOk());
+
+        verify(stockService, times(1))
+                .createStockEntries(argThat(l -> l.size() == 1 && l.get(0).getProductId() == 1 && l.get(0).getInventoryId() == 2 && l.get(0).getQuantity() == 100));
     }
 
     @Test
@@ -61,8 +155,8 @@ public class StockControllerTest extends BaseWebMvcTest {
                 StockEntry.of(1, 2, 100),
                 StockEntry.of(1, 3, 500)
         );
-        given(stockService.getStockEntries(intThat(i -> i == 1), intThat(Objects::isNull)))
-                .willReturn(entries);
+        given(stockService.getStockEntries(intThat(i -> i == 1), intThat(Objects::isNull), isNull(), isNull()))
+                .willReturn(CursorPage.of(entries, 1000, e -> e.getId().toKey()));
 
         mvc.perform(get("/v1/stock?productId=1"))
                 .andExpect(status().isOk())
@@ -75,7 +169,7 @@ public class StockControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[1].inventoryId", is(3)))
                 .andExpect(jsonPath("$[1].quantity", is(500)));
 
-        verify(stockService, times(1)).getStockEntries(intThat(i -> i == 1), intThat(Objects::isNull));
+        verify(stockService, times(1)).getStockEntries(intThat(i -> i == 1), intThat(Objects::isNull), isNull(), isNull());
     }
 
     @Test
@@ -84,8 +178,8 @@ public class StockControllerTest extends BaseWebMvcTest {
                 StockEntry.of(1, 3, 100),
                 StockEntry.of(2, 3, 500)
         );
-        given(stockService.getStockEntries(intThat(Objects::isNull), intThat(i -> i == 3)))
-                .willReturn(entries);
+        given(stockService.getStockEntries(intThat(Objects::isNull), intThat(i -> i == 3), isNull(), isNull()))
+                .willReturn(CursorPage.of(entries, 1000, e -> e.getId().toKey()));
 
         mvc.perform(get("/v1/stock?inventoryId=3"))
                 .andExpect(status().isOk())
@@ -98,7 +192,7 @@ public class StockControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[1].inventoryId", is(3)))
                 .andExpect(jsonPath("$[1].quantity", is(500)));
 
-        verify(stockService, times(1)).getStockEntries(intThat(Objects::isNull), intThat(i -> i == 3));
+        verify(stockService, times(1)).getStockEntries(intThat(Objects::isNull), intThat(i -> i == 3), isNull(), isNull());
     }
 
     @Test
@@ -108,8 +202,8 @@ public class StockControllerTest extends BaseWebMvcTest {
                 StockEntry.of(1, 3, 500),
                 StockEntry.of(2, 3, 200)
         );
-        given(stockService.getStockEntries(intThat(Objects::isNull), intThat(Objects::isNull)))
-                .willReturn(entries);
+        given(stockService.getStockEntries(intThat(Objects::isNull), intThat(Objects::isNull), isNull(), isNull()))
+                .willReturn(CursorPage.of(entries, 1000, e -> e.getId().toKey()));
 
         mvc.perform(get("/v1/stock"))
                 .andExpect(status().isOk())
@@ -125,9 +219,43 @@ public class StockControllerTest extends BaseWebMvcTest {
                 .andExpect(jsonPath("$[2].inventoryId", is(3)))
                 .andExpect(jsonPath("$[2].quantity", is(200)));
 
-        verify(stockService, times(1)).getStockEntries(intThat(Objects::isNull), intThat(Objects::isNull));
+        verify(stockService, times(1)).getStockEntries(intThat(Objects::isNull), intThat(Objects::isNull), isNull(), isNull());
     }
 
+    @Test
+    public void getStockEntriesWithFullPageTest() throws Exception {
+        List<StockEntry> entries = Arrays.asList(
+                StockEntry.of(1, 2, 100),
+                StockEntry.of(1, 3, 500)
+        );
+        given(stockService.getStockEntries(intThat(i -> i == 1), isNull(), argThat(a -> a == 7L), intThat(i -> i == 2)))
+                .willReturn(CursorPage.of(entries, 2, e -> e.getId().toKey()));
+
+        mvc.perform(get("/v1/stock?productId=1&after=7&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, String.valueOf(StockEntryId.key(1, 3))))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void exportStockEntriesTest() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<StockEntry> consumer = invocation.getArgument(2);
+            consumer.accept(StockEntry.of(1, 2, 100));
+            consumer.accept(StockEntry.of(1, 3, 500));
+            return null;
+        }).given(stockService).exportStockEntries(intThat(i -> i == 1), isNull(), any());
+
+        MvcResult result = mvc.perform(get("/v1/stock/export?productId=1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"productId\":1,\"inventoryId\":2,\"quantity\":100}\n"
+                        + "{\"productId\":1,\"inventoryId\":3,\"quantity\":500}\n"));
+    }
 
     @Test
     public void updateStockEntryTest() throws Exception {
@@ -140,6 +268,101 @@ public class StockControllerTest extends BaseWebMvcTest {
 
         verify(stockService, times(1))
                 .updateStockEntry(argThat(r -> r.getProductId() == 1 && r.getInventoryId() == 2 && r.getQuantity() == 100));
+        verify(stockUpdatePipeline, never()).update(any());
+    }
+
+    @Test
+    public void updateStockEntryWithPipelineEnabledTest() throws Exception {
+        given(stockUpdatePipeline.isEnabled()).willReturn(true);
+
+        mvc.perform(patch("/v1/stock")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productId\":1,\"inventoryId\":2,\"quantity\":100}")
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(stockUpdatePipeline, times(1))
+                .update(argThat(r -> r.getProductId() == 1 && r.getInventoryId() == 2 && r.getQuantity() == 100));
+        verify(stockService, never()).updateStockEntry(any());
+    }
+
+    @Test
+    public void updateStockEntriesTest() throws Exception {
+        mvc.perform(patch("/v1/stock/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productId\":1,\"inventoryId\":2,\"quantity\":100},{\"productId\":1,\"inventoryId\":3,\"quantity\":200}]")
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(stockService, times(1))
+                .updateStockEntries(argThat(l -> l.size() == 2 && l.get(0).getQuantity() == 100 && l.get(1).getQuantity() == 200));
+    }
+
+    @Test
+    public void updateStockEntriesAsyncWithMissingEntryTest() throws Exception {
+        willThrow(new ResourceNotFoundException("Stock entry not found")).given(stockService).updateStockEntries(any());
+
+        MvcResult result = mvc.perform(patch("/v1/stock/batch/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productId\":1,\"inventoryId\":2,\"quantity\":100}]")
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message", is("Stock entry not found")));
+    }
+
+    @Test
+    public void adjustStockEntryTest() throws Exception {
+        given(stockService.adjustStockEntry(argThat(r -> r.getProductId() == 1 && r.getInventoryId() == 2 && r.getDelta() == -3)))
+                .willReturn(StockEntry.of(1, 2, 97));
+
+        mvc.perform(post("/v1/stock/adjust")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productId\":1,\"inventoryId\":2,\"delta\":-3}")
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.productId", is(1)))
+                .andExpect(jsonPath("$.inventoryId", is(2)))
+                .andExpect(jsonPath("$.quantity", is(97)));
+    }
+
+    @Test
+    public void streamStockChangesTest() throws Exception {
+        given(stockChangeStream.subscribe(isNull(), intThat(i -> i == 2))).willReturn(new SseEmitter());
+
+        mvc.perform(get("/v1/stock/stream?inventoryId=2").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(stockChangeStream, times(1)).subscribe(isNull(), intThat(i -> i == 2));
+    }
+
+    @Test
+    public void getStockTotalTest() throws Exception {
+        given(stockService.getStockTotal(isNull(), intThat(i -> i == 2), intThat(i -> i == 3)))
+                .willReturn(StockTotal.of(null, 2, 3, 150));
+
+        mvc.perform(get("/v1/stock/total?inventoryId=2&categoryId=3"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.productId").doesNotExist())
+                .andExpect(jsonPath("$.inventoryId", is(2)))
+                .andExpect(jsonPath("$.categoryId", is(3)))
+                .andExpect(jsonPath("$.quantity", is(150)));
+    }
+
+    @Test
+    public void getStockTotalWithProductIdAndCategoryIdTest() throws Exception {
+        given(stockService.getStockTotal(intThat(i -> i == 1), isNull(), intThat(i -> i == 3)))
+                .willThrow(new IllegalArgumentException("Product ID cannot be combined with other filters"));
+
+        mvc.perform(get("/v1/stock/total?productId=1&categoryId=3"))
+                .andExpect(status().isBadRequest());
     }
 
 }
@@ -1,16 +1,28 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
 import com.elvison.inventoryapp.helper.DefaultNameValidationHelper;
+import com.elvison.inventoryapp.helper.NameSearchHelper;
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.Category;
 import com.elvison.inventoryapp.model.rest.CategoryRequest;
+import com.elvison.inventoryapp.model.rest.CursorPage;
 import com.elvison.inventoryapp.repository.CategoryRepository;
+import com.elvison.inventoryapp.repository.ProductRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.internal.util.reflection.FieldSetter;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
@@ -21,15 +33,37 @@ public class CategoryServiceTest {
     private CategoryService service;
     private DefaultNameValidationHelper validationHelper;
     private CategoryRepository categoryRepository;
+    private ProductRepository productRepository;
+    private PaginationHelper paginationHelper;
+    private NameSearchHelper searchHelper;
+    private StockTotals stockTotals;
+    private TableVersions tableVersions;
+    private StockLedger stockLedger;
 
     @Before
     public void setup() throws Exception {
         validationHelper = Mockito.mock(DefaultNameValidationHelper.class);
         categoryRepository = Mockito.mock(CategoryRepository.class);
+        productRepository = Mockito.mock(ProductRepository.class);
+        paginationHelper = Mockito.mock(PaginationHelper.class);
+        given(paginationHelper.limit(null)).willReturn(1000);
+        searchHelper = Mockito.mock(NameSearchHelper.class);
+        given(searchHelper.term("one")).willReturn("one");
+        given(searchHelper.limit(null)).willReturn(20);
+
+        stockTotals = Mockito.mock(StockTotals.class);
+        tableVersions = Mockito.mock(TableVersions.class);
+        stockLedger = Mockito.mock(StockLedger.class);
 
         service = Mockito.spy(new CategoryService());
         FieldSetter.setField(service, CategoryService.class.getDeclaredField("validationHelper"), validationHelper);
         FieldSetter.setField(service, CategoryService.class.getDeclaredField("categoryRepository"), categoryRepository);
+        FieldSetter.setField(service, CategoryService.class.getDeclaredField("productRepository"), productRepository);
+        FieldSetter.setField(service, CategoryService.class.getDeclaredField("paginationHelper"), paginationHelper);
+        FieldSetter.setField(service, CategoryService.class.getDeclaredField("searchHelper"), searchHelper);
+        FieldSetter.setField(service, CategoryService.class.getDeclaredField("stockTotals"), stockTotals);
+        FieldSetter.setField(service, CategoryService.class.getDeclaredField("tableVersions"), tableVersions);
+        FieldSetter.setField(service, CategoryService.class.getDeclaredField("stockLedger"), stockLedger);
     }
 
     @Test
@@ -37,13 +71,10 @@ public class CategoryServiceTest {
         CategoryRequest request = Mockito.mock(CategoryRequest.class);
         given(request.getName()).willReturn("One");
 
-        given(categoryRepository.existsByName(anyString())).willReturn(false);
-
         service.createCategory(request);
 
         verify(validationHelper, times(1)).validate(argThat(request::equals));
-        verify(categoryRepository, times(1)).existsByName(argThat("One"::equals));
-        verify(categoryRepository, times(1)).save(argThat(c -> "One".equals(c.getName())));
+        verify(categoryRepository, times(1)).saveAndFlush(argThat(c -> "One".equals(c.getName())));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -57,8 +88,7 @@ public class CategoryServiceTest {
             service.createCategory(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(categoryRepository, never()).existsByName(any());
-            verify(categoryRepository, never()).save(any());
+            verify(categoryRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -67,39 +97,90 @@ public class CategoryServiceTest {
         CategoryRequest request = Mockito.mock(CategoryRequest.class);
         given(request.getName()).willReturn("One");
 
-        given(categoryRepository.existsByName(anyString())).willReturn(true);
+        given(categoryRepository.saveAndFlush(any())).willThrow(constraintViolation("uq_categories_name"));
 
         try {
             service.createCategory(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(categoryRepository, times(1)).existsByName(argThat("One"::equals));
-            verify(categoryRepository, never()).save(any());
+            verify(categoryRepository, times(1)).saveAndFlush(argThat(c -> "One".equals(c.getName())));
+        }
+    }
+
+    @Test
+    public void GIVEN_prefix_mode_WHEN_search_categories_THEN_searches_by_prefix() {
+        given(searchHelper.isSubstringMode("prefix")).willReturn(false);
+
+        service.searchCategories("one", "prefix", null);
+
+        verify(categoryRepository, times(1)).searchByNamePrefix("one", 20);
+        verify(categoryRepository, never()).searchByNameSubstring(anyString(), anyInt());
+    }
+
+    @Test
+    public void GIVEN_substring_mode_WHEN_search_categories_THEN_searches_by_substring() {
+        given(searchHelper.isSubstringMode("substring")).willReturn(true);
+
+        service.searchCategories("one", "substring", null);
+
+        verify(categoryRepository, times(1)).searchByNameSubstring("one", 20);
+        verify(categoryRepository, never()).searchByNamePrefix(anyString(), anyInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_empty_query_WHEN_search_categories_THEN_throws_exception() {
+        given(searchHelper.term("")).willThrow(IllegalArgumentException.class);
+
+        try {
+            service.searchCategories("", null, null);
+        } finally {
+            verify(categoryRepository, never()).searchByNamePrefix(anyString(), anyInt());
         }
     }
 
     @Test
     public void GIVEN_valid_name_filter_WHEN_get_categories_THEN_find_by_name() {
-        service.getCategories("something");
+        service.getCategories("something", null, null);
 
-        verify(categoryRepository, times(1)).findByNameLike(argThat("something"::equals));
-        verify(categoryRepository, never()).findAll();
+        verify(categoryRepository, times(1)).findByNameLikeAndIdGreaterThanOrderByIdAsc(argThat("something"::equals), intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+        verify(categoryRepository, never()).findByIdGreaterThanOrderByIdAsc(anyInt(), any());
     }
 
     @Test
-    public void GIVEN_empty_name_filter_WHEN_get_categories_THEN_find_by_name() {
-        service.getCategories("");
+    public void GIVEN_empty_name_filter_WHEN_get_categories_THEN_find_all() {
+        service.getCategories("", null, null);
 
-        verify(categoryRepository, never()).findByNameLike(anyString());
-        verify(categoryRepository, times(1)).findAll();
+        verify(categoryRepository, never()).findByNameLikeAndIdGreaterThanOrderByIdAsc(anyString(), anyInt(), any());
+        verify(categoryRepository, times(1)).findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
     }
 
     @Test
-    public void GIVEN_null_name_filter_WHEN_get_categories_THEN_find_by_name() {
-        service.getCategories(null);
+    public void GIVEN_null_name_filter_WHEN_get_categories_THEN_find_all() {
+        service.getCategories(null, null, null);
 
-        verify(categoryRepository, never()).findByNameLike(anyString());
-        verify(categoryRepository, times(1)).findAll();
+        verify(categoryRepository, never()).findByNameLikeAndIdGreaterThanOrderByIdAsc(anyString(), anyInt(), any());
+        verify(categoryRepository, times(1)).findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+    }
+
+    @Test
+    public void GIVEN_full_page_WHEN_get_categories_THEN_returns_next_cursor() {
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(categoryRepository.findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 5), argThat(p -> p.getPageSize() == 2)))
+                .willReturn(Arrays.asList(Category.of(6, "Six"), Category.of(7, "Seven")));
+
+        CursorPage<Category> page = service.getCategories(null, 5, 2);
+        Assert.assertEquals(2, page.getItems().size());
+        Assert.assertEquals("7", page.getNextCursor());
+    }
+
+    @Test
+    public void GIVEN_partial_page_WHEN_get_categories_THEN_returns_no_cursor() {
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(categoryRepository.findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 5), argThat(p -> p.getPageSize() == 2)))
+                .willReturn(Collections.singletonList(Category.of(6, "Six")));
+
+        CursorPage<Category> page = service.getCategories(null, 5, 2);
+        Assert.assertNull(page.getNextCursor());
     }
 
     @Test
@@ -116,16 +197,14 @@ public class CategoryServiceTest {
 
         Category category = Mockito.mock(Category.class);
 
-        given(categoryRepository.existsByName(anyString())).willReturn(false);
         given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(category));
 
         service.updateCategory(1, request);
 
         verify(validationHelper, times(1)).validate(argThat(request::equals));
-        verify(categoryRepository, times(1)).existsByName(argThat("One"::equals));
         verify(categoryRepository, times(1)).findById(intThat(i -> i == 1));
         verify(category, times(1)).setName(argThat("One"::equals));
-        verify(categoryRepository, times(1)).save(argThat(category::equals));
+        verify(categoryRepository, times(1)).saveAndFlush(argThat(category::equals));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -140,9 +219,8 @@ public class CategoryServiceTest {
             service.updateCategory(1, request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(categoryRepository, never()).existsByName(any());
             verify(categoryRepository, never()).findById(anyInt());
-            verify(categoryRepository, never()).save(any());
+            verify(categoryRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -151,15 +229,17 @@ public class CategoryServiceTest {
         CategoryRequest request = Mockito.mock(CategoryRequest.class);
         given(request.getName()).willReturn("One");
 
-        given(categoryRepository.existsByName(anyString())).willReturn(true);
+        Category category = Mockito.mock(Category.class);
+
+        given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(category));
+        given(categoryRepository.saveAndFlush(any())).willThrow(constraintViolation("uq_categories_name"));
 
         try {
             service.updateCategory(1, request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(categoryRepository, times(1)).existsByName(argThat("One"::equals));
-            verify(categoryRepository, never()).findById(anyInt());
-            verify(categoryRepository, never()).save(any());
+            verify(categoryRepository, times(1)).findById(intThat(i -> i == 1));
+            verify(categoryRepository, times(1)).saveAndFlush(argThat(category::equals));
         }
     }
 
@@ -168,27 +248,40 @@ public class CategoryServiceTest {
         CategoryRequest request = Mockito.mock(CategoryRequest.class);
         given(request.getName()).willReturn("One");
 
-
-        given(categoryRepository.existsByName(anyString())).willReturn(false);
         given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.empty());
 
         try {
             service.updateCategory(1, request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(categoryRepository, times(1)).existsByName(argThat("One"::equals));
             verify(categoryRepository, times(1)).findById(intThat(i -> i == 1));
-            verify(categoryRepository, never()).save(any());
+            verify(categoryRepository, never()).saveAndFlush(any());
         }
     }
 
+    @Test
+    public void GIVEN_ledger_disabled_WHEN_delete_category_THEN_skips_ledger() {
+        given(categoryRepository.existsById(intThat(i -> i == 1))).willReturn(true);
+
+        service.deleteCategory(1);
+        verify(categoryRepository, times(1)).deleteById(intThat(i -> i == 1));
+        verify(productRepository, never()).findIdsByCategoryId(anyInt());
+        verify(stockLedger, never()).evictProductsLater(any());
+    }
+
     @Test
     public void GIVEN_existing_id_WHEN_delete_category_THEN_delete_category() {
         given(categoryRepository.existsById(intThat(i -> i == 1))).willReturn(true);
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(productRepository.findIdsByCategoryId(1)).willReturn(Arrays.asList(10, 11));
 
         service.deleteCategory(1);
         verify(categoryRepository, times(1)).existsById(intThat(i -> i == 1));
+        verify(stockLedger, times(1)).evictProductsLater(Arrays.asList(10, 11));
+        verify(productRepository, times(1)).deleteByCategoryId(1);
         verify(categoryRepository, times(1)).deleteById(intThat(i -> i == 1));
+        verify(stockTotals, times(1)).removeCategory(1);
+        verify(tableVersions, times(1)).changed(TableVersions.Table.CATEGORIES, TableVersions.Table.PRODUCTS, TableVersions.Table.STOCKS);
     }
 
     @Test(expected = ResourceNotFoundException.class)
@@ -199,7 +292,15 @@ public class CategoryServiceTest {
             service.deleteCategory(1);
         } finally {
             verify(categoryRepository, times(1)).existsById(intThat(i -> i == 1));
+            verify(productRepository, never()).deleteByCategoryId(anyInt());
             verify(categoryRepository, never()).deleteById(anyInt());
+            verify(stockLedger, never()).evictProductsLater(any());
+            verify(stockTotals, never()).removeCategory(anyInt());
         }
     }
+
+    private static DataIntegrityViolationException constraintViolation(String constraintName) {
+        return new DataIntegrityViolationException("constraint violated",
+                new ConstraintViolationException("constraint violated", null, constraintName));
+    }
 }
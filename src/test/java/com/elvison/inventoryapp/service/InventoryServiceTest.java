@@ -1,16 +1,27 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
 import com.elvison.inventoryapp.helper.DefaultNameValidationHelper;
+import com.elvison.inventoryapp.helper.NameSearchHelper;
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.Inventory;
+import com.elvison.inventoryapp.model.rest.CursorPage;
 import com.elvison.inventoryapp.model.rest.InventoryRequest;
 import com.elvison.inventoryapp.repository.InventoryRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.internal.util.reflection.FieldSetter;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
@@ -20,15 +31,34 @@ public class InventoryServiceTest {
     private InventoryService service;
     private DefaultNameValidationHelper validationHelper;
     private InventoryRepository inventoryRepository;
+    private PaginationHelper paginationHelper;
+    private NameSearchHelper searchHelper;
+    private StockTotals stockTotals;
+    private TableVersions tableVersions;
+    private StockLedger stockLedger;
 
     @Before
     public void setup() throws Exception {
         validationHelper = Mockito.mock(DefaultNameValidationHelper.class);
         inventoryRepository = Mockito.mock(InventoryRepository.class);
+        paginationHelper = Mockito.mock(PaginationHelper.class);
+        given(paginationHelper.limit(null)).willReturn(1000);
+        searchHelper = Mockito.mock(NameSearchHelper.class);
+        given(searchHelper.term("one")).willReturn("one");
+        given(searchHelper.limit(null)).willReturn(20);
+
+        stockTotals = Mockito.mock(StockTotals.class);
+        tableVersions = Mockito.mock(TableVersions.class);
+        stockLedger = Mockito.mock(StockLedger.class);
 
         service = Mockito.spy(new InventoryService());
         FieldSetter.setField(service, InventoryService.class.getDeclaredField("validationHelper"), validationHelper);
         FieldSetter.setField(service, InventoryService.class.getDeclaredField("inventoryRepository"), inventoryRepository);
+        FieldSetter.setField(service, InventoryService.class.getDeclaredField("paginationHelper"), paginationHelper);
+        FieldSetter.setField(service, InventoryService.class.getDeclaredField("searchHelper"), searchHelper);
+        FieldSetter.setField(service, InventoryService.class.getDeclaredField("stockTotals"), stockTotals);
+        FieldSetter.setField(service, InventoryService.class.getDeclaredField("tableVersions"), tableVersions);
+        FieldSetter.setField(service, InventoryService.class.getDeclaredField("stockLedger"), stockLedger);
     }
 
     @Test
@@ -36,13 +66,10 @@ public class InventoryServiceTest {
         InventoryRequest request = Mockito.mock(InventoryRequest.class);
         given(request.getName()).willReturn("One");
 
-        given(inventoryRepository.existsByName(anyString())).willReturn(false);
-
         service.createInventory(request);
 
         verify(validationHelper, times(1)).validate(argThat(request::equals));
-        verify(inventoryRepository, times(1)).existsByName(argThat("One"::equals));
-        verify(inventoryRepository, times(1)).save(argThat(c -> "One".equals(c.getName())));
+        verify(inventoryRepository, times(1)).saveAndFlush(argThat(c -> "One".equals(c.getName())));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -56,8 +83,7 @@ public class InventoryServiceTest {
             service.createInventory(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(inventoryRepository, never()).existsByName(any());
-            verify(inventoryRepository, never()).save(any());
+            verify(inventoryRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -66,39 +92,90 @@ public class InventoryServiceTest {
         InventoryRequest request = Mockito.mock(InventoryRequest.class);
         given(request.getName()).willReturn("One");
 
-        given(inventoryRepository.existsByName(anyString())).willReturn(true);
+        given(inventoryRepository.saveAndFlush(any())).willThrow(constraintViolation("uq_inventories_name"));
 
         try {
             service.createInventory(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(inventoryRepository, times(1)).existsByName(argThat("One"::equals));
-            verify(inventoryRepository, never()).save(any());
+            verify(inventoryRepository, times(1)).saveAndFlush(argThat(c -> "One".equals(c.getName())));
+        }
+    }
+
+    @Test
+    public void GIVEN_prefix_mode_WHEN_search_inventories_THEN_searches_by_prefix() {
+        given(searchHelper.isSubstringMode("prefix")).willReturn(false);
+
+        service.searchInventories("one", "prefix", null);
+
+        verify(inventoryRepository, times(1)).searchByNamePrefix("one", 20);
+        verify(inventoryRepository, never()).searchByNameSubstring(anyString(), anyInt());
+    }
+
+    @Test
+    public void GIVEN_substring_mode_WHEN_search_inventories_THEN_searches_by_substring() {
+        given(searchHelper.isSubstringMode("substring")).willReturn(true);
+
+        service.searchInventories("one", "substring", null);
+
+        verify(inventoryRepository, times(1)).searchByNameSubstring("one", 20);
+        verify(inventoryRepository, never()).searchByNamePrefix(anyString(), anyInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_empty_query_WHEN_search_inventories_THEN_throws_exception() {
+        given(searchHelper.term("")).willThrow(IllegalArgumentException.class);
+
+        try {
+            service.searchInventories("", null, null);
+        } finally {
+            verify(inventoryRepository, never()).searchByNamePrefix(anyString(), anyInt());
         }
     }
 
     @Test
     public void GIVEN_valid_name_filter_WHEN_get_inventories_THEN_find_by_name() {
-        service.getInventories("something");
+        service.getInventories("something", null, null);
 
-        verify(inventoryRepository, times(1)).findByNameLike(argThat("something"::equals));
-        verify(inventoryRepository, never()).findAll();
+        verify(inventoryRepository, times(1)).findByNameLikeAndIdGreaterThanOrderByIdAsc(argThat("something"::equals), intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+        verify(inventoryRepository, never()).findByIdGreaterThanOrderByIdAsc(anyInt(), any());
     }
 
     @Test
-    public void GIVEN_empty_name_filter_WHEN_get_inventories_THEN_find_by_name() {
-        service.getInventories("");
+    public void GIVEN_empty_name_filter_WHEN_get_inventories_THEN_find_all() {
+        service.getInventories("", null, null);
 
-        verify(inventoryRepository, never()).findByNameLike(anyString());
-        verify(inventoryRepository, times(1)).findAll();
+        verify(inventoryRepository, never()).findByNameLikeAndIdGreaterThanOrderByIdAsc(anyString(), anyInt(), any());
+        verify(inventoryRepository, times(1)).findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
     }
 
     @Test
-    public void GIVEN_null_name_filter_WHEN_get_inventories_THEN_find_by_name() {
-        service.getInventories(null);
+    public void GIVEN_null_name_filter_WHEN_get_inventories_THEN_find_all() {
+        service.getInventories(null, null, null);
 
-        verify(inventoryRepository, never()).findByNameLike(anyString());
-        verify(inventoryRepository, times(1)).findAll();
+        verify(inventoryRepository, never()).findByNameLikeAndIdGreaterThanOrderByIdAsc(anyString(), anyInt(), any());
+        verify(inventoryRepository, times(1)).findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+    }
+
+    @Test
+    public void GIVEN_full_page_WHEN_get_inventories_THEN_returns_next_cursor() {
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(inventoryRepository.findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 5), argThat(p -> p.getPageSize() == 2)))
+                .willReturn(Arrays.asList(Inventory.of(6, "Six"), Inventory.of(7, "Seven")));
+
+        CursorPage<Inventory> page = service.getInventories(null, 5, 2);
+        Assert.assertEquals(2, page.getItems().size());
+        Assert.assertEquals("7", page.getNextCursor());
+    }
+
+    @Test
+    public void GIVEN_partial_page_WHEN_get_inventories_THEN_returns_no_cursor() {
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(inventoryRepository.findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 5), argThat(p -> p.getPageSize() == 2)))
+                .willReturn(Collections.singletonList(Inventory.of(6, "Six")));
+
+        CursorPage<Inventory> page = service.getInventories(null, 5, 2);
+        Assert.assertNull(page.getNextCursor());
     }
 
     @Test
@@ -115,16 +192,14 @@ public class InventoryServiceTest {
 
         Inventory inventory = Mockito.mock(Inventory.class);
 
-        given(inventoryRepository.existsByName(anyString())).willReturn(false);
         given(inventoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(inventory));
 
         service.updateInventory(1, request);
 
         verify(validationHelper, times(1)).validate(argThat(request::equals));
-        verify(inventoryRepository, times(1)).existsByName(argThat("One"::equals));
         verify(inventoryRepository, times(1)).findById(intThat(i -> i == 1));
         verify(inventory, times(1)).setName(argThat("One"::equals));
-        verify(inventoryRepository, times(1)).save(argThat(inventory::equals));
+        verify(inventoryRepository, times(1)).saveAndFlush(argThat(inventory::equals));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -139,9 +214,8 @@ public class InventoryServiceTest {
             service.updateInventory(1, request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(inventoryRepository, never()).existsByName(any());
             verify(inventoryRepository, never()).findById(anyInt());
-            verify(inventoryRepository, never()).save(any());
+            verify(inventoryRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -150,15 +224,17 @@ public class InventoryServiceTest {
         InventoryRequest request = Mockito.mock(InventoryRequest.class);
         given(request.getName()).willReturn("One");
 
-        given(inventoryRepository.existsByName(anyString())).willReturn(true);
+        Inventory inventory = Mockito.mock(Inventory.class);
+
+        given(inventoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(inventory));
+        given(inventoryRepository.saveAndFlush(any())).willThrow(constraintViolation("uq_inventories_name"));
 
         try {
             service.updateInventory(1, request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(inventoryRepository, times(1)).existsByName(argThat("One"::equals));
-            verify(inventoryRepository, never()).findById(anyInt());
-            verify(inventoryRepository, never()).save(any());
+            verify(inventoryRepository, times(1)).findById(intThat(i -> i == 1));
+            verify(inventoryRepository, times(1)).saveAndFlush(argThat(inventory::equals));
         }
     }
 
@@ -167,27 +243,37 @@ public class InventoryServiceTest {
         InventoryRequest request = Mockito.mock(InventoryRequest.class);
         given(request.getName()).willReturn("One");
 
-
-        given(inventoryRepository.existsByName(anyString())).willReturn(false);
         given(inventoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.empty());
 
         try {
             service.updateInventory(1, request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(inventoryRepository, times(1)).existsByName(argThat("One"::equals));
             verify(inventoryRepository, times(1)).findById(intThat(i -> i == 1));
-            verify(inventoryRepository, never()).save(any());
+            verify(inventoryRepository, never()).saveAndFlush(any());
         }
     }
 
     @Test
     public void GIVEN_existing_id_WHEN_delete_inventory_THEN_delete_inventory() {
         given(inventoryRepository.existsById(intThat(i -> i == 1))).willReturn(true);
+        given(stockLedger.isEnabled()).willReturn(true);
 
         service.deleteInventory(1);
         verify(inventoryRepository, times(1)).existsById(intThat(i -> i == 1));
         verify(inventoryRepository, times(1)).deleteById(intThat(i -> i == 1));
+        verify(stockLedger, times(1)).evictInventoryLater(1);
+        verify(stockTotals, times(1)).removeInventory(1);
+        verify(tableVersions, times(1)).changed(TableVersions.Table.INVENTORIES, TableVersions.Table.STOCKS);
+    }
+
+    @Test
+    public void GIVEN_ledger_disabled_WHEN_delete_inventory_THEN_skips_ledger() {
+        given(inventoryRepository.existsById(intThat(i -> i == 1))).willReturn(true);
+
+        service.deleteInventory(1);
+        verify(inventoryRepository, times(1)).deleteById(intThat(i -> i == 1));
+        verify(stockLedger, never()).evictInventoryLater(anyInt());
     }
 
     @Test(expected = ResourceNotFoundException.class)
@@ -199,6 +285,13 @@ public class InventoryServiceTest {
         } finally {
             verify(inventoryRepository, times(1)).existsById(intThat(i -> i == 1));
             verify(inventoryRepository, never()).deleteById(anyInt());
+            verify(stockLedger, never()).evictInventoryLater(anyInt());
+            verify(stockTotals, never()).removeInventory(anyInt());
         }
     }
+
+    private static DataIntegrityViolationException constraintViolation(String constraintName) {
+        return new DataIntegrityViolationException("constraint violated",
+                new ConstraintViolationException("constraint violated", null, constraintName));
+    }
 }
@@ -1,18 +1,29 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.NameSearchHelper;
+import com.elvison.inventoryapp.helper.PaginationHelper;
 import com.elvison.inventoryapp.helper.ProductRequestValidationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.Category;
 import com.elvison.inventoryapp.model.Product;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.ProductDetail;
 import com.elvison.inventoryapp.model.rest.ProductRequest;
-import com.elvison.inventoryapp.repository.CategoryRepository;
 import com.elvison.inventoryapp.repository.ProductRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.internal.util.reflection.FieldSetter;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
@@ -22,19 +33,38 @@ public class ProductServiceTest {
 
     private ProductService service;
     private ProductRequestValidationHelper validationHelper;
-    private CategoryRepository categoryRepository;
+    private CategoryService categoryService;
     private ProductRepository productRepository;
+    private PaginationHelper paginationHelper;
+    private NameSearchHelper searchHelper;
+    private StockTotals stockTotals;
+    private TableVersions tableVersions;
+    private StockLedger stockLedger;
 
     @Before
     public void setup() throws Exception {
         validationHelper = Mockito.mock(ProductRequestValidationHelper.class);
-        categoryRepository = Mockito.mock(CategoryRepository.class);
+        categoryService = Mockito.mock(CategoryService.class);
         productRepository = Mockito.mock(ProductRepository.class);
+        paginationHelper = Mockito.mock(PaginationHelper.class);
+        given(paginationHelper.limit(null)).willReturn(1000);
+        searchHelper = Mockito.mock(NameSearchHelper.class);
+        given(searchHelper.term("one")).willReturn("one");
+        given(searchHelper.limit(null)).willReturn(20);
+
+        stockTotals = Mockito.mock(StockTotals.class);
+        tableVersions = Mockito.mock(TableVersions.class);
+        stockLedger = Mockito.mock(StockLedger.class);
 
         service = Mockito.spy(new ProductService());
         FieldSetter.setField(service, ProductService.class.getDeclaredField("validationHelper"), validationHelper);
-        FieldSetter.setField(service, ProductService.class.getDeclaredField("categoryRepository"), categoryRepository);
+        FieldSetter.setField(service, ProductService.class.getDeclaredField("categoryService"), categoryService);
         FieldSetter.setField(service, ProductService.class.getDeclaredField("productRepository"), productRepository);
+        FieldSetter.setField(service, ProductService.class.getDeclaredField("paginationHelper"), paginationHelper);
+        FieldSetter.setField(service, ProductService.class.getDeclaredField("searchHelper"), searchHelper);
+        FieldSetter.setField(service, ProductService.class.getDeclaredField("stockTotals"), stockTotals);
+        FieldSetter.setField(service, ProductService.class.getDeclaredField("tableVersions"), tableVersions);
+        FieldSetter.setField(service, ProductService.class.getDeclaredField("stockLedger"), stockLedger);
     }
 
     @Test
@@ -45,14 +75,12 @@ public class ProductServiceTest {
 
         Category category = Mockito.mock(Category.class);
 
-        given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(category));
-        given(productRepository.existsByName(anyString())).willReturn(false);
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(category));
 
         service.createProduct(request);
 
         verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
-        verify(productRepository, times(1)).existsByName(argThat("One"::equals));
-        verify(productRepository, times(1)).save(argThat(p -> "One".equals(p.getName()) && p.getCategoryId() == 1));
+        verify(productRepository, times(1)).saveAndFlush(argThat(p -> "One".equals(p.getName()) && p.getCategoryId() == 1));
     }
 
     @Test(expected = ResourceNotFoundException.class)
@@ -61,14 +89,13 @@ public class ProductServiceTest {
         given(request.getName()).willReturn("One");
         given(request.getCategoryId()).willReturn(1);
 
-        given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.empty());
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.empty());
 
         try {
             service.createProduct(request);
         } finally {
             verify(validationHelper, never()).validate(any(), any());
-            verify(productRepository, never()).existsByName(any());
-            verify(productRepository, never()).save(any());
+            verify(productRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -80,7 +107,7 @@ public class ProductServiceTest {
 
         Category category = Mockito.mock(Category.class);
 
-        given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(category));
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(category));
         doThrow(IllegalArgumentException.class)
                 .when(validationHelper).validate(any(), any());
 
@@ -88,8 +115,7 @@ public class ProductServiceTest {
             service.createProduct(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
-            verify(productRepository, never()).existsByName(any());
-            verify(productRepository, never()).save(any());
+            verify(productRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -101,40 +127,125 @@ public class ProductServiceTest {
 
         Category category = Mockito.mock(Category.class);
 
-        given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(category));
-        given(productRepository.existsByName(anyString())).willReturn(true);
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(category));
+        given(productRepository.saveAndFlush(any())).willThrow(constraintViolation("uq_products_name"));
 
         try {
             service.createProduct(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
-            verify(productRepository, times(1)).existsByName(argThat("One"::equals));
-            verify(productRepository, never()).save(any());
+            verify(productRepository, times(1)).saveAndFlush(argThat(p -> "One".equals(p.getName())));
+        }
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void GIVEN_other_constraint_violation_WHEN_create_product_THEN_rethrows_exception() {
+        ProductRequest request = Mockito.mock(ProductRequest.class);
+        given(request.getName()).willReturn("One");
+        given(request.getCategoryId()).willReturn(1);
+
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(Mockito.mock(Category.class)));
+        // the category was deleted after it was read
+        given(productRepository.saveAndFlush(any())).willThrow(constraintViolation("fk_category"));
+
+        service.createProduct(request);
+    }
+
+    @Test
+    public void GIVEN_prefix_mode_WHEN_search_products_THEN_searches_by_prefix() {
+        given(searchHelper.isSubstringMode("prefix")).willReturn(false);
+
+        service.searchProducts("one", "prefix", null);
+
+        verify(productRepository, times(1)).searchByNamePrefix("one", 20);
+        verify(productRepository, never()).searchByNameSubstring(anyString(), anyInt());
+    }
+
+    @Test
+    public void GIVEN_substring_mode_WHEN_search_products_THEN_searches_by_substring() {
+        given(searchHelper.isSubstringMode("substring")).willReturn(true);
+
+        service.searchProducts("one", "substring", null);
+
+        verify(productRepository, times(1)).searchByNameSubstring("one", 20);
+        verify(productRepository, never()).searchByNamePrefix(anyString(), anyInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_empty_query_WHEN_search_products_THEN_throws_exception() {
+        given(searchHelper.term("")).willThrow(IllegalArgumentException.class);
+
+        try {
+            service.searchProducts("", null, null);
+        } finally {
+            verify(productRepository, never()).searchByNamePrefix(anyString(), anyInt());
         }
     }
 
     @Test
     public void GIVEN_valid_name_filter_WHEN_get_products_THEN_find_by_name() {
-        service.getProducts("something");
+        service.getProducts("something", null, null);
+
+        verify(productRepository, times(1)).findByNameLikeAndIdGreaterThanOrderByIdAsc(argThat("something"::equals), intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+        verify(productRepository, never()).findByIdGreaterThanOrderByIdAsc(anyInt(), any());
+    }
+
+    @Test
+    public void GIVEN_empty_name_filter_WHEN_get_products_THEN_find_all() {
+        service.getProducts("", null, null);
+
+        verify(productRepository, never()).findByNameLikeAndIdGreaterThanOrderByIdAsc(anyString(), anyInt(), any());
+        verify(productRepository, times(1)).findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+    }
+
+    @Test
+    public void GIVEN_null_name_filter_WHEN_get_products_THEN_find_all() {
+        service.getProducts(null, null, null);
+
+        verify(productRepository, never()).findByNameLikeAndIdGreaterThanOrderByIdAsc(anyString(), anyInt(), any());
+        verify(productRepository, times(1)).findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+    }
 
-        verify(productRepository, times(1)).findByNameLike(argThat("something"::equals));
-        verify(productRepository, never()).findAll();
+    @Test
+    public void GIVEN_full_page_WHEN_get_products_THEN_returns_next_cursor() {
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(productRepository.findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 5), argThat(p -> p.getPageSize() == 2)))
+                .willReturn(Arrays.asList(Product.of(6, 1, "Six"), Product.of(7, 1, "Seven")));
+
+        CursorPage<Product> page = service.getProducts(null, 5, 2);
+        Assert.assertEquals(2, page.getItems().size());
+        Assert.assertEquals("7", page.getNextCursor());
     }
 
     @Test
-    public void GIVEN_empty_name_filter_WHEN_get_products_THEN_find_by_name() {
-        service.getProducts("");
+    public void GIVEN_partial_page_WHEN_get_products_THEN_returns_no_cursor() {
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(productRepository.findByIdGreaterThanOrderByIdAsc(intThat(i -> i == 5), argThat(p -> p.getPageSize() == 2)))
+                .willReturn(Collections.singletonList(Product.of(6, 1, "Six")));
 
-        verify(productRepository, never()).findByNameLike(anyString());
-        verify(productRepository, times(1)).findAll();
+        CursorPage<Product> page = service.getProducts(null, 5, 2);
+        Assert.assertNull(page.getNextCursor());
     }
 
     @Test
-    public void GIVEN_null_name_filter_WHEN_get_products_THEN_find_by_name() {
-        service.getProducts(null);
+    public void GIVEN_no_category_WHEN_get_product_details_THEN_finds_all_details() {
+        service.getProductDetails(null, null, null);
 
-        verify(productRepository, never()).findByNameLike(anyString());
-        verify(productRepository, times(1)).findAll();
+        verify(productRepository, times(1)).findDetails(intThat(i -> i == 0), argThat(p -> p.getPageSize() == 1000));
+        verify(productRepository, never()).findDetailsByCategoryId(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void GIVEN_category_and_full_page_WHEN_get_product_details_THEN_finds_details_in_category() {
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(productRepository.findDetailsByCategoryId(intThat(i -> i == 3), intThat(i -> i == 5), argThat(p -> p.getPageSize() == 2)))
+                .willReturn(Arrays.asList(new ProductDetail(6, "Cake", 3, "Food"), new ProductDetail(9, "Pizza", 3, "Food")));
+
+        CursorPage<ProductDetail> page = service.getProductDetails(3, 5, 2);
+
+        Assert.assertEquals(2, page.getItems().size());
+        Assert.assertEquals("9", page.getNextCursor());
+        verify(productRepository, never()).findDetails(anyInt(), any());
     }
 
     @Test
@@ -158,19 +269,18 @@ public class ProductServiceTest {
         Category category = Mockito.mock(Category.class);
         given(category.getId()).willReturn(2);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.of(product));
-        given(categoryRepository.findById(intThat(i -> i == 2))).willReturn(Optional.of(category));
-        given(productRepository.existsByName(anyString())).willReturn(false);
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.of(product));
+        given(categoryService.getCategory(intThat(i -> i == 2))).willReturn(Optional.of(category));
 
         service.updateProduct(10, request);
 
-        verify(productRepository, times(1)).existsByName(argThat("Two-New"::equals));
         verify(product, times(1)).setName(argThat("Two-New"::equals));
-        verify(categoryRepository, times(1)).findById(intThat(i -> i == 2));
+        verify(categoryService, times(1)).getCategory(intThat(i -> i == 2));
         verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
         verify(product, times(1)).setCategoryId(intThat(i -> i == 2));
+        verify(stockTotals, times(1)).moveProduct(10, 1, 2);
         verify(product, never()).setId(anyInt());
-        verify(productRepository, times(1)).save(argThat(product::equals));
+        verify(productRepository, times(1)).saveAndFlush(argThat(product::equals));
     }
 
     @Test
@@ -188,19 +298,17 @@ public class ProductServiceTest {
         given(product.getId()).willReturn(10);
         given(product.getCategory()).willReturn(category);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.of(product));
-        given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(category));
-        given(productRepository.existsByName(anyString())).willReturn(false);
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.of(product));
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(category));
 
         service.updateProduct(10, request);
 
-        verify(productRepository, times(1)).existsByName(argThat("Two-New"::equals));
         verify(product, times(1)).setName(argThat("Two-New"::equals));
-        verify(categoryRepository, never()).findById(anyInt());
+        verify(categoryService, never()).getCategory(anyInt());
         verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
         verify(product, never()).setCategoryId(any());
         verify(product, never()).setId(anyInt());
-        verify(productRepository, times(1)).save(argThat(product::equals));
+        verify(productRepository, times(1)).saveAndFlush(argThat(product::equals));
     }
 
     @Test
@@ -217,18 +325,18 @@ public class ProductServiceTest {
         Category category = Mockito.mock(Category.class);
         given(category.getId()).willReturn(2);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.of(product));
-        given(categoryRepository.findById(intThat(i -> i == 2))).willReturn(Optional.of(category));
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.of(product));
+        given(categoryService.getCategory(intThat(i -> i == 2))).willReturn(Optional.of(category));
 
         service.updateProduct(10, request);
 
-        verify(productRepository, never()).existsByName(any());
         verify(product, never()).setName(any());
-        verify(categoryRepository, times(1)).findById(intThat(i -> i == 2));
+        verify(categoryService, times(1)).getCategory(intThat(i -> i == 2));
         verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
         verify(product, times(1)).setCategoryId(intThat(i -> i == 2));
+        verify(stockTotals, times(1)).moveProduct(10, 1, 2);
         verify(product, never()).setId(anyInt());
-        verify(productRepository, times(1)).save(argThat(product::equals));
+        verify(productRepository, times(1)).saveAndFlush(argThat(product::equals));
     }
 
     @Test
@@ -246,19 +354,17 @@ public class ProductServiceTest {
         given(product.getId()).willReturn(10);
         given(product.getCategory()).willReturn(category);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.of(product));
-        given(categoryRepository.findById(intThat(i -> i == 1))).willReturn(Optional.of(category));
-        given(productRepository.existsByName(anyString())).willReturn(false);
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.of(product));
+        given(categoryService.getCategory(intThat(i -> i == 1))).willReturn(Optional.of(category));
 
         service.updateProduct(10, request);
 
-        verify(productRepository, never()).existsByName(any());
         verify(product, never()).setName(any());
-        verify(categoryRepository, never()).findById(anyInt());
+        verify(categoryService, never()).getCategory(anyInt());
         verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
         verify(product, never()).setCategoryId(any());
         verify(product, never()).setId(anyInt());
-        verify(productRepository, times(1)).save(argThat(product::equals));
+        verify(productRepository, times(1)).saveAndFlush(argThat(product::equals));
     }
 
     @Test(expected = ResourceNotFoundException.class)
@@ -267,15 +373,14 @@ public class ProductServiceTest {
         given(request.getName()).willReturn("Two-New");
         given(request.getCategoryId()).willReturn(2);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.empty());
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.empty());
 
         try {
             service.updateProduct(10, request);
         } finally {
-            verify(productRepository, never()).existsByName(any());
-            verify(categoryRepository, never()).findById(anyInt());
+            verify(categoryService, never()).getCategory(anyInt());
             verify(validationHelper, never()).validate(any(), any());
-            verify(productRepository, never()).save(any());
+            verify(productRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -290,19 +395,19 @@ public class ProductServiceTest {
         given(product.getCategoryId()).willReturn(1);
         given(product.getId()).willReturn(10);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.of(product));
-        given(productRepository.existsByName(anyString())).willReturn(true);
+        Category category = Mockito.mock(Category.class);
+        given(category.getId()).willReturn(2);
+
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.of(product));
+        given(categoryService.getCategory(intThat(i -> i == 2))).willReturn(Optional.of(category));
+        given(productRepository.saveAndFlush(any())).willThrow(constraintViolation("uq_products_name"));
 
         try {
             service.updateProduct(10, request);
         } finally {
-            verify(productRepository, times(1)).existsByName(argThat("Two-New"::equals));
-            verify(product, never()).setName(any());
-            verify(categoryRepository, never()).findById(anyInt());
-            verify(validationHelper, never()).validate(any(), any());
-            verify(product, never()).setCategoryId(any());
-            verify(product, never()).setId(anyInt());
-            verify(productRepository, never()).save(any());
+            verify(product, times(1)).setName(argThat("Two-New"::equals));
+            verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
+            verify(productRepository, times(1)).saveAndFlush(argThat(product::equals));
         }
     }
 
@@ -321,20 +426,18 @@ public class ProductServiceTest {
         given(product.getId()).willReturn(10);
         given(product.getCategory()).willReturn(category);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.of(product));
-        given(categoryRepository.findById(intThat(i -> i == 2))).willReturn(Optional.empty());
-        given(productRepository.existsByName(anyString())).willReturn(false);
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.of(product));
+        given(categoryService.getCategory(intThat(i -> i == 2))).willReturn(Optional.empty());
 
         try {
             service.updateProduct(10, request);
         } finally {
-            verify(productRepository, times(1)).existsByName(argThat("Two-New"::equals));
             verify(product, times(1)).setName(argThat("Two-New"::equals));
-            verify(categoryRepository, times(1)).findById(intThat(i -> i == 2));
+            verify(categoryService, times(1)).getCategory(intThat(i -> i == 2));
             verify(validationHelper, never()).validate(any(), any());
             verify(product, never()).setCategoryId(anyInt());
             verify(product, never()).setId(anyInt());
-            verify(productRepository, never()).save(any());
+            verify(productRepository, never()).saveAndFlush(any());
         }
     }
 
@@ -352,9 +455,8 @@ public class ProductServiceTest {
         Category category = Mockito.mock(Category.class);
         given(category.getId()).willReturn(2);
 
-        given(productRepository.findById(intThat(i -> i == 10))).willReturn(Optional.of(product));
-        given(categoryRepository.findById(intThat(i -> i == 2))).willReturn(Optional.of(category));
-        given(productRepository.existsByName(anyString())).willReturn(false);
+        given(productRepository.findWithCategoryById(intThat(i -> i == 10))).willReturn(Optional.of(product));
+        given(categoryService.getCategory(intThat(i -> i == 2))).willReturn(Optional.of(category));
 
         doThrow(IllegalArgumentException.class)
                 .when(validationHelper).validate(any(), any());
@@ -362,23 +464,35 @@ public class ProductServiceTest {
         try {
             service.updateProduct(10, request);
         } finally {
-            verify(productRepository, times(1)).existsByName(argThat("Two-New"::equals));
             verify(product, times(1)).setName(argThat("Two-New"::equals));
-            verify(categoryRepository, times(1)).findById(intThat(i -> i == 2));
+            verify(categoryService, times(1)).getCategory(intThat(i -> i == 2));
             verify(validationHelper, times(1)).validate(argThat(request::equals), argThat(category::equals));
             verify(product, times(1)).setCategoryId(intThat(i -> i == 2));
             verify(product, never()).setId(anyInt());
-            verify(productRepository, never()).save(any());
+            verify(productRepository, never()).saveAndFlush(any());
         }
     }
 
     @Test
     public void GIVEN_existing_id_WHEN_delete_product_THEN_delete_product() {
         given(productRepository.existsById(intThat(i -> i == 1))).willReturn(true);
+        given(stockLedger.isEnabled()).willReturn(true);
 
         service.deleteProduct(1);
         verify(productRepository, times(1)).existsById(intThat(i -> i == 1));
         verify(productRepository, times(1)).deleteById(intThat(i -> i == 1));
+        verify(stockLedger, times(1)).evictProductsLater(Collections.singletonList(1));
+        verify(stockTotals, times(1)).removeProduct(1);
+        verify(tableVersions, times(1)).changed(TableVersions.Table.PRODUCTS, TableVersions.Table.STOCKS);
+    }
+
+    @Test
+    public void GIVEN_ledger_disabled_WHEN_delete_product_THEN_skips_ledger() {
+        given(productRepository.existsById(intThat(i -> i == 1))).willReturn(true);
+
+        service.deleteProduct(1);
+        verify(productRepository, times(1)).deleteById(intThat(i -> i == 1));
+        verify(stockLedger, never()).evictProductsLater(any());
     }
 
     @Test(expected = ResourceNotFoundException.class)
@@ -390,6 +504,13 @@ public class ProductServiceTest {
         } finally {
             verify(productRepository, times(1)).existsById(intThat(i -> i == 1));
             verify(productRepository, never()).deleteById(anyInt());
+            verify(stockLedger, never()).evictProductsLater(any());
+            verify(stockTotals, never()).removeProduct(anyInt());
         }
     }
+
+    private static DataIntegrityViolationException constraintViolation(String constraintName) {
+        return new DataIntegrityViolationException("constraint violated",
+                new ConstraintViolationException("constraint violated", null, constraintName));
+    }
 }
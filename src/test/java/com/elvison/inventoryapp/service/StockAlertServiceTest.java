@@ -0,0 +1,142 @@
+package com.elvison.inventoryapp.service;
+
+import com.elvison.inventoryapp.alert.StockThresholds;
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.PaginationHelper;
+import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.model.StockAlert;
+import com.elvison.inventoryapp.model.StockThreshold;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.StockThresholdRequest;
+import com.elvison.inventoryapp.repository.InventoryRepository;
+import com.elvison.inventoryapp.repository.ProductRepository;
+import com.elvison.inventoryapp.repository.StockAlertRepository;
+import com.elvison.inventoryapp.repository.StockThresholdRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class StockAlertServiceTest {
+    private StockAlertService service;
+    private StockThresholdRepository thresholdRepository;
+    private StockAlertRepository alertRepository;
+    private ProductRepository productRepository;
+    private InventoryRepository inventoryRepository;
+    private StockThresholds stockThresholds;
+
+    @Before
+    public void setup() throws Exception {
+        thresholdRepository = Mockito.mock(StockThresholdRepository.class);
+        given(thresholdRepository.save(any())).willAnswer(i -> i.getArgument(0));
+        alertRepository = Mockito.mock(StockAlertRepository.class);
+        productRepository = Mockito.mock(ProductRepository.class);
+        inventoryRepository = Mockito.mock(InventoryRepository.class);
+        PaginationHelper paginationHelper = Mockito.mock(PaginationHelper.class);
+        given(paginationHelper.limit(2)).willReturn(2);
+        stockThresholds = Mockito.mock(StockThresholds.class);
+
+        service = Mockito.spy(new StockAlertService());
+        FieldSetter.setField(service, StockAlertService.class.getDeclaredField("thresholdRepository"), thresholdRepository);
+        FieldSetter.setField(service, StockAlertService.class.getDeclaredField("alertRepository"), alertRepository);
+        FieldSetter.setField(service, StockAlertService.class.getDeclaredField("productRepository"), productRepository);
+        FieldSetter.setField(service, StockAlertService.class.getDeclaredField("inventoryRepository"), inventoryRepository);
+        FieldSetter.setField(service, StockAlertService.class.getDeclaredField("validationHelper"), Mockito.mock(StockRequestValidationHelper.class));
+        FieldSetter.setField(service, StockAlertService.class.getDeclaredField("paginationHelper"), paginationHelper);
+        FieldSetter.setField(service, StockAlertService.class.getDeclaredField("stockThresholds"), stockThresholds);
+    }
+
+    @Test
+    public void GIVEN_new_threshold_WHEN_set_threshold_THEN_saves_threshold() {
+        given(thresholdRepository.findByProductIdAndInventoryId(10, null)).willReturn(Optional.empty());
+        given(productRepository.existsById(10)).willReturn(true);
+
+        StockThreshold threshold = service.setThreshold(thresholdRequest(10, null, 5));
+
+        Assert.assertEquals(Integer.valueOf(5), threshold.getThreshold());
+        Assert.assertNull(threshold.getInventoryId());
+        verify(thresholdRepository, times(1)).save(argThat(t -> t.getProductId() == 10 && t.getThreshold() == 5));
+        verify(stockThresholds, times(1)).set(10, null, 5);
+    }
+
+    @Test
+    public void GIVEN_existing_threshold_WHEN_set_threshold_THEN_replaces_threshold() {
+        StockThreshold existing = StockThreshold.of(10, 1, 5);
+        existing.setId(3);
+        given(thresholdRepository.findByProductIdAndInventoryId(10, 1)).willReturn(Optional.of(existing));
+
+        StockThreshold threshold = service.setThreshold(thresholdRequest(10, 1, 8));
+
+        Assert.assertEquals(Integer.valueOf(3), threshold.getId());
+        Assert.assertEquals(Integer.valueOf(8), threshold.getThreshold());
+        verify(productRepository, never()).existsById(any());
+        verify(stockThresholds, times(1)).set(10, 1, 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_non_existing_inventory_WHEN_set_threshold_THEN_throws_exception() {
+        given(thresholdRepository.findByProductIdAndInventoryId(10, 1)).willReturn(Optional.empty());
+        given(productRepository.existsById(10)).willReturn(true);
+        given(inventoryRepository.existsById(1)).willReturn(false);
+
+        try {
+            service.setThreshold(thresholdRequest(10, 1, 5));
+        } finally {
+            verify(thresholdRepository, never()).save(any());
+            verify(stockThresholds, never()).set(anyInt(), any(), anyInt());
+        }
+    }
+
+    @Test(expected = ResourceNotFoundException.class)
+    public void GIVEN_non_existing_threshold_WHEN_delete_threshold_THEN_throws_exception() {
+        given(thresholdRepository.findByProductIdAndInventoryId(10, 1)).willReturn(Optional.empty());
+
+        try {
+            service.deleteThreshold(10, 1);
+        } finally {
+            verify(stockThresholds, never()).remove(anyInt(), any());
+        }
+    }
+
+    @Test
+    public void GIVEN_existing_threshold_WHEN_delete_threshold_THEN_deletes_threshold() {
+        StockThreshold existing = StockThreshold.of(10, null, 5);
+        given(thresholdRepository.findByProductIdAndInventoryId(10, null)).willReturn(Optional.of(existing));
+
+        service.deleteThreshold(10, null);
+
+        verify(thresholdRepository, times(1)).delete(existing);
+        verify(stockThresholds, times(1)).remove(10, null);
+    }
+
+    @Test
+    public void GIVEN_full_page_WHEN_get_alerts_THEN_returns_next_cursor() {
+        StockAlert first = StockAlert.of(10, 1, StockAlert.Type.LOW, 5, 6, 5);
+        first.setId(7L);
+        StockAlert second = StockAlert.of(10, 1, StockAlert.Type.RESTOCKED, 5, 5, 9);
+        second.setId(9L);
+        given(alertRepository.findByProductIdAndIdGreaterThanOrderByIdAsc(eq(10), eq(6L), any())).willReturn(Arrays.asList(first, second));
+
+        CursorPage<StockAlert> page = service.getAlerts(10, 6L, 2);
+
+        Assert.assertEquals(2, page.getItems().size());
+        Assert.assertEquals("9", page.getNextCursor());
+        verify(alertRepository, never()).findByIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
+    private static StockThresholdRequest thresholdRequest(Integer productId, Integer inventoryId, Integer threshold) {
+        StockThresholdRequest request = Mockito.mock(StockThresholdRequest.class);
+        given(request.getProductId()).willReturn(productId);
+        given(request.getInventoryId()).willReturn(inventoryId);
+        given(request.getThreshold()).willReturn(threshold);
+        return request;
+    }
+}
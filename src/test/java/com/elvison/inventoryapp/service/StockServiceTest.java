@@ -1,23 +1,43 @@
 package com.elvison.inventoryapp.service;
 
+import com.elvison.inventoryapp.aggregate.StockTotals;
+import com.elvison.inventoryapp.alert.StockThresholds;
+import com.elvison.inventoryapp.etag.TableVersions;
 import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.PaginationHelper;
 import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.ledger.StockLedger;
 import com.elvison.inventoryapp.model.StockEntry;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.elvison.inventoryapp.model.rest.StockAdjustmentRequest;
 import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import com.elvison.inventoryapp.model.rest.StockTotal;
 import com.elvison.inventoryapp.repository.InventoryRepository;
 import com.elvison.inventoryapp.repository.ProductRepository;
 import com.elvison.inventoryapp.repository.StockRepository;
+import com.elvison.inventoryapp.stream.StockChangeStream;
+import com.elvison.inventoryapp.util.LongIntHashMap;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.internal.util.reflection.FieldSetter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.*;
 
 public class StockServiceTest {
@@ -26,6 +46,12 @@ public class StockServiceTest {
     private ProductRepository productRepository;
     private InventoryRepository inventoryRepository;
     private StockRepository stockRepository;
+    private StockLedger stockLedger;
+    private PaginationHelper paginationHelper;
+    private StockTotals stockTotals;
+    private TableVersions tableVersions;
+    private StockThresholds stockThresholds;
+    private StockChangeStream stockChangeStream;
 
     @Before
     public void setup() throws Exception {
@@ -33,12 +59,28 @@ public class StockServiceTest {
         productRepository = Mockito.mock(ProductRepository.class);
         inventoryRepository = Mockito.mock(InventoryRepository.class);
         stockRepository = Mockito.mock(StockRepository.class);
+        stockLedger = Mockito.mock(StockLedger.class);
+        paginationHelper = Mockito.mock(PaginationHelper.class);
+        given(paginationHelper.limit(null)).willReturn(1000);
+        stockTotals = Mockito.mock(StockTotals.class);
+        tableVersions = Mockito.mock(TableVersions.class);
+        stockThresholds = Mockito.mock(StockThresholds.class);
+        stockChangeStream = Mockito.mock(StockChangeStream.class);
+        given(stockRepository.lockQuantities(any())).willAnswer(i -> lockedQuantities(i.getArgument(0), 40));
 
         service = Mockito.spy(new StockService());
         FieldSetter.setField(service, StockService.class.getDeclaredField("validationHelper"), validationHelper);
         FieldSetter.setField(service, StockService.class.getDeclaredField("productRepository"), productRepository);
         FieldSetter.setField(service, StockService.class.getDeclaredField("inventoryRepository"), inventoryRepository);
         FieldSetter.setField(service, StockService.class.getDeclaredField("stockRepository"), stockRepository);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("stockLedger"), stockLedger);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("paginationHelper"), paginationHelper);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("stockTotals"), stockTotals);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("tableVersions"), tableVersions);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("stockThresholds"), stockThresholds);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("stockChangeStream"), stockChangeStream);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("batchChunkSize"), 2);
+        FieldSetter.setField(service, StockService.class.getDeclaredField("exportFetchSize"), 500);
     }
 
     @Test
@@ -55,6 +97,8 @@ public class StockServiceTest {
         service.createStockEntry(request);
         verify(validationHelper, times(1)).validate(argThat(request::equals));
         verify(stockRepository, times(1)).save(argThat(s -> s.getQuantity() == 100 && s.getId().getProductId() == 10 && s.getId().getInventoryId() == 1));
+        verify(stockTotals, times(1)).add(10, 1, 100);
+        verify(stockThresholds, times(1)).check(10, 1, null, 100);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -140,7 +184,7 @@ public class StockServiceTest {
         given(stockRepository.findById(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10)))
                 .willReturn(Optional.of(Mockito.mock(StockEntry.class)));
 
-        List<StockEntry> entries = service.getStockEntries(10, 1);
+        List<StockEntry> entries = service.getStockEntries(10, 1, null, null).getItems();
         Assert.assertEquals(1, entries.size());
         verify(stockRepository, times(1)).findById(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10));
     }
@@ -150,45 +194,69 @@ public class StockServiceTest {
         given(stockRepository.findById(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10)))
                 .willReturn(Optional.empty());
 
-        List<StockEntry> entries = service.getStockEntries(10, 1);
+        List<StockEntry> entries = service.getStockEntries(10, 1, null, null).getItems();
         Assert.assertEquals(0, entries.size());
         verify(stockRepository, times(1)).findById(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10));
     }
 
+    @Test
+    public void GIVEN_both_product_id_and_inventory_id_and_cursor_WHEN_get_stock_entries_THEN_returns_empty_page() {
+        CursorPage<StockEntry> page = service.getStockEntries(10, 1, StockEntryId.key(10, 1), null);
+        Assert.assertTrue(page.getItems().isEmpty());
+        Assert.assertNull(page.getNextCursor());
+        verify(stockRepository, never()).findById(any());
+    }
+
     @Test
     public void GIVEN_only_product_id_WHEN_get_stock_entries_THEN_finds_results() {
-        List<StockEntry> list = Mockito.mock(List.class);
-        given(stockRepository.findByIdProductId(intThat(i -> i == 10)))
+        List<StockEntry> list = Arrays.asList(StockEntry.of(10, 1, 100), StockEntry.of(10, 2, 200));
+        given(stockRepository.findPage(10, null, null, 1000))
                 .willReturn(list);
 
-        List<StockEntry> entries = service.getStockEntries(10, null);
-        Assert.assertEquals(list, entries);
+        CursorPage<StockEntry> page = service.getStockEntries(10, null, null, null);
+        Assert.assertEquals(list, page.getItems());
+        Assert.assertNull(page.getNextCursor());
 
-        verify(stockRepository, times(1)).findByIdProductId(intThat(i -> i == 10));
+        verify(stockRepository, times(1)).findPage(10, null, null, 1000);
     }
 
     @Test
     public void GIVEN_only_inventory_id_WHEN_get_stock_entries_THEN_finds_results() {
-        List<StockEntry> list = Mockito.mock(List.class);
-        given(stockRepository.findByIdInventoryId(intThat(i -> i == 1)))
+        List<StockEntry> list = Arrays.asList(StockEntry.of(10, 1, 100), StockEntry.of(11, 1, 200));
+        given(stockRepository.findPage(null, 1, null, 1000))
                 .willReturn(list);
 
-        List<StockEntry> entries = service.getStockEntries(null, 1);
-        Assert.assertEquals(list, entries);
+        CursorPage<StockEntry> page = service.getStockEntries(null, 1, null, null);
+        Assert.assertEquals(list, page.getItems());
 
-        verify(stockRepository, times(1)).findByIdInventoryId(intThat(i -> i == 1));
+        verify(stockRepository, times(1)).findPage(null, 1, null, 1000);
     }
 
     @Test
-    public void GIVEN_neither_product_id_nor_inventory_id_WHEN_get_stock_entries_THEN_finds_results() {
-        List<StockEntry> list = Mockito.mock(List.class);
-        given(stockRepository.findAll())
+    public void GIVEN_full_page_WHEN_get_stock_entries_THEN_returns_cursor_of_last_entry() {
+        List<StockEntry> list = Arrays.asList(StockEntry.of(10, 1, 100), StockEntry.of(11, 1, 200));
+        given(paginationHelper.limit(2)).willReturn(2);
+        given(stockRepository.findPage(null, null, StockEntryId.key(9, 1), 2))
                 .willReturn(list);
 
-        List<StockEntry> entries = service.getStockEntries(null, null);
-        Assert.assertEquals(list, entries);
+        CursorPage<StockEntry> page = service.getStockEntries(null, null, StockEntryId.key(9, 1), 2);
+        Assert.assertEquals(list, page.getItems());
+        Assert.assertEquals(String.valueOf(StockEntryId.key(11, 1)), page.getNextCursor());
+    }
 
-        verify(stockRepository, times(1)).findAll();
+    @Test
+    public void GIVEN_entries_WHEN_export_stock_entries_THEN_passes_each_entry_to_consumer() {
+        willAnswer(invocation -> {
+            Consumer<StockEntry> consumer = invocation.getArgument(3);
+            consumer.accept(StockEntry.of(10, 1, 100));
+            consumer.accept(StockEntry.of(11, 1, 200));
+            return null;
+        }).given(stockRepository).forEach(isNull(), eq(1), eq(500), any());
+
+        List<StockEntry> exported = new ArrayList<>();
+        service.exportStockEntries(null, 1, exported::add);
+        Assert.assertEquals(2, exported.size());
+        Assert.assertEquals(Integer.valueOf(200), exported.get(1).getQuantity());
     }
 
     @Test
@@ -199,12 +267,16 @@ public class StockServiceTest {
         given(request.getQuantity()).willReturn(100);
 
         StockEntry entry = Mockito.mock(StockEntry.class);
-        given(stockRepository.findById(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10))).willReturn(Optional.of(entry));
+        given(entry.getQuantity()).willReturn(40);
+        given(stockRepository.findByIdForUpdate(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10))).willReturn(Optional.of(entry));
 
         service.updateStockEntry(request);
         verify(validationHelper, times(1)).validate(argThat(request::equals));
         verify(entry, times(1)).setQuantity(intThat(i -> i == 100));
         verify(stockRepository, times(1)).save(argThat(entry::equals));
+        verify(stockTotals, times(1)).add(10, 1, 60);
+        verify(stockThresholds, times(1)).check(10, 1, 40, 100);
+        verify(stockChangeStream, times(1)).publish(10, 1, 100);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -221,7 +293,7 @@ public class StockServiceTest {
             service.updateStockEntry(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
-            verify(stockRepository, never()).findById(any());
+            verify(stockRepository, never()).findByIdForUpdate(any());
             verify(stockRepository, never()).save(any());
         }
     }
@@ -233,13 +305,347 @@ public class StockServiceTest {
         given(request.getProductId()).willReturn(10);
         given(request.getQuantity()).willReturn(100);
 
-        given(stockRepository.findById(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10))).willReturn(Optional.empty());
+        given(stockRepository.findByIdForUpdate(argThat(id -> id.getInventoryId() == 1 && id.getProductId() == 10))).willReturn(Optional.empty());
 
         try {
             service.updateStockEntry(request);
         } finally {
             verify(validationHelper, times(1)).validate(argThat(request::equals));
             verify(stockRepository, never()).save(any());
+            verify(stockTotals, never()).add(anyInt(), anyInt(), anyLong());
+            verify(stockThresholds, never()).check(anyInt(), anyInt(), any(), anyInt());
+            verify(stockChangeStream, never()).publish(anyInt(), anyInt(), anyInt());
+        }
+    }
+
+    @Test
+    public void GIVEN_valid_adjustment_WHEN_adjust_stock_entry_THEN_returns_new_quantity() {
+        StockAdjustmentRequest request = adjustment(10, 1, -5);
+        given(stockRepository.adjustQuantity(10, 1, -5)).willReturn(Optional.of(95));
+
+        StockEntry entry = service.adjustStockEntry(request);
+
+        Assert.assertEquals(StockEntryId.of(10, 1), entry.getId());
+        Assert.assertEquals(Integer.valueOf(95), entry.getQuantity());
+        verify(validationHelper, times(1)).validateAdjustment(argThat(request::equals));
+        verify(stockTotals, times(1)).add(10, 1, -5);
+        verify(stockThresholds, times(1)).check(10, 1, 100, 95);
+        verify(stockChangeStream, times(1)).publish(10, 1, 95);
+        verify(tableVersions, times(1)).changed(TableVersions.Table.STOCKS);
+        verify(stockRepository, never()).findById(any());
+        verify(stockRepository, never()).existsById(any());
+        verify(stockRepository, never()).save(any());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_invalid_adjustment_WHEN_adjust_stock_entry_THEN_throws_exception() {
+        StockAdjustmentRequest request = adjustment(10, 1, null);
+        doThrow(IllegalArgumentException.class)
+                .when(validationHelper).validateAdjustment(any());
+
+        try {
+            service.adjustStockEntry(request);
+        } finally {
+            verify(stockRepository, never()).adjustQuantity(any(), any(), anyInt());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_adjustment_exceeding_quantity_WHEN_adjust_stock_entry_THEN_throws_exception() {
+        given(stockRepository.adjustQuantity(10, 1, -500)).willReturn(Optional.empty());
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+
+        try {
+            service.adjustStockEntry(adjustment(10, 1, -500));
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Insufficient stock for given product ID 10 and inventory ID 1", e.getMessage());
+            throw e;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_adjustment_overflowing_quantity_WHEN_adjust_stock_entry_THEN_throws_exception() {
+        given(stockRepository.adjustQuantity(10, 1, Integer.MAX_VALUE)).willReturn(Optional.empty());
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.of(StockEntry.of(10, 1, 100)));
+
+        try {
+            service.adjustStockEntry(adjustment(10, 1, Integer.MAX_VALUE));
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Quantity is invalid", e.getMessage());
+            throw e;
+        } finally {
+            verify(stockTotals, never()).add(anyInt(), anyInt(), anyLong());
+        }
+    }
+
+    @Test(expected = ResourceNotFoundException.class)
+    public void GIVEN_adjustment_for_non_existing_entry_WHEN_adjust_stock_entry_THEN_throws_exception() {
+        given(stockRepository.adjustQuantity(10, 1, 5)).willReturn(Optional.empty());
+        given(stockRepository.findById(eq(StockEntryId.of(10, 1)))).willReturn(Optional.empty());
+
+        service.adjustStockEntry(adjustment(10, 1, 5));
+    }
+
+    @Test
+    public void GIVEN_valid_requests_WHEN_create_stock_entries_THEN_inserts_stock_entries_in_chunks() {
+        List<StockEntryRequest> requests = Arrays.asList(request(10, 1, 100), request(11, 1, 200), request(10, 2, 300));
+
+        given(stockRepository.findExistingKeys(any())).willReturn(new long[0]);
+        given(productRepository.findCategoryIdsByIds(any())).willReturn(categoryIds(10, 5, 11, 6));
+        given(inventoryRepository.findExistingIds(any())).willReturn(new HashSet<>(Arrays.asList(1, 2)));
+
+        service.createStockEntries(requests);
+
+        verify(validationHelper, times(3)).validate(any());
+        verify(stockRepository, times(2)).findExistingKeys(any());
+        verify(productRepository, times(2)).findCategoryIdsByIds(any());
+        verify(inventoryRepository, times(2)).findExistingIds(any());
+        verify(stockRepository, times(1)).insertAll(argThat(l -> l.size() == 2 && l.get(0).getQuantity() == 100 && l.get(1).getQuantity() == 200));
+        verify(stockRepository, times(1)).insertAll(argThat(l -> l.size() == 1 && l.get(0).getId().equals(StockEntryId.of(10, 2))));
+        verify(stockRepository, never()).save(any());
+        // categories come from the chunk query, and the table version moves once for the whole batch
+        verify(stockTotals, times(1)).add(10, 1, 5, 100);
+        verify(stockTotals, times(1)).add(11, 1, 6, 200);
+        verify(stockTotals, times(1)).add(10, 2, 5, 300);
+        verify(stockTotals, never()).add(anyInt(), anyInt(), anyLong());
+        verify(tableVersions, times(1)).changed(TableVersions.Table.STOCKS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_invalid_request_WHEN_create_stock_entries_THEN_throws_exception() {
+        doThrow(IllegalArgumentException.class)
+                .when(validationHelper).validate(any());
+
+        try {
+            service.createStockEntries(Arrays.asList(request(10, 1, 100), request(11, 1, -1)));
+        } finally {
+            verify(stockRepository, never()).findExistingKeys(any());
+            verify(stockRepository, never()).insertAll(any());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_requests_with_duplicated_entry_WHEN_create_stock_entries_THEN_throws_exception() {
+        try {
+            service.createStockEntries(Arrays.asList(request(10, 1, 100), request(10, 1, 200)));
+        } finally {
+            verify(stockRepository, never()).findExistingKeys(any());
+            verify(stockRepository, never()).insertAll(any());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_requests_with_existing_entry_WHEN_create_stock_entries_THEN_throws_exception() {
+        given(stockRepository.findExistingKeys(any())).willReturn(new long[]{StockEntryId.key(10, 1)});
+
+        try {
+            service.createStockEntries(Arrays.asList(request(10, 1, 100), request(11, 1, 200)));
+        } finally {
+            verify(stockRepository, never()).insertAll(any());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_requests_with_non_existing_product_WHEN_create_stock_entries_THEN_throws_exception() {
+        given(stockRepository.findExistingKeys(any())).willReturn(new long[0]);
+        given(productRepository.findCategoryIdsByIds(any())).willReturn(categoryIds(10, 5));
+        given(inventoryRepository.findExistingIds(any())).willReturn(Collections.singleton(1));
+
+        try {
+            service.createStockEntries(Arrays.asList(request(10, 1, 100), request(11, 1, 200)));
+        } finally {
+            verify(stockRepository, never()).insertAll(any());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_requests_with_non_existing_inventory_WHEN_create_stock_entries_THEN_throws_exception() {
+        given(stockRepository.findExistingKeys(any())).willReturn(new long[0]);
+        given(productRepository.findCategoryIdsByIds(any())).willReturn(categoryIds(10, 5, 11, 6));
+        given(inventoryRepository.findExistingIds(any())).willReturn(Collections.emptySet());
+
+        try {
+            service.createStockEntries(Arrays.asList(request(10, 1, 100), request(11, 1, 200)));
+        } finally {
+            verify(stockRepository, never()).insertAll(any());
+        }
+    }
+
+    @Test
+    public void GIVEN_valid_requests_WHEN_update_stock_entries_THEN_updates_quantities_in_chunks() {
+        // one update count per entry of the chunk
+        given(stockRepository.updateQuantities(any())).willAnswer(i -> {
+            int[] counts = new int[((List<?>) i.getArgument(0)).size()];
+            Arrays.fill(counts, 1);
+            return counts;
+        });
+
+        service.updateStockEntries(Arrays.asList(request(10, 1, 100), request(11, 1, 200), request(10, 2, 300)));
+
+        verify(validationHelper, times(3)).validate(any());
+        verify(stockRepository, times(2)).lockQuantities(any());
+        verify(stockRepository, times(2)).updateQuantities(any());
+        verify(stockRepository, never()).findById(any());
+        verify(stockRepository, never()).save(any());
+        verify(stockTotals, times(1)).add(10, 1, 60);
+        verify(stockTotals, times(1)).add(11, 1, 160);
+        verify(stockTotals, times(1)).add(10, 2, 260);
+        verify(stockThresholds, times(1)).check(10, 2, 40, 300);
+        verify(tableVersions, times(1)).changed(TableVersions.Table.STOCKS);
+    }
+
+    @Test(expected = ResourceNotFoundException.class)
+    public void GIVEN_requests_with_non_existing_entry_WHEN_update_stock_entries_THEN_throws_exception() {
+        given(stockRepository.updateQuantities(any())).willReturn(new int[]{1, 0});
+
+        service.updateStockEntries(Arrays.asList(request(10, 1, 100), request(11, 1, 200)));
+    }
+
+    @Test
+    public void GIVEN_entries_with_non_existing_entry_WHEN_update_existing_stock_entries_THEN_returns_missing_ids() {
+        given(stockRepository.updateQuantities(any())).willReturn(new int[]{1, 0}, new int[]{0});
+
+        List<StockEntryId> missingIds = service.updateExistingStockEntries(Arrays.asList(
+                StockEntry.of(10, 1, 100),
+                StockEntry.of(11, 1, 200),
+                StockEntry.of(10, 2, 300)
+        ));
+
+        Assert.assertEquals(Arrays.asList(StockEntryId.of(11, 1), StockEntryId.of(10, 2)), missingIds);
+        verify(validationHelper, never()).validate(any());
+        verify(stockTotals, times(1)).add(anyInt(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_WHEN_get_stock_entry_THEN_reads_from_ledger() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockLedger.getQuantity(10, 1)).willReturn(OptionalInt.of(42));
+
+        List<StockEntry> entries = service.getStockEntries(10, 1, null, null).getItems();
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals(Integer.valueOf(42), entries.get(0).getQuantity());
+        verify(stockRepository, never()).findById(any());
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_WHEN_list_stock_entries_THEN_overlays_ledger_quantities() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockRepository.findPage(10, null, null, 1000)).willReturn(Arrays.asList(StockEntry.of(10, 1, 100), StockEntry.of(10, 2, 200)));
+        given(stockLedger.peekQuantity(10, 1)).willReturn(OptionalInt.of(42));
+        given(stockLedger.peekQuantity(10, 2)).willReturn(OptionalInt.empty());
+
+        List<StockEntry> entries = service.getStockEntries(10, null, null, null).getItems();
+        Assert.assertEquals(Integer.valueOf(42), entries.get(0).getQuantity());
+        Assert.assertEquals(Integer.valueOf(200), entries.get(1).getQuantity());
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_WHEN_update_stock_entry_THEN_sets_ledger_quantity() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockLedger.getAndSetQuantity(10, 1, 100)).willReturn(OptionalInt.of(40));
+
+        service.updateStockEntry(request(10, 1, 100));
+        verify(stockRepository, never()).save(any());
+        verify(stockTotals, times(1)).add(10, 1, 60);
+    }
+
+    @Test(expected = ResourceNotFoundException.class)
+    public void GIVEN_ledger_enabled_and_non_existing_entry_WHEN_update_stock_entry_THEN_throws_exception() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockLedger.getAndSetQuantity(10, 1, 100)).willReturn(OptionalInt.empty());
+
+        service.updateStockEntry(request(10, 1, 100));
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_WHEN_adjust_stock_entry_THEN_adjusts_ledger_quantity() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockLedger.adjustQuantity(10, 1, -5)).willReturn(OptionalInt.of(95));
+
+        StockEntry entry = service.adjustStockEntry(adjustment(10, 1, -5));
+        Assert.assertEquals(Integer.valueOf(95), entry.getQuantity());
+        verify(stockRepository, never()).adjustQuantity(any(), any(), anyInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_ledger_enabled_and_insufficient_stock_WHEN_adjust_stock_entry_THEN_throws_exception() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockLedger.adjustQuantity(10, 1, -500)).willReturn(OptionalInt.empty());
+        given(stockLedger.getQuantity(10, 1)).willReturn(OptionalInt.of(100));
+
+        service.adjustStockEntry(adjustment(10, 1, -500));
+    }
+
+    @Test
+    public void GIVEN_ledger_enabled_and_non_existing_entry_WHEN_update_stock_entries_THEN_applies_nothing() {
+        given(stockLedger.isEnabled()).willReturn(true);
+        given(stockLedger.getQuantity(10, 1)).willReturn(OptionalInt.of(100));
+        given(stockLedger.getQuantity(11, 1)).willReturn(OptionalInt.empty());
+
+        try {
+            service.updateStockEntries(Arrays.asList(request(10, 1, 50), request(11, 1, 50)));
+            Assert.fail();
+        } catch (ResourceNotFoundException e) {
+            verify(stockLedger, never()).getAndSetQuantity(anyInt(), anyInt(), anyInt());
         }
     }
+
+    @Test
+    public void GIVEN_product_id_WHEN_get_stock_total_THEN_returns_product_total() {
+        given(stockTotals.getProductTotal(10)).willReturn(300L);
+
+        StockTotal total = service.getStockTotal(10, null, null);
+        Assert.assertEquals(Integer.valueOf(10), total.getProductId());
+        Assert.assertNull(total.getInventoryId());
+        Assert.assertEquals(300L, total.getQuantity());
+    }
+
+    @Test
+    public void GIVEN_inventory_and_category_ids_WHEN_get_stock_total_THEN_returns_category_total_within_inventory() {
+        given(stockTotals.getInventoryCategoryTotal(1, 2)).willReturn(70L);
+
+        StockTotal total = service.getStockTotal(null, 1, 2);
+        Assert.assertEquals(Integer.valueOf(1), total.getInventoryId());
+        Assert.assertEquals(Integer.valueOf(2), total.getCategoryId());
+        Assert.assertEquals(70L, total.getQuantity());
+        verify(stockRepository, never()).findPage(any(), any(), any(), anyInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_product_and_inventory_ids_WHEN_get_stock_total_THEN_throws_exception() {
+        service.getStockTotal(10, 1, null);
+    }
+
+    private static LongIntHashMap lockedQuantities(long[] keys, int quantity) {
+        LongIntHashMap quantities = new LongIntHashMap();
+        for (long key : keys) {
+            quantities.putIfAbsent(key, quantity);
+        }
+        return quantities;
+    }
+
+    // product ID and category ID pairs
+    private static Map<Integer, Integer> categoryIds(int... pairs) {
+        Map<Integer, Integer> categoryIds = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            categoryIds.put(pairs[i], pairs[i + 1]);
+        }
+        return categoryIds;
+    }
+
+    private static StockEntryRequest request(Integer productId, Integer inventoryId, Integer quantity) {
+        StockEntryRequest request = new StockEntryRequest();
+        request.setProductId(productId);
+        request.setInventoryId(inventoryId);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private static StockAdjustmentRequest adjustment(Integer productId, Integer inventoryId, Integer delta) {
+        StockAdjustmentRequest request = new StockAdjustmentRequest();
+        request.setProductId(productId);
+        request.setInventoryId(inventoryId);
+        request.setDelta(delta);
+        return request;
+    }
 }
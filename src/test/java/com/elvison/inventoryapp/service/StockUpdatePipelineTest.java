@@ -0,0 +1,124 @@
+package com.elvison.inventoryapp.service;
+
+import com.elvison.inventoryapp.exception.ResourceNotFoundException;
+import com.elvison.inventoryapp.helper.StockRequestValidationHelper;
+import com.elvison.inventoryapp.model.StockEntryId;
+import com.elvison.inventoryapp.model.rest.StockEntryRequest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class StockUpdatePipelineTest {
+    private StockUpdatePipeline pipeline;
+    private StockService stockService;
+    private StockRequestValidationHelper validationHelper;
+
+    @Before
+    public void setup() throws Exception {
+        stockService = Mockito.mock(StockService.class);
+        validationHelper = Mockito.mock(StockRequestValidationHelper.class);
+
+        pipeline = new StockUpdatePipeline();
+        FieldSetter.setField(pipeline, StockUpdatePipeline.class.getDeclaredField("stockService"), stockService);
+        FieldSetter.setField(pipeline, StockUpdatePipeline.class.getDeclaredField("validationHelper"), validationHelper);
+        FieldSetter.setField(pipeline, StockUpdatePipeline.class.getDeclaredField("enabled"), true);
+        FieldSetter.setField(pipeline, StockUpdatePipeline.class.getDeclaredField("bufferSize"), 16);
+        FieldSetter.setField(pipeline, StockUpdatePipeline.class.getDeclaredField("batchSize"), 4);
+        pipeline.start();
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    public void GIVEN_valid_request_WHEN_update_THEN_flushes_to_stock_service() {
+        given(stockService.updateExistingStockEntries(any())).willReturn(Collections.emptyList());
+
+        pipeline.update(request(10, 1, 100));
+
+        verify(validationHelper, times(1)).validate(argThat(r -> r.getProductId() == 10 && r.getInventoryId() == 1));
+        verify(stockService, times(1)).updateExistingStockEntries(argThat(c -> c.size() == 1 && c.get(0).getQuantity() == 100));
+    }
+
+    @Test
+    public void GIVEN_updates_for_same_entry_WHEN_flushed_together_THEN_last_update_wins() {
+        given(stockService.updateExistingStockEntries(any())).willReturn(Collections.emptyList());
+
+        StockUpdatePipeline.GroupCommitHandler handler = pipeline.new GroupCommitHandler();
+        CompletableFuture<Void> first = publish(handler, request(10, 1, 100), false);
+        CompletableFuture<Void> second = publish(handler, request(10, 1, 50), false);
+        CompletableFuture<Void> other = publish(handler, request(11, 1, 70), true);
+
+        Assert.assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        Assert.assertTrue(second.isDone() && !second.isCompletedExceptionally());
+        Assert.assertTrue(other.isDone() && !other.isCompletedExceptionally());
+        verify(stockService, times(1)).updateExistingStockEntries(argThat(c -> c.size() == 2
+                && c.stream().anyMatch(e -> e.getId().getProductId() == 10 && e.getQuantity() == 50)
+                && c.stream().anyMatch(e -> e.getId().getProductId() == 11 && e.getQuantity() == 70)));
+    }
+
+    @Test
+    public void GIVEN_batch_size_reached_WHEN_not_end_of_batch_THEN_flushes_early() {
+        given(stockService.updateExistingStockEntries(any())).willReturn(Collections.emptyList());
+
+        StockUpdatePipeline.GroupCommitHandler handler = pipeline.new GroupCommitHandler();
+        for (int i = 0; i < 4; i++) {
+            publish(handler, request(10 + i, 1, 100), false);
+        }
+
+        verify(stockService, times(1)).updateExistingStockEntries(argThat(c -> c.size() == 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void GIVEN_invalid_request_WHEN_update_THEN_throws_exception() {
+        doThrow(IllegalArgumentException.class)
+                .when(validationHelper).validate(any());
+
+        try {
+            pipeline.update(request(10, 1, -1));
+        } finally {
+            verify(stockService, never()).updateExistingStockEntries(any());
+        }
+    }
+
+    @Test(expected = ResourceNotFoundException.class)
+    public void GIVEN_request_for_non_existing_entry_WHEN_update_THEN_throws_exception() {
+        given(stockService.updateExistingStockEntries(any())).willReturn(Collections.singletonList(StockEntryId.of(10, 1)));
+
+        pipeline.update(request(10, 1, 100));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void GIVEN_stopped_pipeline_WHEN_submit_THEN_throws_exception() {
+        pipeline.stop();
+        pipeline.submit(request(10, 1, 100));
+    }
+
+    private static CompletableFuture<Void> publish(StockUpdatePipeline.GroupCommitHandler handler, StockEntryRequest request, boolean endOfBatch) {
+        StockUpdatePipeline.StockUpdateEvent event = new StockUpdatePipeline.StockUpdateEvent();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        StockUpdatePipeline.StockUpdateEvent.set(event, 0, request, future);
+        handler.onEvent(event, 0, endOfBatch);
+        return future;
+    }
+
+    private static StockEntryRequest request(Integer productId, Integer inventoryId, Integer quantity) {
+        StockEntryRequest request = new StockEntryRequest();
+        request.setProductId(productId);
+        request.setInventoryId(inventoryId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
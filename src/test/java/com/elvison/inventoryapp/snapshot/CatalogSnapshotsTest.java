@@ -0,0 +1,168 @@
+package com.elvison.inventoryapp.snapshot;
+
+import com.elvison.inventoryapp.etag.RepresentationETags;
+import com.elvison.inventoryapp.etag.TableVersions;
+import com.elvison.inventoryapp.model.Category;
+import com.elvison.inventoryapp.model.rest.CursorPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+
+public class CatalogSnapshotsTest {
+    private CatalogSnapshots catalogSnapshots;
+    private TableVersions tableVersions;
+    private AtomicInteger loads;
+
+    @Before
+    public void setup() throws Exception {
+        // versions of a table moved by every change, like the version rows
+        Map<TableVersions.Table, Integer> versions = new EnumMap<>(TableVersions.Table.class);
+        tableVersions = Mockito.mock(TableVersions.class);
+        given(tableVersions.getETag(any(TableVersions.Table.class)))
+                .willAnswer(invocation -> "\"v-" + versions.getOrDefault(invocation.getArgument(0), 0) + "\"");
+        willAnswer(invocation -> versions.merge(invocation.getArgument(0), 1, Integer::sum))
+                .given(tableVersions).changed(any(TableVersions.Table.class));
+        loads = new AtomicInteger();
+
+        catalogSnapshots = new CatalogSnapshots();
+        FieldSetter.setField(catalogSnapshots, CatalogSnapshots.class.getDeclaredField("tableVersions"), tableVersions);
+        FieldSetter.setField(catalogSnapshots, CatalogSnapshots.class.getDeclaredField("objectMapper"), new ObjectMapper());
+        FieldSetter.setField(catalogSnapshots, CatalogSnapshots.class.getDeclaredField("maxBytes"), 1L << 20);
+        FieldSetter.setField(catalogSnapshots, CatalogSnapshots.class.getDeclaredField("gzipEnabled"), true);
+        FieldSetter.setField(catalogSnapshots, CatalogSnapshots.class.getDeclaredField("gzipMinSize"), 2048);
+        FieldSetter.setField(catalogSnapshots, CatalogSnapshots.class.getDeclaredField("expireAfterWriteMs"), 60000L);
+        catalogSnapshots.init();
+    }
+
+    @Test
+    public void GIVEN_unchanged_table_WHEN_write_THEN_writes_snapshot_without_loading_again() throws Exception {
+        MockHttpServletResponse first = write(1, categories(2), new MockHttpServletRequest());
+        MockHttpServletResponse second = write(1, categories(2), new MockHttpServletRequest());
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("[{\"id\":1,\"name\":\"Category 1\"},{\"id\":2,\"name\":\"Category 2\"}]", second.getContentAsString());
+        Assert.assertArrayEquals(first.getContentAsByteArray(), second.getContentAsByteArray());
+        Assert.assertEquals("application/json", second.getContentType());
+        Assert.assertEquals(RepresentationETags.of(tableVersions.getETag(TableVersions.Table.CATEGORIES), "json"), second.getHeader("ETag"));
+        Assert.assertEquals("2", second.getHeader(CursorPage.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void GIVEN_changed_table_WHEN_write_THEN_reloads_snapshot() throws Exception {
+        write(1, categories(2), new MockHttpServletRequest());
+        tableVersions.changed(TableVersions.Table.PRODUCTS);
+        write(1, categories(2), new MockHttpServletRequest());
+        Assert.assertEquals(1, loads.get());
+
+        tableVersions.changed(TableVersions.Table.CATEGORIES);
+        MockHttpServletResponse response = write(1, categories(1), new MockHttpServletRequest());
+
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals("[{\"id\":1,\"name\":\"Category 1\"}]", response.getContentAsString());
+        Assert.assertEquals("1", response.getHeader(CursorPage.NEXT_CURSOR_HEADER));
+        Assert.assertEquals(RepresentationETags.of(tableVersions.getETag(TableVersions.Table.CATEGORIES), "json"), response.getHeader("ETag"));
+    }
+
+    @Test
+    public void GIVEN_large_page_WHEN_write_to_gzip_client_THEN_writes_gzipped_snapshot() throws Exception {
+        MockHttpServletRequest gzipRequest = new MockHttpServletRequest();
+        gzipRequest.addHeader("Accept-Encoding", "deflate, gzip;q=0.8");
+        MockHttpServletResponse gzipped = write(1000, categories(100), gzipRequest);
+        MockHttpServletResponse identity = write(1000, categories(100), new MockHttpServletRequest());
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+        Assert.assertEquals("Accept-Encoding", gzipped.getHeader("Vary"));
+        Assert.assertEquals("W/" + identity.getHeader("ETag"), gzipped.getHeader("ETag"));
+        Assert.assertTrue(gzipped.getContentLength() < identity.getContentLength());
+        byte[] json = StreamUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray())));
+        Assert.assertArrayEquals(identity.getContentAsByteArray(), json);
+        Assert.assertNull(identity.getHeader("Content-Encoding"));
+        Assert.assertEquals("Accept-Encoding", identity.getHeader("Vary"));
+    }
+
+    @Test
+    public void GIVEN_small_page_or_refused_gzip_WHEN_write_THEN_writes_json() throws Exception {
+        MockHttpServletRequest gzipRequest = new MockHttpServletRequest();
+        gzipRequest.addHeader("Accept-Encoding", "gzip");
+        Assert.assertNull(write(1, categories(2), gzipRequest).getHeader("Content-Encoding"));
+
+        MockHttpServletRequest refusingRequest = new MockHttpServletRequest();
+        refusingRequest.addHeader("Accept-Encoding", "gzip;q=0, br");
+        Assert.assertNull(write(1000, categories(100), refusingRequest).getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void GIVEN_failed_build_WHEN_write_again_THEN_loads_again() throws Exception {
+        Supplier<CursorPage<Category>> failing = () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("database unavailable");
+        };
+        try {
+            catalogSnapshots.write(TableVersions.Table.CATEGORIES, null, 1, failing, new MockHttpServletRequest(), new MockHttpServletResponse());
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("database unavailable", e.getMessage());
+        }
+
+        MockHttpServletResponse response = write(1, categories(1), new MockHttpServletRequest());
+
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals("[{\"id\":1,\"name\":\"Category 1\"}]", response.getContentAsString());
+    }
+
+    @Test
+    public void GIVEN_build_in_progress_WHEN_write_other_page_THEN_does_not_wait_for_it() throws Exception {
+        Supplier<CursorPage<Category>> loader = () -> {
+            try {
+                // the build runs outside the cache, writing another page from it neither blocks nor fails
+                write(1, categories(1), new MockHttpServletRequest());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return CursorPage.of(categories(2), 2, Category::getId);
+        };
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        catalogSnapshots.write(TableVersions.Table.CATEGORIES, null, 2, loader, new MockHttpServletRequest(), response);
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("[{\"id\":1,\"name\":\"Category 1\"},{\"id\":2,\"name\":\"Category 2\"}]", response.getContentAsString());
+    }
+
+    private MockHttpServletResponse write(int limit, List<Category> categories, MockHttpServletRequest request) throws Exception {
+        Supplier<CursorPage<Category>> loader = () -> {
+            loads.incrementAndGet();
+            return CursorPage.of(categories, limit, Category::getId);
+        };
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        catalogSnapshots.write(TableVersions.Table.CATEGORIES, null, limit, loader, request, response);
+        return response;
+    }
+
+    private static List<Category> categories(int count) {
+        List<Category> categories = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            categories.add(Category.of(i, "Category " + i));
+        }
+        return categories;
+    }
+}
@@ -0,0 +1,132 @@
+package com.elvison.inventoryapp.stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+public class StockChangeStreamTest {
+    private StockChangeStream stream;
+    private List<Runnable> tasks;
+    private MockMvc mvc;
+
+    @Before
+    public void setup() throws Exception {
+        tasks = new ArrayList<>();
+        ThreadPoolTaskExecutor executor = Mockito.mock(ThreadPoolTaskExecutor.class);
+        willAnswer(invocation -> tasks.add(invocation.getArgument(0))).given(executor).execute(any());
+
+        stream = new StockChangeStream();
+        FieldSetter.setField(stream, StockChangeStream.class.getDeclaredField("stockStreamThreadPool"), executor);
+        FieldSetter.setField(stream, StockChangeStream.class.getDeclaredField("bufferSize"), 2);
+        FieldSetter.setField(stream, StockChangeStream.class.getDeclaredField("maxSubscribers"), 1);
+        FieldSetter.setField(stream, StockChangeStream.class.getDeclaredField("timeoutMs"), 60000L);
+        mvc = MockMvcBuilders.standaloneSetup(new StreamController()).build();
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void GIVEN_burst_of_changes_WHEN_drained_THEN_sends_latest_quantity_of_each_matching_entry() throws Exception {
+        MvcResult result = subscribe("/stream?productId=1");
+
+        stream.publish(1, 2, 5);
+        stream.publish(1, 2, 7);
+        stream.publish(1, 3, 1);
+        stream.publish(2, 2, 9);
+        Assert.assertEquals(1, tasks.size());
+        tasks.get(0).run();
+
+        Assert.assertEquals("event:stock\ndata:{\"productId\":1,\"inventoryId\":2,\"quantity\":7}\n\n"
+                + "event:stock\ndata:{\"productId\":1,\"inventoryId\":3,\"quantity\":1}\n\n", result.getResponse().getContentAsString());
+        Assert.assertEquals(1, stream.getSubscriberCount());
+    }
+
+    @Test
+    public void GIVEN_subscriber_behind_buffer_size_WHEN_drained_THEN_sends_reset_and_disconnects() throws Exception {
+        MvcResult result = subscribe("/stream");
+
+        stream.publish(1, 1, 5);
+        stream.publish(1, 2, 5);
+        stream.publish(1, 3, 5);
+        tasks.get(0).run();
+
+        Assert.assertEquals("event:reset\ndata:\n\n", result.getResponse().getContentAsString());
+        Assert.assertEquals(0, stream.getSubscriberCount());
+    }
+
+    @Test
+    public void GIVEN_transaction_WHEN_publish_THEN_dispatches_after_commit_only() throws Exception {
+        MvcResult result = subscribe("/stream?inventoryId=2");
+
+        TransactionSynchronizationManager.initSynchronization();
+        stream.publish(1, 2, 5);
+        stream.publish(1, 2, 6);
+        Assert.assertTrue(tasks.isEmpty());
+        complete(false);
+        Assert.assertTrue(tasks.isEmpty());
+
+        TransactionSynchronizationManager.initSynchronization();
+        stream.publish(1, 2, 8);
+        complete(true);
+        tasks.get(0).run();
+
+        Assert.assertEquals("event:stock\ndata:{\"productId\":1,\"inventoryId\":2,\"quantity\":8}\n\n", result.getResponse().getContentAsString());
+    }
+
+    @Test(expected = TaskRejectedException.class)
+    public void GIVEN_max_subscribers_WHEN_subscribe_THEN_throws_exception() {
+        stream.subscribe(null, null);
+        stream.subscribe(null, null);
+    }
+
+    private MvcResult subscribe(String path) throws Exception {
+        return mvc.perform(get(path)).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private static void complete(boolean committed) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (committed) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(committed ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+
+    @RestController
+    private class StreamController {
+        @GetMapping("/stream")
+        public SseEmitter stream(@RequestParam(name = "productId", required = false) Integer productId,
+                                 @RequestParam(name = "inventoryId", required = false) Integer inventoryId) {
+            return stream.subscribe(productId, inventoryId);
+        }
+    }
+}
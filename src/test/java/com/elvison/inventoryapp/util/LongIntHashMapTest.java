@@ -0,0 +1,60 @@
+package com.elvison.inventoryapp.util;
+
+import com.elvison.inventoryapp.model.StockEntryId;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void GIVEN_absent_key_WHEN_put_if_absent_THEN_adds_key() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        Assert.assertEquals(LongIntHashMap.ABSENT, map.putIfAbsent(StockEntryId.key(10, 1), 3));
+        Assert.assertEquals(3, map.get(StockEntryId.key(10, 1)));
+        Assert.assertEquals(LongIntHashMap.ABSENT, map.get(StockEntryId.key(1, 10)));
+        Assert.assertEquals(1, map.size());
+    }
+
+    @Test
+    public void GIVEN_present_key_WHEN_put_if_absent_THEN_keeps_existing_value() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.putIfAbsent(StockEntryId.key(10, 1), 3);
+
+        Assert.assertEquals(3, map.putIfAbsent(StockEntryId.key(10, 1), 4));
+        Assert.assertEquals(3, map.get(StockEntryId.key(10, 1)));
+        Assert.assertEquals(1, map.size());
+    }
+
+    @Test
+    public void GIVEN_many_keys_WHEN_rehashed_THEN_all_remain_reachable() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 0; i < 10000; i++) {
+            map.putIfAbsent(StockEntryId.key(i, i % 7), i);
+        }
+
+        Assert.assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals(i, map.get(StockEntryId.key(i, i % 7)));
+        }
+    }
+
+    @Test
+    public void GIVEN_filled_map_WHEN_clear_THEN_becomes_empty() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.putIfAbsent(StockEntryId.key(10, 1), 3);
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(LongIntHashMap.ABSENT, map.get(StockEntryId.key(10, 1)));
+    }
+
+    @Test
+    public void GIVEN_packed_key_WHEN_unpacked_THEN_returns_original_ids() {
+        long key = StockEntryId.key(Integer.MAX_VALUE, -1);
+
+        Assert.assertEquals(Integer.MAX_VALUE, StockEntryId.productId(key));
+        Assert.assertEquals(-1, StockEntryId.inventoryId(key));
+        Assert.assertEquals(StockEntryId.of(Integer.MAX_VALUE, -1), StockEntryId.ofKey(key));
+    }
+}
@@ -0,0 +1,37 @@
+package com.elvison.inventoryapp.util;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void GIVEN_supported_runtime_WHEN_new_executor_THEN_runs_tasks_on_virtual_threads() throws Exception {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+        String thread = executor.submit(() -> Thread.currentThread().toString()).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        Assert.assertTrue(thread, thread.startsWith("VirtualThread"));
+    }
+
+    @Test
+    public void GIVEN_supported_runtime_WHEN_new_thread_factory_THEN_names_threads_with_prefix() {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+
+        Thread thread = VirtualThreads.newThreadFactory("worker-").newThread(() -> { });
+        Assert.assertEquals("worker-0", thread.getName());
+        Assert.assertTrue(thread.isDaemon());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void GIVEN_unsupported_runtime_WHEN_new_executor_THEN_throws() {
+        Assume.assumeFalse(VirtualThreads.isSupported());
+
+        VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+}
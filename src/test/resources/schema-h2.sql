@@ -0,0 +1,72 @@
+-- H2 (PostgreSQL mode) copy of setup/sql/tables.sql for the benchmark and load-test profiles, without the search and partial indexes
+
+CREATE TABLE inventories (
+    id INT AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_inventories_name UNIQUE (name)
+);
+
+CREATE TABLE categories (
+    id INT AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_categories_name UNIQUE (name)
+);
+
+CREATE TABLE products (
+    id INT AUTO_INCREMENT,
+    category_id INT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_products_name UNIQUE (name),
+    CONSTRAINT fk_category FOREIGN KEY(category_id) REFERENCES categories(id) ON DELETE CASCADE
+);
+
+CREATE TABLE stocks (
+    product_id INT NOT NULL,
+    inventory_id INT NOT NULL,
+    quantity INT DEFAULT 0,
+    PRIMARY KEY (product_id, inventory_id),
+    CONSTRAINT fk_product FOREIGN KEY(product_id) REFERENCES products(id) ON DELETE CASCADE,
+    CONSTRAINT fk_inventory FOREIGN KEY(inventory_id) REFERENCES inventories(id) ON DELETE CASCADE
+);
+
+-- low stock thresholds per product (no inventory ID) or per stock entry, and the alerts raised when a quantity crosses one
+CREATE TABLE stock_thresholds (
+    id INT AUTO_INCREMENT,
+    product_id INT NOT NULL,
+    inventory_id INT,
+    threshold INT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_stock_thresholds_entry UNIQUE (product_id, inventory_id),
+    CONSTRAINT fk_threshold_product FOREIGN KEY(product_id) REFERENCES products(id) ON DELETE CASCADE,
+    CONSTRAINT fk_threshold_inventory FOREIGN KEY(inventory_id) REFERENCES inventories(id) ON DELETE CASCADE
+);
+
+CREATE TABLE stock_alerts (
+    id BIGINT AUTO_INCREMENT,
+    product_id INT NOT NULL,
+    inventory_id INT NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    threshold INT NOT NULL,
+    previous_quantity INT,
+    quantity INT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_alert_product FOREIGN KEY(product_id) REFERENCES products(id) ON DELETE CASCADE,
+    CONSTRAINT fk_alert_inventory FOREIGN KEY(inventory_id) REFERENCES inventories(id) ON DELETE CASCADE
+);
+
+-- version per table, the sum of its shards: every transaction writing the table moves one shard, so concurrent
+-- writers rarely wait for each other; read for the ETags of the read endpoints. TableVersions uses 16 shards
+CREATE TABLE table_versions (
+    name VARCHAR(32) NOT NULL,
+    shard INT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (name, shard)
+);
+
+INSERT INTO table_versions (name, shard, version)
+SELECT t.name, s.shard, 0 FROM (VALUES ('categories'), ('inventories'), ('products'), ('stocks')) AS t(name)
+CROSS JOIN SYSTEM_RANGE(0, 15) AS s(shard);